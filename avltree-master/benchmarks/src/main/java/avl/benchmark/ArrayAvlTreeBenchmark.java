@@ -0,0 +1,116 @@
+//  ArrayAvlTreeBenchmark.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl.benchmark;
+
+import avl.AvlNode;
+import avl.AvlTree;
+import avl.ArrayAvlTree;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * AvlTree (one AvlNode per entry) against ArrayAvlTree (parallel arrays). searchArrayTree reports
+ * the bytes per entry of ArrayAvlTree as a counter, to be compared with gc.alloc.rate.norm / size
+ * of buildAvlTree.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@State(Scope.Thread)
+public class ArrayAvlTreeBenchmark {
+
+  @Param({"1000", "1000000", "10000000"})
+  int size;
+
+  @Param({"RANDOM", "ZIPFIAN", "SORTED"})
+  Workload workload;
+
+  Integer[] keys;
+  Integer[] accesses;
+  AvlTree<Integer> avlTree;
+  ArrayAvlTree<Integer> arrayTree;
+  int index;
+
+  /** Bytes per entry of the searched ArrayAvlTree, reported next to the score */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Footprint {
+    public double bytesPerEntry;
+
+    @Setup(Level.Iteration)
+    public void record(ArrayAvlTreeBenchmark benchmark) {
+      bytesPerEntry = benchmark.arrayTree.bytesPerEntry();
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    int[] keyValues = workload.keys(size);
+    keys = AvlTreeBenchmark.box(keyValues);
+    accesses = AvlTreeBenchmark.box(workload.accesses(keyValues));
+    avlTree = buildAvlTree();
+    arrayTree = buildArrayTree();
+    index = 0;
+  }
+
+  @Benchmark
+  public AvlNode<Integer> searchAvlTree() {
+    return avlTree.search(accesses[index++ & AvlTreeBenchmark.MASK]);
+  }
+
+  @Benchmark
+  public Integer searchArrayTree(Footprint footprint) {
+    return arrayTree.search(accesses[index++ & AvlTreeBenchmark.MASK]);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public AvlTree<Integer> buildAvlTree() {
+    AvlTree<Integer> tree = new AvlTree<Integer>(Comparator.<Integer>naturalOrder());
+    for (Integer key : keys) {
+      tree.insert(key);
+    }
+    return tree;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public ArrayAvlTree<Integer> buildArrayTree() {
+    ArrayAvlTree<Integer> tree = new ArrayAvlTree<Integer>(Comparator.<Integer>naturalOrder());
+    for (Integer key : keys) {
+      tree.insert(key);
+    }
+    return tree;
+  }
+}
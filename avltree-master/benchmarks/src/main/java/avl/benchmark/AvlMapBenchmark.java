@@ -0,0 +1,92 @@
+//  AvlMapBenchmark.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl.benchmark;
+
+import avl.AvlMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Counting the occurrences of random keys: AvlMap.merge, which descends once per key, against a
+ * get followed by a put, which descends twice, and against TreeMap.merge.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class AvlMapBenchmark {
+
+  @Param({"1000", "100000"})
+  int distinctKeys;
+
+  @Param({"1000000"})
+  int operations;
+
+  Integer[] keys;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    keys = new Integer[operations];
+    for (int i = 0; i < operations; i++) {
+      keys[i] = random.nextInt(distinctKeys);
+    }
+  }
+
+  @Benchmark
+  public Map<Integer, Integer> avlMapMerge() {
+    AvlMap<Integer, Integer> counts = new AvlMap<Integer, Integer>();
+    for (Integer key : keys) {
+      counts.merge(key, 1, Integer::sum);
+    }
+    return counts;
+  }
+
+  @Benchmark
+  public Map<Integer, Integer> avlMapGetAndPut() {
+    AvlMap<Integer, Integer> counts = new AvlMap<Integer, Integer>();
+    for (Integer key : keys) {
+      Integer count = counts.get(key);
+      counts.put(key, count == null ? 1 : count + 1);
+    }
+    return counts;
+  }
+
+  @Benchmark
+  public Map<Integer, Integer> treeMapMerge() {
+    TreeMap<Integer, Integer> counts = new TreeMap<Integer, Integer>();
+    for (Integer key : keys) {
+      counts.merge(key, 1, Integer::sum);
+    }
+    return counts;
+  }
+}
@@ -0,0 +1,127 @@
+//  AvlTreeBenchmark.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl.benchmark;
+
+import avl.AvlNode;
+import avl.AvlTree;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single operation costs of AvlTree (search, insert, delete and the rebalancing they trigger) on a
+ * tree holding size elements. Keys are boxed during the setup, so the allocation rates reported by
+ * the GC profiler only account for the tree itself.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class AvlTreeBenchmark {
+
+  static final int MASK = Workload.ACCESS_LENGTH - 1;
+
+  @Param({"1000", "10000", "100000", "1000000", "10000000"})
+  int size;
+
+  @Param({"SEQUENTIAL", "RANDOM", "ZIPFIAN", "SORTED"})
+  Workload workload;
+
+  AvlTree<Integer> tree;
+  Integer[] accesses;
+  Integer[] misses;
+  int index;
+
+  @Setup
+  public void setUp() {
+    int[] keys = workload.keys(size);
+    int[] accessKeys = workload.accesses(keys);
+
+    tree = newTree(keys);
+    accesses = box(accessKeys);
+    misses = box(workload.misses(accessKeys));
+    index = 0;
+  }
+
+  @Benchmark
+  public AvlNode<Integer> search() {
+    return tree.search(accesses[index++ & MASK]);
+  }
+
+  @Benchmark
+  public AvlNode<Integer> searchMissing() {
+    return tree.search(misses[index++ & MASK]);
+  }
+
+  @Benchmark
+  public int rank() {
+    return tree.rank(accesses[index++ & MASK]);
+  }
+
+  @Benchmark
+  public Integer select() {
+    return tree.select((index++ & MASK) % size);
+  }
+
+  /**
+   * Inserts a missing key and deletes it again, so the tree keeps its size across invocations
+   */
+  @Benchmark
+  public void insertThenDelete() {
+    Integer key = misses[index++ & MASK];
+    tree.insert(key);
+    tree.delete(key);
+  }
+
+  /**
+   * Deletes a stored key and inserts it again, so the tree keeps its size across invocations
+   */
+  @Benchmark
+  public void deleteThenInsert() {
+    Integer key = accesses[index++ & MASK];
+    tree.delete(key);
+    tree.insert(key);
+  }
+
+  static AvlTree<Integer> newTree(int[] keys) {
+    AvlTree<Integer> tree = new AvlTree<Integer>(Comparator.<Integer>naturalOrder());
+    for (int key : keys) {
+      tree.insert(key);
+    }
+    return tree;
+  }
+
+  static Integer[] box(int[] keys) {
+    Integer[] result = new Integer[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      result[i] = keys[i];
+    }
+    return result;
+  }
+}
@@ -0,0 +1,67 @@
+//  AvlTreeBuildBenchmark.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl.benchmark;
+
+import avl.AvlTree;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time needed to build a tree of size elements with repeated calls to insert, in the insertion
+ * order of each workload (sorted input triggers a rotation on almost every insert).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class AvlTreeBuildBenchmark {
+
+  @Param({"1000", "10000", "100000", "1000000", "10000000"})
+  int size;
+
+  @Param({"SEQUENTIAL", "RANDOM", "ZIPFIAN", "SORTED"})
+  Workload workload;
+
+  Integer[] keys;
+
+  @Setup
+  public void setUp() {
+    keys = AvlTreeBenchmark.box(workload.keys(size));
+  }
+
+  @Benchmark
+  public AvlTree<Integer> insertAll() {
+    AvlTree<Integer> tree = new AvlTree<Integer>(Comparator.<Integer>naturalOrder());
+    for (Integer key : keys) {
+      tree.insert(key);
+    }
+    return tree;
+  }
+}
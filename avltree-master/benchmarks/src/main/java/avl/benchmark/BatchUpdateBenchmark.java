@@ -0,0 +1,95 @@
+//  BatchUpdateBenchmark.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl.benchmark;
+
+import avl.AvlTree;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Applying a batch of missing keys to a tree and removing it again, with insertAll/deleteAll
+ * against per-element insert/delete calls. Batches are either spread over the whole key range or
+ * clustered in a narrow range, as time-ordered updates are.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class BatchUpdateBenchmark {
+
+  @Param({"1000000"})
+  int size;
+
+  @Param({"100", "1000", "10000"})
+  int batchSize;
+
+  @Param({"true", "false"})
+  boolean clustered;
+
+  AvlTree<Integer> tree;
+  List<Integer> batch;
+
+  @Setup
+  public void setUp() {
+    int[] keys = Workload.RANDOM.keys(size);
+    tree = AvlTreeBenchmark.newTree(keys);
+
+    int[] sorted = keys.clone();
+    Arrays.sort(sorted);
+    SplittableRandom random = new SplittableRandom(Workload.SEED + 4);
+    int first = random.nextInt(size - batchSize);
+    Integer[] misses = new Integer[batchSize];
+    for (int i = 0; i < batchSize; i++) {
+      int key = clustered ? sorted[first + i] : sorted[random.nextInt(size)];
+      misses[i] = key + 1;
+    }
+    batch = Arrays.asList(misses);
+  }
+
+  @Benchmark
+  public AvlTree<Integer> perElement() {
+    for (Integer key : batch) {
+      tree.insert(key);
+    }
+    for (Integer key : batch) {
+      tree.delete(key);
+    }
+    return tree;
+  }
+
+  @Benchmark
+  public AvlTree<Integer> batched() {
+    tree.insertAll(batch);
+    tree.deleteAll(batch);
+    return tree;
+  }
+}
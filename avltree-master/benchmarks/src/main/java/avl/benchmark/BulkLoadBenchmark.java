@@ -0,0 +1,92 @@
+//  BulkLoadBenchmark.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl.benchmark;
+
+import avl.AvlTree;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building a tree from a batch of keys with AvlTree.bulkLoad against a loop of inserts, for
+ * sorted input (linear build) and unsorted input (sort, then build).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class BulkLoadBenchmark {
+
+  @Param({"1000", "100000", "1000000", "10000000"})
+  int size;
+
+  Integer[] sortedKeys;
+  Integer[] unsortedKeys;
+
+  @Setup
+  public void setUp() {
+    int[] keys = Workload.RANDOM.keys(size);
+    unsortedKeys = AvlTreeBenchmark.box(keys);
+    sortedKeys = unsortedKeys.clone();
+    Arrays.sort(sortedKeys);
+  }
+
+  @Benchmark
+  public AvlTree<Integer> insertSorted() {
+    return insertAll(sortedKeys);
+  }
+
+  @Benchmark
+  public AvlTree<Integer> bulkLoadSorted() {
+    AvlTree<Integer> tree = new AvlTree<Integer>(Comparator.<Integer>naturalOrder());
+    tree.bulkLoad(Arrays.spliterator(sortedKeys));
+    return tree;
+  }
+
+  @Benchmark
+  public AvlTree<Integer> insertUnsorted() {
+    return insertAll(unsortedKeys);
+  }
+
+  @Benchmark
+  public AvlTree<Integer> bulkLoadUnsorted() {
+    AvlTree<Integer> tree = new AvlTree<Integer>(Comparator.<Integer>naturalOrder());
+    tree.bulkLoad(Arrays.spliterator(unsortedKeys));
+    return tree;
+  }
+
+  private static AvlTree<Integer> insertAll(Integer[] keys) {
+    AvlTree<Integer> tree = new AvlTree<Integer>(Comparator.<Integer>naturalOrder());
+    for (Integer key : keys) {
+      tree.insert(key);
+    }
+    return tree;
+  }
+}
@@ -0,0 +1,150 @@
+//  ByteArrayKeyBenchmark.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl.benchmark;
+
+import avl.AvlTree;
+import avl.ByteArrayAvlTree;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookups and builds of path-like keys sharing long prefixes, in an AvlTree of strings against a
+ * ByteArrayAvlTree with and without prefix compression.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class ByteArrayKeyBenchmark {
+
+  static final int LOOKUPS = 1024;
+
+  @Param({"10000", "100000"})
+  int size;
+
+  String[] strings;
+  byte[][] keys;
+  String[] stringLookups;
+  byte[][] keyLookups;
+
+  AvlTree<String> stringTree;
+  ByteArrayAvlTree byteArrayTree;
+  ByteArrayAvlTree compressedTree;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    strings = new String[size];
+    keys = new byte[size][];
+    for (int i = 0; i < size; i++) {
+      strings[i] = "https://example.org/api/v2/tenants/" + random.nextInt(8)
+          + "/collections/" + random.nextInt(64) + "/documents/" + random.nextInt(1 << 20);
+      keys[i] = strings[i].getBytes(StandardCharsets.UTF_8);
+    }
+
+    stringTree = new AvlTree<>(Comparator.<String>naturalOrder());
+    byteArrayTree = new ByteArrayAvlTree(false);
+    compressedTree = new ByteArrayAvlTree(true);
+    for (int i = 0; i < size; i++) {
+      stringTree.insert(strings[i]);
+      byteArrayTree.insert(keys[i]);
+      compressedTree.insert(keys[i]);
+    }
+
+    stringLookups = new String[LOOKUPS];
+    keyLookups = new byte[LOOKUPS][];
+    for (int i = 0; i < LOOKUPS; i++) {
+      int index = random.nextInt(size);
+      stringLookups[i] = new String(strings[index]);
+      keyLookups[i] = keys[index].clone();
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(LOOKUPS)
+  public int searchStringTree() {
+    int found = 0;
+    for (String key : stringLookups) {
+      if (stringTree.search(key) != null) {
+        found++;
+      }
+    }
+    return found;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(LOOKUPS)
+  public int searchByteArrayTree() {
+    int found = 0;
+    for (byte[] key : keyLookups) {
+      if (byteArrayTree.contains(key)) {
+        found++;
+      }
+    }
+    return found;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(LOOKUPS)
+  public int searchCompressedTree() {
+    int found = 0;
+    for (byte[] key : keyLookups) {
+      if (compressedTree.contains(key)) {
+        found++;
+      }
+    }
+    return found;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public AvlTree<String> buildStringTree() {
+    AvlTree<String> tree = new AvlTree<>(Comparator.<String>naturalOrder());
+    for (String key : strings) {
+      tree.insert(key);
+    }
+    return tree;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public ByteArrayAvlTree buildCompressedTree() {
+    ByteArrayAvlTree tree = new ByteArrayAvlTree(true);
+    for (byte[] key : keys) {
+      tree.insert(key);
+    }
+    return tree;
+  }
+}
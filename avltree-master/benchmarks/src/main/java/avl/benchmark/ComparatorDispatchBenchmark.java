@@ -0,0 +1,173 @@
+//  ComparatorDispatchBenchmark.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl.benchmark;
+
+import avl.AvlNode;
+import avl.AvlTree;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Search cost of an AvlTree ordered by a comparator, by the natural order of its items and by a
+ * subclass overriding compare. With a MEGAMORPHIC profile, before the measurements, the JVM
+ * searches trees of three other comparators, natural-order trees of three other item classes and
+ * two other subclasses, as when several trees share one JVM. Each of the three paths then has the
+ * same megamorphic call site in the shared descent of AvlTree: the comparator, compareTo or the
+ * compare method of the tree class.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ComparatorDispatchBenchmark {
+
+  static final int LOOKUPS = 1 << 16;
+  static final int MASK = LOOKUPS - 1;
+  static final int POLLUTING_SEARCHES = 1_000_000;
+
+  @Param({"10000", "1000000"})
+  int size;
+
+  @Param({"MONOMORPHIC", "MEGAMORPHIC"})
+  String profile;
+
+  AvlTree<Integer> comparatorTree;
+  AvlTree<Integer> naturalOrderTree;
+  AvlTree<Integer> specializedTree;
+  Integer[] lookups;
+  int index;
+
+  /** A tree whose compare method is specialized for integers */
+  static class IntegerAvlTree extends AvlTree<Integer> {
+    IntegerAvlTree() {
+      super(Comparator.naturalOrder());
+    }
+
+    @Override
+    protected int compare(Integer item1, Integer item2) {
+      return Integer.compare(item1, item2);
+    }
+  }
+
+  /** Trees of other classes, only used to pollute the profile of compare */
+  static class DescendingIntegerAvlTree extends AvlTree<Integer> {
+    DescendingIntegerAvlTree() {
+      super(Comparator.reverseOrder());
+    }
+
+    @Override
+    protected int compare(Integer item1, Integer item2) {
+      return Integer.compare(item2, item1);
+    }
+  }
+
+  static class StringAvlTree extends AvlTree<String> {
+    StringAvlTree() {
+      super(Comparator.naturalOrder());
+    }
+
+    @Override
+    protected int compare(String item1, String item2) {
+      return item1.compareTo(item2);
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    Integer[] keys = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      keys[i] = random.nextInt();
+    }
+    comparatorTree = new AvlTree<>(Comparator.comparingInt((Integer key) -> key));
+    naturalOrderTree = new AvlTree<>();
+    specializedTree = new IntegerAvlTree();
+    fill(comparatorTree, keys);
+    fill(naturalOrderTree, keys);
+    fill(specializedTree, keys);
+
+    lookups = new Integer[LOOKUPS];
+    for (int i = 0; i < LOOKUPS; i++) {
+      lookups[i] = keys[random.nextInt(size)];
+    }
+    index = 0;
+
+    if (profile.equals("MEGAMORPHIC")) {
+      Comparator<Integer> widening = (key1, key2) -> Long.compare(key1, key2);
+      pollute(new AvlTree<Integer>(Comparator.<Integer>reverseOrder()), lookups);
+      pollute(new AvlTree<Integer>(widening), lookups);
+      pollute(new AvlTree<Integer>(Comparator.comparingLong((Integer key) -> key)), lookups);
+
+      Long[] longs = new Long[LOOKUPS];
+      Double[] doubles = new Double[LOOKUPS];
+      String[] strings = new String[LOOKUPS];
+      for (int i = 0; i < LOOKUPS; i++) {
+        longs[i] = (long) lookups[i];
+        doubles[i] = (double) lookups[i];
+        strings[i] = Integer.toHexString(lookups[i]);
+      }
+      pollute(new AvlTree<Long>(), longs);
+      pollute(new AvlTree<Double>(), doubles);
+      pollute(new AvlTree<String>(), strings);
+
+      pollute(new DescendingIntegerAvlTree(), lookups);
+      pollute(new StringAvlTree(), strings);
+    }
+  }
+
+  private static <T> void fill(AvlTree<T> tree, T[] keys) {
+    for (T key : keys) {
+      tree.insert(key);
+    }
+  }
+
+  private static <T> void pollute(AvlTree<T> tree, T[] keys) {
+    fill(tree, keys);
+    for (int i = 0; i < POLLUTING_SEARCHES; i++) {
+      tree.search(keys[i & MASK]);
+    }
+  }
+
+  @Benchmark
+  public AvlNode<Integer> searchWithComparator() {
+    return comparatorTree.search(lookups[index++ & MASK]);
+  }
+
+  @Benchmark
+  public AvlNode<Integer> searchInNaturalOrder() {
+    return naturalOrderTree.search(lookups[index++ & MASK]);
+  }
+
+  @Benchmark
+  public AvlNode<Integer> searchSpecialized() {
+    return specializedTree.search(lookups[index++ & MASK]);
+  }
+}
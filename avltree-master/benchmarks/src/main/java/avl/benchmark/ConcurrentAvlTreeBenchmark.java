@@ -0,0 +1,117 @@
+//  ConcurrentAvlTreeBenchmark.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl.benchmark;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Mixed read/write traffic from several threads on one shared tree, comparing AvlTree behind a
+ * global lock with ConcurrentAvlTree, StampedAvlTree and ShardedAvlTree. Each thread writes its own
+ * slice of missing keys, alternately inserting and deleting them, so the size of the tree stays
+ * stable; a readPercentage of 0 is pure ingestion. Runs with 8 threads by default; use -t to change
+ * it, or ContentionBenchmarkRunner to sweep thread counts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Threads(8)
+@State(Scope.Benchmark)
+public class ConcurrentAvlTreeBenchmark {
+
+  static final int MASK = Workload.ACCESS_LENGTH - 1;
+
+  @Param({"100000", "1000000"})
+  int size;
+
+  @Param({"RANDOM", "ZIPFIAN"})
+  Workload workload;
+
+  @Param({"0", "50", "90", "99", "100"})
+  int readPercentage;
+
+  @Param({"GLOBAL_LOCK", "CONCURRENT", "STAMPED", "SHARDED"})
+  SharedTree implementation;
+
+  SharedTree.Operations tree;
+  Integer[] accesses;
+  Integer[] misses;
+  boolean[] reads;
+
+  @Setup
+  public void setUp() {
+    int[] keys = workload.keys(size);
+    int[] accessKeys = workload.accesses(keys);
+
+    tree = implementation.create(keys);
+    accesses = AvlTreeBenchmark.box(accessKeys);
+    misses = AvlTreeBenchmark.box(workload.misses(accessKeys));
+
+    SplittableRandom random = new SplittableRandom(Workload.SEED + 3);
+    reads = new boolean[Workload.ACCESS_LENGTH];
+    for (int i = 0; i < reads.length; i++) {
+      reads[i] = random.nextInt(100) < readPercentage;
+    }
+  }
+
+  /** Position of one thread in the shared access sequences */
+  @State(Scope.Thread)
+  public static class Cursor {
+    int index;
+    int writes;
+    int writeOffset;
+
+    @Setup
+    public void setUp(ThreadParams threadParams) {
+      int threads = threadParams.getThreadCount();
+      index = threadParams.getThreadIndex() * (Workload.ACCESS_LENGTH / threads);
+      writeOffset = index;
+      writes = 0;
+    }
+  }
+
+  @Benchmark
+  public Object operation(Cursor cursor) {
+    int i = cursor.index++ & MASK;
+    if (reads[i]) {
+      return tree.search(accesses[i]);
+    }
+
+    Integer key = misses[(cursor.writeOffset + (cursor.writes >>> 1)) & MASK];
+    if ((cursor.writes++ & 1) == 0) {
+      tree.insert(key);
+    } else {
+      tree.delete(key);
+    }
+    return key;
+  }
+}
@@ -0,0 +1,47 @@
+//  ContentionBenchmarkRunner.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl.benchmark;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the multithreaded benchmarks once for each thread count from 1 to 64. Other JMH command line
+ * options are passed through, e.g. -p implementation=STAMPED to restrict the run. Start it with
+ * java -cp benchmarks.jar avl.benchmark.ContentionBenchmarkRunner.
+ */
+public class ContentionBenchmarkRunner {
+
+  static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32, 64};
+
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    for (int threads : THREAD_COUNTS) {
+      Options options = new OptionsBuilder()
+          .parent(commandLine)
+          .include(ConcurrentAvlTreeBenchmark.class.getSimpleName())
+          .threads(threads)
+          .build();
+
+      new Runner(options).run();
+    }
+  }
+}
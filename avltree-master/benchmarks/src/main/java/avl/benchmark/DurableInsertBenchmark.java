@@ -0,0 +1,106 @@
+//  DurableInsertBenchmark.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl.benchmark;
+
+import avl.DurableAvlTree;
+import avl.KeySerializers;
+import avl.SyncPolicy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of logged inserts from eight threads under each sync policy. With everyOperation
+ * every insert waits for a force, so the numbers show how many writers each force covers through
+ * group commit. The log is emptied by a checkpoint after every iteration.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Threads(8)
+@State(Scope.Benchmark)
+public class DurableInsertBenchmark {
+
+  public enum Policy {
+    EVERY_OPERATION(SyncPolicy.everyOperation()),
+    EVERY_10_MS(SyncPolicy.everyInterval(Duration.ofMillis(10))),
+    EVERY_64_KB(SyncPolicy.everyBytes(1 << 16));
+
+    final SyncPolicy syncPolicy;
+
+    Policy(SyncPolicy syncPolicy) {
+      this.syncPolicy = syncPolicy;
+    }
+  }
+
+  @Param({"EVERY_OPERATION", "EVERY_10_MS", "EVERY_64_KB"})
+  Policy policy;
+
+  Path directory;
+  DurableAvlTree<Integer> tree;
+  AtomicInteger nextKey;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("avl-benchmark");
+    tree = DurableAvlTree.open(directory, Comparator.<Integer>naturalOrder(), KeySerializers.INTEGER,
+        policy.syncPolicy);
+    nextKey = new AtomicInteger();
+  }
+
+  @TearDown(Level.Iteration)
+  public void checkpoint() {
+    tree.checkpoint();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    tree.close();
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(directory);
+  }
+
+  @Benchmark
+  public void insert() {
+    tree.insert(nextKey.getAndIncrement());
+  }
+}
@@ -0,0 +1,86 @@
+//  ExpirePrefixBenchmark.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl.benchmark;
+
+import avl.AvlTree;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Expiring the oldest expiredPercentage of a time-ordered tree: AvlTree.split at the cutoff
+ * against deleting the expired items one at a time. The tree is rebuilt before every
+ * single-shot measurement.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class ExpirePrefixBenchmark {
+
+  @Param({"100000", "1000000"})
+  int size;
+
+  @Param({"1", "10", "50"})
+  int expiredPercentage;
+
+  Integer[] keys;
+  Integer cutoff;
+  AvlTree<Integer> tree;
+
+  @Setup(Level.Trial)
+  public void setUpKeys() {
+    keys = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      keys[i] = i;
+    }
+    cutoff = (int) ((long) size * expiredPercentage / 100);
+  }
+
+  @Setup(Level.Iteration)
+  public void setUpTree() {
+    tree = new AvlTree<Integer>(Comparator.<Integer>naturalOrder());
+    tree.bulkLoad(Arrays.spliterator(keys));
+  }
+
+  @Benchmark
+  public AvlTree<Integer> split() {
+    return tree.split(cutoff);
+  }
+
+  @Benchmark
+  public AvlTree<Integer> deleteLoop() {
+    for (int i = 0; i < cutoff; i++) {
+      tree.delete(keys[i]);
+    }
+    return tree;
+  }
+}
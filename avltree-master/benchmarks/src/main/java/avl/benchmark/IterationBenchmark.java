@@ -0,0 +1,85 @@
+//  IterationBenchmark.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl.benchmark;
+
+import avl.AvlTree;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Ordered traversals: a full in-order iteration, short range scans starting at random keys, and
+ * toString (pre-order) for reference.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class IterationBenchmark {
+
+  @Param({"1000", "1000000", "10000000"})
+  int size;
+
+  @Param({"100"})
+  int rangeLength;
+
+  AvlTree<Integer> tree;
+  Integer[] sortedKeys;
+  int index;
+
+  @Setup
+  public void setUp() {
+    int[] keys = Workload.RANDOM.keys(size);
+    tree = AvlTreeBenchmark.newTree(keys);
+    sortedKeys = AvlTreeBenchmark.box(keys);
+    Arrays.sort(sortedKeys);
+    index = 0;
+  }
+
+  @Benchmark
+  public void iterateAll(Blackhole blackhole) {
+    for (Integer item : tree) {
+      blackhole.consume(item);
+    }
+  }
+
+  @Benchmark
+  public void subRange(Blackhole blackhole) {
+    int from = (index++ * 7919) % (size - rangeLength);
+    for (Integer item : tree.subRange(sortedKeys[from], sortedKeys[from + rangeLength])) {
+      blackhole.consume(item);
+    }
+  }
+
+  @Benchmark
+  public String preOrderString() {
+    return tree.toString();
+  }
+}
@@ -0,0 +1,128 @@
+//  KeySerializerBenchmark.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl.benchmark;
+
+import avl.KeySerializers;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost per key of the built-in codecs against Java serialization, and of comparing serialized keys
+ * bytewise against reading them back and calling the comparator.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class KeySerializerBenchmark {
+
+  static final int KEYS = 4096;
+
+  Long[] longs;
+  String[] strings;
+  ByteBuffer buffer;
+  ByteBuffer[] serializedStrings;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    longs = new Long[KEYS];
+    strings = new String[KEYS];
+    serializedStrings = new ByteBuffer[KEYS];
+    for (int i = 0; i < KEYS; i++) {
+      longs[i] = random.nextLong();
+      strings[i] = "/var/data/tables/" + Long.toHexString(random.nextLong());
+      serializedStrings[i] =
+          ByteBuffer.allocate(KeySerializers.UTF_8.serializedSize(strings[i]));
+      KeySerializers.UTF_8.write(strings[i], serializedStrings[i]);
+      serializedStrings[i].flip();
+    }
+    buffer = ByteBuffer.allocateDirect(KEYS * 64);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(KEYS)
+  public ByteBuffer writeLongs() {
+    buffer.clear();
+    for (Long key : longs) {
+      KeySerializers.LONG.write(key, buffer);
+    }
+    return buffer;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(KEYS)
+  public ByteBuffer writeStrings() {
+    buffer.clear();
+    for (String key : strings) {
+      KeySerializers.UTF_8.write(key, buffer);
+    }
+    return buffer;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(KEYS)
+  public byte[] writeLongsWithJavaSerialization() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(KEYS * 64);
+    try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+      for (Long key : longs) {
+        output.writeObject(key);
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(KEYS)
+  public int compareSerializedStrings() {
+    int result = 0;
+    for (int i = 1; i < KEYS; i++) {
+      result += KeySerializers.compare(serializedStrings[i - 1], serializedStrings[i]);
+    }
+    return result;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(KEYS)
+  public int readAndCompareStrings() {
+    int result = 0;
+    for (int i = 1; i < KEYS; i++) {
+      ByteBuffer first = serializedStrings[i - 1].duplicate();
+      ByteBuffer second = serializedStrings[i].duplicate();
+      result += KeySerializers.UTF_8.read(first, first.remaining())
+          .compareTo(KeySerializers.UTF_8.read(second, second.remaining()));
+    }
+    return result;
+  }
+}
@@ -0,0 +1,83 @@
+//  LookupAllocationBenchmark.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl.benchmark;
+
+import avl.AvlNode;
+import avl.AvlTree;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Operations that must not allocate: successful and failed searches, and inserts of keys that are
+ * already in the tree. With the GC profiler attached every benchmark is expected to report
+ * gc.alloc.rate.norm close to 0 B/op.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LookupAllocationBenchmark {
+
+  @Param({"1000", "1000000"})
+  int size;
+
+  @Param({"RANDOM", "ZIPFIAN"})
+  Workload workload;
+
+  AvlTree<Integer> tree;
+  Integer[] accesses;
+  Integer[] misses;
+  int index;
+
+  @Setup
+  public void setUp() {
+    int[] keys = workload.keys(size);
+    int[] accessKeys = workload.accesses(keys);
+
+    tree = AvlTreeBenchmark.newTree(keys);
+    accesses = AvlTreeBenchmark.box(accessKeys);
+    misses = AvlTreeBenchmark.box(workload.misses(accessKeys));
+    index = 0;
+  }
+
+  @Benchmark
+  public AvlNode<Integer> searchHit() {
+    return tree.search(accesses[index++ & AvlTreeBenchmark.MASK]);
+  }
+
+  @Benchmark
+  public AvlNode<Integer> searchMiss() {
+    return tree.search(misses[index++ & AvlTreeBenchmark.MASK]);
+  }
+
+  @Benchmark
+  public void insertDuplicate() {
+    tree.insert(accesses[index++ & AvlTreeBenchmark.MASK]);
+  }
+}
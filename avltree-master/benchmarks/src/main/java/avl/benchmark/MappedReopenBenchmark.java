@@ -0,0 +1,88 @@
+//  MappedReopenBenchmark.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl.benchmark;
+
+import avl.LongAvlTree;
+import avl.MappedAvlTree;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Startup cost: reopening a MappedAvlTree file (and answering a first lookup) against rebuilding
+ * the same tree in memory with repeated inserts.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class MappedReopenBenchmark {
+
+  @Param({"1000000", "10000000"})
+  int size;
+
+  int[] keys;
+  Path file;
+
+  @Setup
+  public void setUp() throws IOException {
+    keys = Workload.RANDOM.keys(size);
+    file = Files.createTempFile("avl-benchmark", ".tree");
+    Files.delete(file);
+    try (MappedAvlTree tree = MappedAvlTree.open(file)) {
+      for (int key : keys) {
+        tree.insert(key);
+      }
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  @Benchmark
+  public boolean reopenMappedTree() throws IOException {
+    try (MappedAvlTree tree = MappedAvlTree.open(file)) {
+      return tree.contains(keys[keys.length / 2]);
+    }
+  }
+
+  @Benchmark
+  public boolean rebuildWithInserts() {
+    LongAvlTree tree = new LongAvlTree();
+    for (int key : keys) {
+      tree.insert(key);
+    }
+    return tree.contains(keys[keys.length / 2]);
+  }
+}
@@ -0,0 +1,98 @@
+//  MixedWorkloadBenchmark.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl.benchmark;
+
+import avl.AvlTree;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mixed read/write traffic. Each invocation performs one operation: a search with probability
+ * readPercentage / 100, otherwise a write. Writes alternate between inserting a missing key and
+ * deleting it again, so the size of the tree stays stable.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class MixedWorkloadBenchmark {
+
+  static final int MASK = Workload.ACCESS_LENGTH - 1;
+
+  @Param({"1000", "100000", "10000000"})
+  int size;
+
+  @Param({"RANDOM", "ZIPFIAN", "SORTED"})
+  Workload workload;
+
+  @Param({"50", "90", "99"})
+  int readPercentage;
+
+  AvlTree<Integer> tree;
+  Integer[] accesses;
+  Integer[] misses;
+  boolean[] reads;
+  int index;
+  int writes;
+
+  @Setup
+  public void setUp() {
+    int[] keys = workload.keys(size);
+    int[] accessKeys = workload.accesses(keys);
+
+    tree = AvlTreeBenchmark.newTree(keys);
+    accesses = AvlTreeBenchmark.box(accessKeys);
+    misses = AvlTreeBenchmark.box(workload.misses(accessKeys));
+
+    SplittableRandom random = new SplittableRandom(Workload.SEED + 3);
+    reads = new boolean[Workload.ACCESS_LENGTH];
+    for (int i = 0; i < reads.length; i++) {
+      reads[i] = random.nextInt(100) < readPercentage;
+    }
+    index = 0;
+    writes = 0;
+  }
+
+  @Benchmark
+  public Object operation() {
+    int i = index++ & MASK;
+    if (reads[i]) {
+      return tree.search(accesses[i]);
+    }
+
+    Integer key = misses[(writes >>> 1) & MASK];
+    if ((writes++ & 1) == 0) {
+      tree.insert(key);
+    } else {
+      tree.delete(key);
+    }
+    return key;
+  }
+}
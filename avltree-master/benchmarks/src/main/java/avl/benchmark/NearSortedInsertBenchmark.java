@@ -0,0 +1,91 @@
+//  NearSortedInsertBenchmark.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl.benchmark;
+
+import avl.AvlNode;
+import avl.AvlTree;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Inserting a stream of timestamps that arrive out of order by at most jitter positions: insert,
+ * which descends from the top for every item, against insertFrom with the node of the previous
+ * item as finger.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class NearSortedInsertBenchmark {
+
+  @Param({"100000", "1000000"})
+  int size;
+
+  @Param({"0", "16", "1024"})
+  int jitter;
+
+  Integer[] timestamps;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    timestamps = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      timestamps[i] = i;
+    }
+    // each timestamp is swapped with one at most jitter positions later
+    for (int i = 0; jitter > 0 && i < size; i++) {
+      int j = Math.min(size - 1, i + random.nextInt(jitter + 1));
+      Integer tmp = timestamps[i];
+      timestamps[i] = timestamps[j];
+      timestamps[j] = tmp;
+    }
+  }
+
+  @Benchmark
+  public AvlTree<Integer> insertFromTop() {
+    AvlTree<Integer> tree = new AvlTree<Integer>(Comparator.<Integer>naturalOrder());
+    for (Integer timestamp : timestamps) {
+      tree.insert(timestamp);
+    }
+    return tree;
+  }
+
+  @Benchmark
+  public AvlTree<Integer> insertFromFinger() {
+    AvlTree<Integer> tree = new AvlTree<Integer>(Comparator.<Integer>naturalOrder());
+    AvlNode<Integer> finger = null;
+    for (Integer timestamp : timestamps) {
+      finger = tree.insertFrom(finger, timestamp);
+    }
+    return tree;
+  }
+}
@@ -0,0 +1,134 @@
+//  OffHeapGcBenchmark.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl.benchmark;
+
+import avl.AvlTree;
+import avl.OffHeapAvlTree;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Garbage collection cost of a large on-heap AvlTree against an OffHeapAvlTree of the same size.
+ * Every operation deletes a stored key, inserts it again and searches another one; garbageBytes
+ * adds unrelated allocation per operation, so young collections happen for both trees and their
+ * pauses show the cost of scanning a heap that holds the whole tree. Each tree has a state of its
+ * own, so only the tree under test is built and live in its fork. Compare gc.count and gc.time
+ * from the GC profiler; the forks also log every pause with -Xlog:gc.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms24g", "-Xmx24g", "-XX:+UseG1GC", "-Xlog:gc"})
+@State(Scope.Thread)
+public class OffHeapGcBenchmark {
+
+  @Param({"1000000", "50000000"})
+  int size;
+
+  @Param({"0", "256"})
+  int garbageBytes;
+
+  int[] keys;
+  long[] accesses;
+  int index;
+
+  @Setup
+  public void setUp() {
+    keys = Workload.RANDOM.keys(size);
+    int[] accessKeys = Workload.RANDOM.accesses(keys);
+    accesses = new long[accessKeys.length];
+    for (int i = 0; i < accessKeys.length; i++) {
+      accesses[i] = accessKeys[i];
+    }
+    index = 0;
+  }
+
+  @State(Scope.Thread)
+  public static class HeapTree {
+    AvlTree<Long> tree;
+    Long[] boxedAccesses;
+
+    @Setup
+    public void setUp(OffHeapGcBenchmark benchmark) {
+      tree = new AvlTree<Long>(Comparator.<Long>naturalOrder());
+      for (int key : benchmark.keys) {
+        tree.insert((long) key);
+      }
+      boxedAccesses = new Long[benchmark.accesses.length];
+      for (int i = 0; i < boxedAccesses.length; i++) {
+        boxedAccesses[i] = benchmark.accesses[i];
+      }
+      benchmark.keys = null;
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class OffHeapTree {
+    OffHeapAvlTree tree;
+
+    @Setup
+    public void setUp(OffHeapGcBenchmark benchmark) {
+      tree = new OffHeapAvlTree();
+      for (int key : benchmark.keys) {
+        tree.insert(key);
+      }
+      benchmark.keys = null;
+    }
+
+    @TearDown
+    public void tearDown() {
+      tree.close();
+    }
+  }
+
+  @Benchmark
+  public Object heapTree(HeapTree heap) {
+    int i = index++ & AvlTreeBenchmark.MASK;
+    Long key = heap.boxedAccesses[i];
+    heap.tree.delete(key);
+    heap.tree.insert(key);
+    heap.tree.search(heap.boxedAccesses[(i + 1) & AvlTreeBenchmark.MASK]);
+    return garbage();
+  }
+
+  @Benchmark
+  public Object offHeapTree(OffHeapTree offHeap) {
+    int i = index++ & AvlTreeBenchmark.MASK;
+    long key = accesses[i];
+    offHeap.tree.delete(key);
+    offHeap.tree.insert(key);
+    offHeap.tree.contains(accesses[(i + 1) & AvlTreeBenchmark.MASK]);
+    return garbage();
+  }
+
+  private Object garbage() {
+    return garbageBytes == 0 ? null : new byte[garbageBytes];
+  }
+}
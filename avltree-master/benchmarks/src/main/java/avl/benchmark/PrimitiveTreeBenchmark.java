@@ -0,0 +1,142 @@
+//  PrimitiveTreeBenchmark.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl.benchmark;
+
+import avl.AvlNode;
+import avl.AvlTree;
+import avl.IntAvlNode;
+import avl.IntAvlTree;
+import avl.LongAvlNode;
+import avl.LongAvlTree;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * IntAvlTree and LongAvlTree against AvlTree of boxed keys. All benchmarks start from primitive
+ * keys, as callers holding int or long ids do, so boxing is part of the cost of the generic tree.
+ * Dividing the gc.alloc.rate.norm of a build benchmark by size gives the bytes allocated per entry.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class PrimitiveTreeBenchmark {
+
+  @Param({"1000", "100000", "10000000"})
+  int size;
+
+  @Param({"RANDOM", "ZIPFIAN"})
+  Workload workload;
+
+  int[] keys;
+  int[] accesses;
+
+  AvlTree<Integer> integerTree;
+  IntAvlTree intTree;
+  AvlTree<Long> longObjectTree;
+  LongAvlTree longTree;
+  int index;
+
+  @Setup
+  public void setUp() {
+    keys = workload.keys(size);
+    accesses = workload.accesses(keys);
+
+    integerTree = buildIntegerTree();
+    intTree = buildIntTree();
+    longObjectTree = buildLongObjectTree();
+    longTree = buildLongTree();
+    index = 0;
+  }
+
+  @Benchmark
+  public AvlNode<Integer> searchIntegerTree() {
+    return integerTree.search(accesses[index++ & AvlTreeBenchmark.MASK]);
+  }
+
+  @Benchmark
+  public IntAvlNode searchIntTree() {
+    return intTree.search(accesses[index++ & AvlTreeBenchmark.MASK]);
+  }
+
+  @Benchmark
+  public AvlNode<Long> searchLongObjectTree() {
+    return longObjectTree.search((long) accesses[index++ & AvlTreeBenchmark.MASK]);
+  }
+
+  @Benchmark
+  public LongAvlNode searchLongTree() {
+    return longTree.search(accesses[index++ & AvlTreeBenchmark.MASK]);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public AvlTree<Integer> buildIntegerTree() {
+    AvlTree<Integer> tree = new AvlTree<Integer>(Comparator.<Integer>naturalOrder());
+    for (int key : keys) {
+      tree.insert(key);
+    }
+    return tree;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public IntAvlTree buildIntTree() {
+    IntAvlTree tree = new IntAvlTree();
+    for (int key : keys) {
+      tree.insert(key);
+    }
+    return tree;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public AvlTree<Long> buildLongObjectTree() {
+    AvlTree<Long> tree = new AvlTree<Long>(Comparator.<Long>naturalOrder());
+    for (int key : keys) {
+      tree.insert((long) key);
+    }
+    return tree;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public LongAvlTree buildLongTree() {
+    LongAvlTree tree = new LongAvlTree();
+    for (int key : keys) {
+      tree.insert(key);
+    }
+    return tree;
+  }
+}
@@ -0,0 +1,104 @@
+//  ReadLatencyBenchmark.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Latency distribution of searches while one thread keeps writing. Seven reader threads search for
+ * keys of the tree and one writer thread alternately inserts and deletes missing keys; SampleTime
+ * mode reports the percentiles of each side separately.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Group)
+public class ReadLatencyBenchmark {
+
+  static final int MASK = Workload.ACCESS_LENGTH - 1;
+
+  @Param({"100000", "1000000"})
+  int size;
+
+  @Param({"RANDOM", "ZIPFIAN"})
+  Workload workload;
+
+  @Param({"GLOBAL_LOCK", "STAMPED", "CONCURRENT", "COPY_ON_WRITE"})
+  SharedTree implementation;
+
+  SharedTree.Operations tree;
+  Integer[] accesses;
+  Integer[] misses;
+
+  @Setup
+  public void setUp() {
+    int[] keys = workload.keys(size);
+    int[] accessKeys = workload.accesses(keys);
+
+    tree = implementation.create(keys);
+    accesses = AvlTreeBenchmark.box(accessKeys);
+    misses = AvlTreeBenchmark.box(workload.misses(accessKeys));
+  }
+
+  /** Position of one thread in the access sequences */
+  @State(Scope.Thread)
+  public static class Cursor {
+    int index;
+
+    @Setup
+    public void setUp(ThreadParams threadParams) {
+      index = threadParams.getThreadIndex() * (Workload.ACCESS_LENGTH / 8);
+    }
+  }
+
+  @Benchmark
+  @Group("readWhileWriting")
+  @GroupThreads(7)
+  public Object read(Cursor cursor) {
+    return tree.search(accesses[cursor.index++ & MASK]);
+  }
+
+  @Benchmark
+  @Group("readWhileWriting")
+  @GroupThreads(1)
+  public Object write(Cursor cursor) {
+    int i = cursor.index++;
+    Integer key = misses[(i >>> 1) & MASK];
+    if ((i & 1) == 0) {
+      tree.insert(key);
+    } else {
+      tree.delete(key);
+    }
+    return key;
+  }
+}
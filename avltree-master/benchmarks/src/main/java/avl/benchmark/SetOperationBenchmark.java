@@ -0,0 +1,133 @@
+//  SetOperationBenchmark.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl.benchmark;
+
+import avl.AvlTree;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Merging a delta tree into a base tree with the join-based set operations, on fork/join pools of
+ * increasing parallelism, against the loop of inserts (or deletes) they replace. The delta has
+ * size / deltaRatio keys, half of them already in the base. Set operations consume their input,
+ * so both trees are rebuilt with bulkLoad before every single-shot measurement.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@State(Scope.Thread)
+public class SetOperationBenchmark {
+
+  @Param({"1000000", "10000000"})
+  int size;
+
+  @Param({"1", "10"})
+  int deltaRatio;
+
+  @Param({"1", "2", "4", "8", "16", "32"})
+  int parallelism;
+
+  Integer[] baseKeys;
+  Integer[] deltaKeys;
+  AvlTree<Integer> base;
+  AvlTree<Integer> delta;
+  ForkJoinPool pool;
+
+  @Setup(Level.Trial)
+  public void setUpKeys() {
+    baseKeys = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      baseKeys[i] = 2 * i;
+    }
+
+    SplittableRandom random = new SplittableRandom(Workload.SEED);
+    deltaKeys = new Integer[size / deltaRatio];
+    for (int i = 0; i < deltaKeys.length; i++) {
+      deltaKeys[i] = random.nextInt(2 * size);
+    }
+    Arrays.sort(deltaKeys);
+
+    pool = new ForkJoinPool(parallelism);
+  }
+
+  @Setup(Level.Iteration)
+  public void setUpTrees() {
+    base = new AvlTree<Integer>(Comparator.<Integer>naturalOrder());
+    base.bulkLoad(Arrays.spliterator(baseKeys));
+    delta = new AvlTree<Integer>(Comparator.<Integer>naturalOrder());
+    delta.bulkLoad(Arrays.spliterator(deltaKeys));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  @Benchmark
+  public AvlTree<Integer> union() {
+    base.union(delta, pool);
+    return base;
+  }
+
+  @Benchmark
+  public AvlTree<Integer> intersection() {
+    base.intersection(delta, pool);
+    return base;
+  }
+
+  @Benchmark
+  public AvlTree<Integer> difference() {
+    base.difference(delta, pool);
+    return base;
+  }
+
+  /** The single-threaded loop union replaces; parallelism does not apply */
+  @Benchmark
+  public AvlTree<Integer> insertLoop() {
+    for (Integer key : delta) {
+      base.insert(key);
+    }
+    return base;
+  }
+
+  /** The single-threaded loop difference replaces; parallelism does not apply */
+  @Benchmark
+  public AvlTree<Integer> deleteLoop() {
+    for (Integer key : delta) {
+      base.delete(key);
+    }
+    return base;
+  }
+}
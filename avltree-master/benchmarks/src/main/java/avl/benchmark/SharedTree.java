@@ -0,0 +1,186 @@
+//  SharedTree.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl.benchmark;
+
+import avl.AvlTree;
+import avl.ConcurrentAvlTree;
+import avl.CopyOnWriteAvlTree;
+import avl.ShardedAvlTree;
+import avl.StampedAvlTree;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Thread-safe trees compared by the multithreaded benchmarks, all holding the same keys.
+ */
+public enum SharedTree {
+
+  /** AvlTree behind a single lock, the way it has been shared so far */
+  GLOBAL_LOCK {
+    @Override
+    Operations create(int[] keys) {
+      AvlTree<Integer> tree = AvlTreeBenchmark.newTree(keys);
+      return new Operations() {
+        @Override
+        public synchronized Object search(Integer key) {
+          return tree.search(key);
+        }
+
+        @Override
+        public synchronized void insert(Integer key) {
+          tree.insert(key);
+        }
+
+        @Override
+        public synchronized void delete(Integer key) {
+          tree.delete(key);
+        }
+      };
+    }
+  },
+
+  CONCURRENT {
+    @Override
+    Operations create(int[] keys) {
+      ConcurrentAvlTree<Integer> tree =
+          new ConcurrentAvlTree<>(Comparator.<Integer>naturalOrder());
+      for (int key : keys) {
+        tree.insert(key);
+      }
+      return new Operations() {
+        @Override
+        public Object search(Integer key) {
+          return tree.search(key);
+        }
+
+        @Override
+        public void insert(Integer key) {
+          tree.insert(key);
+        }
+
+        @Override
+        public void delete(Integer key) {
+          tree.delete(key);
+        }
+      };
+    }
+  },
+
+  STAMPED {
+    @Override
+    Operations create(int[] keys) {
+      StampedAvlTree<Integer> tree = new StampedAvlTree<>(Comparator.<Integer>naturalOrder());
+      for (int key : keys) {
+        tree.insert(key);
+      }
+      return new Operations() {
+        @Override
+        public Object search(Integer key) {
+          return tree.search(key);
+        }
+
+        @Override
+        public void insert(Integer key) {
+          tree.insert(key);
+        }
+
+        @Override
+        public void delete(Integer key) {
+          tree.delete(key);
+        }
+      };
+    }
+  },
+
+  /** SHARDS shards split at the quantiles of the initial keys */
+  SHARDED {
+    @Override
+    Operations create(int[] keys) {
+      int[] sorted = keys.clone();
+      Arrays.sort(sorted);
+      List<Integer> splits = new ArrayList<>();
+      for (int i = 1; i < SHARDS; i++) {
+        int split = sorted[(int) ((long) sorted.length * i / SHARDS)];
+        if (splits.isEmpty() || splits.get(splits.size() - 1) < split) {
+          splits.add(split);
+        }
+      }
+
+      ShardedAvlTree<Integer> tree =
+          new ShardedAvlTree<>(Comparator.<Integer>naturalOrder(), splits);
+      for (int key : keys) {
+        tree.insert(key);
+      }
+      return new Operations() {
+        @Override
+        public Object search(Integer key) {
+          return tree.search(key);
+        }
+
+        @Override
+        public void insert(Integer key) {
+          tree.insert(key);
+        }
+
+        @Override
+        public void delete(Integer key) {
+          tree.delete(key);
+        }
+      };
+    }
+  },
+
+  /** Meant for a single writer thread */
+  COPY_ON_WRITE {
+    @Override
+    Operations create(int[] keys) {
+      CopyOnWriteAvlTree<Integer> tree =
+          new CopyOnWriteAvlTree<>(Comparator.<Integer>naturalOrder());
+      tree.insertAll(Arrays.asList(AvlTreeBenchmark.box(keys)));
+      return new Operations() {
+        @Override
+        public Object search(Integer key) {
+          return tree.search(key);
+        }
+
+        @Override
+        public void insert(Integer key) {
+          tree.insert(key);
+        }
+
+        @Override
+        public void delete(Integer key) {
+          tree.delete(key);
+        }
+      };
+    }
+  };
+
+  static final int SHARDS = 16;
+
+  abstract Operations create(int[] keys);
+
+  interface Operations {
+    Object search(Integer key);
+
+    void insert(Integer key);
+
+    void delete(Integer key);
+  }
+}
@@ -0,0 +1,146 @@
+//  SnapshotBenchmark.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl.benchmark;
+
+import avl.AvlSnapshot;
+import avl.AvlTree;
+import avl.KeySerializers;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of AvlSnapshot writing a tree to a file and reading it back, against printing the tree
+ * with toString and parsing the text. The bytes counter is reported per microsecond, which is the
+ * same number as MB/s. Files stay in the page cache, so these numbers measure the encoding and the
+ * copies, not the device.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class SnapshotBenchmark {
+
+  @Param({"100000", "1000000"})
+  int size;
+
+  @Param({"4096", "262144"})
+  int bufferBytes;
+
+  AvlTree<Integer> tree;
+  String text;
+  AvlSnapshot<Integer> snapshot;
+  Path writeFile;
+  Path readFile;
+  FileChannel writeChannel;
+  FileChannel readChannel;
+
+  /** Bytes written or read, reported as a rate */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Bytes {
+    public long bytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      bytes = 0;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    tree = new AvlTree<Integer>(Comparator.<Integer>naturalOrder());
+    tree.bulkLoad(IntStream.range(0, size).map(key -> 3 * key).iterator());
+    text = tree.toString();
+    snapshot = new AvlSnapshot<Integer>(KeySerializers.INTEGER, bufferBytes);
+
+    writeFile = Files.createTempFile("avl", ".snapshot");
+    readFile = Files.createTempFile("avl", ".snapshot");
+    writeChannel = FileChannel.open(writeFile, StandardOpenOption.WRITE);
+    readChannel = FileChannel.open(readFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    snapshot.write(tree, readChannel);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    snapshot.close();
+    writeChannel.close();
+    readChannel.close();
+    Files.delete(writeFile);
+    Files.delete(readFile);
+  }
+
+  @Benchmark
+  public long writeSnapshot(Bytes counter) throws IOException {
+    writeChannel.truncate(0);
+    writeChannel.position(0);
+    long written = snapshot.write(tree, writeChannel);
+    counter.bytes += written;
+    return written;
+  }
+
+  @Benchmark
+  public AvlTree<Integer> readSnapshot(Bytes counter) throws IOException {
+    readChannel.position(0);
+    AvlTree<Integer> copy = snapshot.read(readChannel, Comparator.<Integer>naturalOrder());
+    counter.bytes += readChannel.size();
+    return copy;
+  }
+
+  @Benchmark
+  public String printText(Bytes counter) {
+    String printed = tree.toString();
+    counter.bytes += printed.length();
+    return printed;
+  }
+
+  /** The text is in pre-order, so bulkLoad has to sort the parsed items */
+  @Benchmark
+  public AvlTree<Integer> parseText(Bytes counter) {
+    AvlTree<Integer> copy = new AvlTree<Integer>(Comparator.<Integer>naturalOrder());
+    String[] fields = text.split(" \\| ");
+    Integer[] items = new Integer[fields.length - 1];
+    for (int i = 1; i < fields.length; i++) {
+      items[i - 1] = Integer.valueOf(fields[i]);
+    }
+    copy.bulkLoad(Arrays.spliterator(items));
+    counter.bytes += text.length();
+    return copy;
+  }
+}
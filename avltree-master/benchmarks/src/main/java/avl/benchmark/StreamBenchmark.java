@@ -0,0 +1,90 @@
+//  StreamBenchmark.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl.benchmark;
+
+import avl.AvlTree;
+import java.util.Comparator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * An analytic scan (sum of the items) over the whole tree: a sequential stream against a parallel
+ * stream running in a fork/join pool of the given parallelism, and the plain iterator for
+ * reference.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms16g", "-Xmx16g"})
+@State(Scope.Thread)
+public class StreamBenchmark {
+
+  @Param({"1000000", "10000000", "50000000"})
+  int size;
+
+  @Param({"1", "2", "4", "8", "16", "32"})
+  int parallelism;
+
+  AvlTree<Integer> tree;
+  ForkJoinPool pool;
+
+  @Setup
+  public void setUp() {
+    tree = new AvlTree<Integer>(Comparator.<Integer>naturalOrder());
+    tree.bulkLoad(IntStream.range(0, size).iterator());
+    pool = new ForkJoinPool(parallelism);
+  }
+
+  @TearDown
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  @Benchmark
+  public long iteratorSum() {
+    long sum = 0;
+    for (Integer item : tree) {
+      sum += item;
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long sequentialStreamSum() {
+    return tree.stream().mapToLong(Integer::longValue).sum();
+  }
+
+  @Benchmark
+  public long parallelStreamSum() throws InterruptedException, ExecutionException {
+    return pool.submit(() -> tree.parallelStream().mapToLong(Integer::longValue).sum()).get();
+  }
+}
@@ -0,0 +1,128 @@
+//  Workload.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl.benchmark;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+/**
+ * Key distributions used by the benchmarks. Every workload produces the keys stored in the tree (in
+ * the order they are inserted), a stream of keys to look up and a stream of keys that are known not
+ * to be in the tree. Stored keys are always even and missing keys are always odd.
+ */
+public enum Workload {
+  /** Dense keys 0, 2, 4, ... inserted and accessed in ascending order */
+  SEQUENTIAL,
+  /** Sparse random keys inserted in random order and accessed uniformly */
+  RANDOM,
+  /** Sparse random keys inserted in random order and accessed with a Zipfian skew */
+  ZIPFIAN,
+  /** Sparse random keys inserted and accessed in ascending order */
+  SORTED;
+
+  public static final int ACCESS_LENGTH = 1 << 20;
+  public static final long SEED = 0x5DEECE66DL;
+
+  /**
+   * Keys to be stored in the tree, in insertion order
+   *
+   * @param size
+   * @return
+   */
+  public int[] keys(int size) {
+    int[] keys;
+    if (this == SEQUENTIAL) {
+      keys = new int[size];
+      for (int i = 0; i < size; i++) {
+        keys[i] = 2 * i;
+      }
+    } else {
+      keys = distinctRandomEvenKeys(size, new SplittableRandom(SEED));
+      if (this == SORTED) {
+        Arrays.sort(keys);
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * Keys of the tree arranged in the order they are accessed by the lookup benchmarks
+   *
+   * @param keys the keys returned by keys(int)
+   * @return an array of ACCESS_LENGTH keys
+   */
+  public int[] accesses(int[] keys) {
+    int[] accesses = new int[ACCESS_LENGTH];
+    SplittableRandom random = new SplittableRandom(SEED + 1);
+    switch (this) {
+      case SEQUENTIAL:
+      case SORTED: {
+        int[] sorted = keys.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < ACCESS_LENGTH; i++) {
+          accesses[i] = sorted[i % sorted.length];
+        }
+        break;
+      }
+      case RANDOM:
+        for (int i = 0; i < ACCESS_LENGTH; i++) {
+          accesses[i] = keys[random.nextInt(keys.length)];
+        }
+        break;
+      case ZIPFIAN: {
+        ZipfianGenerator zipf = new ZipfianGenerator(keys.length, ZipfianGenerator.DEFAULT_SKEW,
+            SEED + 2);
+        for (int i = 0; i < ACCESS_LENGTH; i++) {
+          accesses[i] = keys[(int) zipf.next()];
+        }
+        break;
+      }
+      default:
+        throw new IllegalStateException("Unknown workload " + this);
+    }
+    return accesses;
+  }
+
+  /**
+   * Keys that are not stored in the tree, each one next to a stored key of the access stream
+   *
+   * @param accesses the keys returned by accesses(int[])
+   * @return an array of ACCESS_LENGTH keys
+   */
+  public int[] misses(int[] accesses) {
+    int[] misses = new int[accesses.length];
+    for (int i = 0; i < accesses.length; i++) {
+      misses[i] = accesses[i] + 1;
+    }
+    return misses;
+  }
+
+  private static int[] distinctRandomEvenKeys(int size, SplittableRandom random) {
+    int[] keys = new int[size];
+    BitSet used = new BitSet();
+    int count = 0;
+    while (count < size) {
+      int key = random.nextInt(Integer.MAX_VALUE / 2) * 2;
+      if (!used.get(key >>> 1)) {
+        used.set(key >>> 1);
+        keys[count++] = key;
+      }
+    }
+    return keys;
+  }
+}
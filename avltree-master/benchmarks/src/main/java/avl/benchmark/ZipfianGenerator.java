@@ -0,0 +1,67 @@
+//  ZipfianGenerator.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl.benchmark;
+
+import java.util.SplittableRandom;
+
+/**
+ * Generates ranks in [0, n) following a Zipfian distribution (Gray et al., "Quickly generating
+ * billion-record synthetic databases"). Rank 0 is the most popular one.
+ */
+public class ZipfianGenerator {
+
+  public static final double DEFAULT_SKEW = 0.99;
+
+  private final long n;
+  private final double theta;
+  private final double alpha;
+  private final double zetan;
+  private final double eta;
+  private final SplittableRandom random;
+
+  public ZipfianGenerator(long n, double theta, long seed) {
+    this.n = n;
+    this.theta = theta;
+    this.random = new SplittableRandom(seed);
+
+    double zeta2 = zeta(2, theta);
+    zetan = zeta(n, theta);
+    alpha = 1.0 / (1.0 - theta);
+    eta = (1 - Math.pow(2.0 / n, 1 - theta)) / (1 - zeta2 / zetan);
+  }
+
+  public long next() {
+    double u = random.nextDouble();
+    double uz = u * zetan;
+
+    if (uz < 1.0) {
+      return 0;
+    }
+    if (uz < 1.0 + Math.pow(0.5, theta)) {
+      return Math.min(1, n - 1);
+    }
+    return Math.min(n - 1, (long) (n * Math.pow(eta * u - eta + 1, alpha)));
+  }
+
+  private static double zeta(long n, double theta) {
+    double sum = 0;
+    for (long i = 1; i <= n; i++) {
+      sum += 1 / Math.pow(i, theta);
+    }
+    return sum;
+  }
+}
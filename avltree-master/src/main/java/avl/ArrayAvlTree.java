@@ -0,0 +1,415 @@
+//  ArrayAvlTree.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Avl tree whose nodes are int indices into parallel arrays (left, right, parent, height and item)
+ * instead of one AvlNode object per entry. Slots of deleted nodes are kept in a free list, linked
+ * through the left array, and reused by later inserts. Insert, search, delete and rebalance follow
+ * the same algorithms as AvlTree, so both trees have the same shape for the same operations.
+ */
+public class ArrayAvlTree<T> {
+
+  static final int NIL = -1;
+  static final int DEFAULT_CAPACITY = 16;
+
+  /** Array header and per-slot estimates, assuming a 64-bit JVM with compressed references */
+  static final int ARRAY_HEADER_BYTES = 16;
+  static final int BYTES_PER_SLOT = 4 * Integer.BYTES + 4;
+
+  private int[] left;
+  private int[] right;
+  private int[] parent;
+  private int[] height;
+  private Object[] items;
+
+  private int top;
+  private int size;
+  private int used;
+  private int free;
+
+  private int closestNode;
+
+  final Comparator<? super T> comparator;
+
+  /**
+   * Constructor
+   *
+   * @param comparator
+   */
+  public ArrayAvlTree(Comparator<? super T> comparator) {
+    this(comparator, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param comparator
+   * @param initialCapacity number of nodes that can be stored before growing the arrays
+   */
+  public ArrayAvlTree(Comparator<? super T> comparator, int initialCapacity) {
+    if (initialCapacity < 1) {
+      throw new IllegalArgumentException("Invalid initial capacity: " + initialCapacity);
+    }
+    this.comparator = comparator;
+    left = new int[initialCapacity];
+    right = new int[initialCapacity];
+    parent = new int[initialCapacity];
+    height = new int[initialCapacity];
+    items = new Object[initialCapacity];
+
+    top = NIL;
+    size = 0;
+    used = 0;
+    free = NIL;
+  }
+
+  public int getHeight() {
+    if (top == NIL) throw new NullPointerException();
+    return height[top];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean avlIsEmpty() {
+    return top == NIL;
+  }
+
+  /**
+   * @return the number of slots the node arrays can hold before growing
+   */
+  public int capacity() {
+    return items.length;
+  }
+
+  /**
+   * Estimated heap bytes taken by the node arrays per stored entry, not counting the items
+   * themselves. Unused capacity and free slots are included, so the value is what the tree
+   * actually costs rather than the best case.
+   */
+  public double bytesPerEntry() {
+    long bytes = (long) capacity() * BYTES_PER_SLOT + 5L * ARRAY_HEADER_BYTES;
+    return size == 0 ? bytes : (double) bytes / size;
+  }
+
+  public void insert(T item) {
+    if (avlIsEmpty()) {
+      top = newNode(item);
+    } else {
+      int result = searchClosestNode(item);
+
+      switch (result) {
+        case -1: {
+          int node = newNode(item);
+          left[closestNode] = node;
+          parent[node] = closestNode;
+          rebalance(node);
+          break;
+        }
+        case +1: {
+          int node = newNode(item);
+          right[closestNode] = node;
+          parent[node] = closestNode;
+          rebalance(node);
+          break;
+        }
+        default:
+          break;
+      }
+      closestNode = NIL;
+    }
+  }
+
+  /**
+   * @param item
+   * @return the item stored in the tree that is equal to the one passed as argument, or null
+   */
+  public T search(T item) {
+    int node = searchNode(item);
+    return node == NIL ? null : getItem(node);
+  }
+
+  public boolean contains(T item) {
+    return searchNode(item) != NIL;
+  }
+
+  public void delete(T item) {
+    int nodeFound = searchNode(item);
+    if (nodeFound != NIL) {
+      if (left[nodeFound] == NIL || right[nodeFound] == NIL) {
+        deleteNodeWithAtMostOneChild(nodeFound);
+      } else { // has two children
+        int successor = findSuccessor(nodeFound);
+        Object tmp = items[successor];
+        items[successor] = items[nodeFound];
+        items[nodeFound] = tmp;
+        deleteNodeWithAtMostOneChild(successor);
+      }
+    }
+  }
+
+  /**
+   * Same cases as deleteLeafNode, deleteNodeWithALeftChild and deleteNodeWithARightChild in
+   * AvlTree: a leaf is unlinked, and a node with a single (leaf) child takes the item of its child.
+   */
+  private void deleteNodeWithAtMostOneChild(int node) {
+    int child = left[node] != NIL ? left[node] : right[node];
+    if (child == NIL) {
+      int nodeParent = parent[node];
+      if (nodeParent == NIL) {
+        top = NIL;
+      } else {
+        if (left[nodeParent] == node) {
+          left[nodeParent] = NIL;
+        } else {
+          right[nodeParent] = NIL;
+        }
+        updateHeight(nodeParent);
+        rebalance(nodeParent);
+      }
+      freeNode(node);
+    } else {
+      items[node] = items[child];
+      left[node] = NIL;
+      right[node] = NIL;
+      updateHeight(node);
+      rebalance(node);
+      freeNode(child);
+    }
+  }
+
+  private int searchNode(T item) {
+    int currentNode = top;
+    while (currentNode != NIL) {
+      int comparison = comparator.compare(item, getItem(currentNode));
+      if (comparison < 0) {
+        currentNode = left[currentNode];
+      } else if (comparison > 0) {
+        currentNode = right[currentNode];
+      } else {
+        return currentNode;
+      }
+    }
+    return NIL;
+  }
+
+  /**
+   * Searches for the closest node of the item passed as argument and leaves it in closestNode
+   *
+   * @param item
+   * @return -1 if item has to be inserted in the left, +1 if it must be inserted in the right, 0
+   * otherwise
+   */
+  private int searchClosestNode(T item) {
+    int currentNode = top;
+    while (true) {
+      int comparison = comparator.compare(item, getItem(currentNode));
+      if (comparison < 0) {
+        if (left[currentNode] == NIL) {
+          closestNode = currentNode;
+          return -1;
+        }
+        currentNode = left[currentNode];
+      } else if (comparison > 0) {
+        if (right[currentNode] == NIL) {
+          closestNode = currentNode;
+          return 1;
+        }
+        currentNode = right[currentNode];
+      } else {
+        closestNode = currentNode;
+        return 0;
+      }
+    }
+  }
+
+  private int findSuccessor(int node) {
+    int result;
+
+    if (right[node] != NIL) {
+      int tmp = right[node];
+      while (left[tmp] != NIL) {
+        tmp = left[tmp];
+      }
+      result = tmp;
+    } else {
+      while (parent[node] != NIL && right[parent[node]] == node) {
+        node = parent[node];
+      }
+      result = parent[node];
+    }
+    return result;
+  }
+
+  private void rebalance(int node) {
+    int currentNode = node;
+    boolean notFinished = true;
+
+    while (notFinished) {
+      if (getBalance(currentNode) == -2) {
+        if (height(left[left[currentNode]]) >= height(right[left[currentNode]])) {
+          leftRotation(currentNode);
+        } else {
+          rightRotation(left[currentNode]);
+          leftRotation(currentNode);
+        }
+      }
+
+      if (getBalance(currentNode) == 2) {
+        if (height(right[right[currentNode]]) >= height(left[right[currentNode]])) {
+          rightRotation(currentNode);
+        } else {
+          leftRotation(right[currentNode]);
+          rightRotation(currentNode);
+        }
+      }
+
+      if (parent[currentNode] != NIL) {
+        updateHeight(parent[currentNode]);
+        currentNode = parent[currentNode];
+      } else {
+        top = currentNode;
+        notFinished = false;
+      }
+    }
+  }
+
+  /**
+   * Rotates the left child of node up, as AvlTree.leftRotation does
+   */
+  private void leftRotation(int node) {
+    int leftNode = left[node];
+    replaceChild(node, leftNode);
+
+    left[node] = right[leftNode];
+    if (left[node] != NIL) {
+      parent[left[node]] = node;
+    }
+    right[leftNode] = node;
+    parent[node] = leftNode;
+
+    updateHeight(node);
+    updateHeight(leftNode);
+  }
+
+  /**
+   * Rotates the right child of node up, as AvlTree.rightRotation does
+   */
+  private void rightRotation(int node) {
+    int rightNode = right[node];
+    replaceChild(node, rightNode);
+
+    right[node] = left[rightNode];
+    if (right[node] != NIL) {
+      parent[right[node]] = node;
+    }
+    left[rightNode] = node;
+    parent[node] = rightNode;
+
+    updateHeight(node);
+    updateHeight(rightNode);
+  }
+
+  private void replaceChild(int node, int newChild) {
+    int nodeParent = parent[node];
+    parent[newChild] = nodeParent;
+    if (nodeParent == NIL) {
+      top = newChild;
+    } else if (left[nodeParent] == node) {
+      left[nodeParent] = newChild;
+    } else {
+      right[nodeParent] = newChild;
+    }
+  }
+
+  private int getBalance(int node) {
+    return height(right[node]) - height(left[node]);
+  }
+
+  private int height(int node) {
+    return node == NIL ? -1 : height[node];
+  }
+
+  private void updateHeight(int node) {
+    height[node] = 1 + Math.max(height(left[node]), height(right[node]));
+  }
+
+  private int newNode(T item) {
+    int node;
+    if (free != NIL) {
+      node = free;
+      free = left[node];
+    } else {
+      if (used == items.length) {
+        grow();
+      }
+      node = used++;
+    }
+    left[node] = NIL;
+    right[node] = NIL;
+    parent[node] = NIL;
+    height[node] = 0;
+    items[node] = item;
+    size++;
+    return node;
+  }
+
+  private void freeNode(int node) {
+    items[node] = null;
+    right[node] = NIL;
+    parent[node] = NIL;
+    left[node] = free;
+    free = node;
+    size--;
+  }
+
+  private void grow() {
+    int newCapacity = items.length + (items.length >> 1) + 1;
+    if (newCapacity < 0) {
+      throw new OutOfMemoryError("Too many nodes for an ArrayAvlTree");
+    }
+    left = Arrays.copyOf(left, newCapacity);
+    right = Arrays.copyOf(right, newCapacity);
+    parent = Arrays.copyOf(parent, newCapacity);
+    height = Arrays.copyOf(height, newCapacity);
+    items = Arrays.copyOf(items, newCapacity);
+  }
+
+  @SuppressWarnings("unchecked")
+  private T getItem(int node) {
+    return (T) items[node];
+  }
+
+  public String toString() {
+    StringBuilder result = new StringBuilder();
+    preOrder(top, result);
+    return result.toString();
+  }
+
+  private void preOrder(int node, StringBuilder result) {
+    if (node != NIL) {
+      result.append(" | ").append(items[node]);
+      preOrder(left[node], result);
+      preOrder(right[node], result);
+    }
+  }
+}
@@ -0,0 +1,323 @@
+//  AvlJoin.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl;
+
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Join-based algorithms on Avl subtrees (Blelloch, Ferizovic and Sun, "Just Join for Parallel
+ * Ordered Sets", SPAA 2016).
+ *
+ * <p>join(left, node, right) links two subtrees and a node whose item lies between them into one
+ * Avl subtree in O(|height(left) - height(right)|); split cuts a subtree at an item in O(log n).
+ * Union, intersection and difference are built on them, recursing on both halves in parallel
+ * through fork/join.
+ *
+ * <p>All the methods work in place on the nodes they are given, which must not be shared with any
+ * other tree: the subtrees passed as arguments are taken apart and their nodes reused in the
+ * result. The parent link of a returned subtree root is not meaningful; the caller sets it.
+ */
+class AvlJoin {
+
+  /** Below this total number of nodes set operations do not fork any more */
+  static final int SEQUENTIAL_THRESHOLD = 1 << 12;
+
+  private AvlJoin() {
+  }
+
+  /** Result of split: the items smaller than the key, the node equal to it or null, the greater */
+  static final class Split<T> {
+    final AvlNode<T> left;
+    final AvlNode<T> found;
+    final AvlNode<T> right;
+
+    Split(AvlNode<T> left, AvlNode<T> found, AvlNode<T> right) {
+      this.left = left;
+      this.found = found;
+      this.right = right;
+    }
+  }
+
+  static int height(AvlNode<?> node) {
+    return node == null ? -1 : node.getHeight();
+  }
+
+  static int size(AvlNode<?> node) {
+    return node == null ? 0 : node.getSize();
+  }
+
+  /**
+   * Makes left and right the children of node, updating parent links, height and size
+   *
+   * @return node
+   */
+  static <T> AvlNode<T> link(AvlNode<T> left, AvlNode<T> node, AvlNode<T> right) {
+    node.setLeft(left);
+    if (left != null) {
+      left.setParent(node);
+    }
+    node.setRight(right);
+    if (right != null) {
+      right.setParent(node);
+    }
+    node.updateHeight();
+    node.updateSize();
+    return node;
+  }
+
+  /**
+   * Rotates the left child of a subtree root up, leaving the link from the parent to the caller
+   *
+   * @return the new root of the subtree
+   */
+  static <T> AvlNode<T> rotateLeftChildUp(AvlNode<T> node) {
+    AvlNode<T> leftNode = node.getLeft();
+    link(leftNode.getRight(), node, node.getRight());
+    return link(leftNode.getLeft(), leftNode, node);
+  }
+
+  /**
+   * Rotates the right child of a subtree root up, leaving the link from the parent to the caller
+   *
+   * @return the new root of the subtree
+   */
+  static <T> AvlNode<T> rotateRightChildUp(AvlNode<T> node) {
+    AvlNode<T> rightNode = node.getRight();
+    link(node.getLeft(), node, rightNode.getLeft());
+    return link(node, rightNode, rightNode.getRight());
+  }
+
+  /**
+   * Joins two subtrees and a node; every item of left must be smaller than the item of node, and
+   * every item of right greater
+   *
+   * @return the root of the joined subtree
+   */
+  static <T> AvlNode<T> join(AvlNode<T> left, AvlNode<T> node, AvlNode<T> right) {
+    if (height(left) > height(right) + 1) {
+      return joinRight(left, node, right);
+    } else if (height(right) > height(left) + 1) {
+      return joinLeft(left, node, right);
+    }
+    return link(left, node, right);
+  }
+
+  /**
+   * Descends the right spine of the taller left subtree to the level of right
+   */
+  private static <T> AvlNode<T> joinRight(AvlNode<T> left, AvlNode<T> node, AvlNode<T> right) {
+    AvlNode<T> leftLeft = left.getLeft();
+    AvlNode<T> leftRight = left.getRight();
+    if (height(leftRight) <= height(right) + 1) {
+      AvlNode<T> joined = link(leftRight, node, right);
+      if (height(joined) <= height(leftLeft) + 1) {
+        return link(leftLeft, left, joined);
+      }
+      return rotateRightChildUp(link(leftLeft, left, rotateLeftChildUp(joined)));
+    }
+
+    AvlNode<T> joined = joinRight(leftRight, node, right);
+    link(leftLeft, left, joined);
+    if (height(joined) <= height(leftLeft) + 1) {
+      return left;
+    }
+    return rotateRightChildUp(left);
+  }
+
+  /**
+   * Mirror image of joinRight
+   */
+  private static <T> AvlNode<T> joinLeft(AvlNode<T> left, AvlNode<T> node, AvlNode<T> right) {
+    AvlNode<T> rightLeft = right.getLeft();
+    AvlNode<T> rightRight = right.getRight();
+    if (height(rightLeft) <= height(left) + 1) {
+      AvlNode<T> joined = link(left, node, rightLeft);
+      if (height(joined) <= height(rightRight) + 1) {
+        return link(joined, right, rightRight);
+      }
+      return rotateLeftChildUp(link(rotateRightChildUp(joined), right, rightRight));
+    }
+
+    AvlNode<T> joined = joinLeft(left, node, rightLeft);
+    link(joined, right, rightRight);
+    if (height(joined) <= height(rightRight) + 1) {
+      return right;
+    }
+    return rotateLeftChildUp(right);
+  }
+
+  /**
+   * Joins two subtrees; every item of left must be smaller than every item of right
+   */
+  static <T> AvlNode<T> join(AvlNode<T> left, AvlNode<T> right) {
+    if (left == null) {
+      return right;
+    } else if (right == null) {
+      return left;
+    }
+    AvlNode<T> last = left;
+    while (last.getRight() != null) {
+      last = last.getRight();
+    }
+    return join(removeLast(left), last, right);
+  }
+
+  /**
+   * @return the subtree without its last node, which is left detached
+   */
+  private static <T> AvlNode<T> removeLast(AvlNode<T> node) {
+    if (node.getRight() == null) {
+      AvlNode<T> left = node.getLeft();
+      node.setLeft(null);
+      return left;
+    }
+    return join(node.getLeft(), node, removeLast(node.getRight()));
+  }
+
+  /**
+   * Cuts a subtree at an item
+   */
+  static <T> Split<T> split(AvlNode<T> node, T item, Comparator<? super T> comparator) {
+    if (node == null) {
+      return new Split<T>(null, null, null);
+    }
+
+    AvlNode<T> left = node.getLeft();
+    AvlNode<T> right = node.getRight();
+    int comparison = comparator.compare(item, node.getItem());
+    if (comparison == 0) {
+      link(null, node, null);
+      return new Split<T>(left, node, right);
+    } else if (comparison < 0) {
+      Split<T> split = split(left, item, comparator);
+      return new Split<T>(split.left, split.found, join(split.right, node, right));
+    } else {
+      Split<T> split = split(right, item, comparator);
+      return new Split<T>(join(left, node, split.left), split.found, split.right);
+    }
+  }
+
+  /**
+   * @return the union of two subtrees; of two equal items, the node of first is kept
+   */
+  static <T> AvlNode<T> union(AvlNode<T> first, AvlNode<T> second,
+      Comparator<? super T> comparator, ForkJoinPool pool) {
+    return run(new SetOperation<T>(SetOperation.UNION, first, second, comparator), pool);
+  }
+
+  /**
+   * @return the nodes of first whose item is also in second
+   */
+  static <T> AvlNode<T> intersection(AvlNode<T> first, AvlNode<T> second,
+      Comparator<? super T> comparator, ForkJoinPool pool) {
+    return run(new SetOperation<T>(SetOperation.INTERSECTION, first, second, comparator), pool);
+  }
+
+  /**
+   * @return the nodes of first whose item is not in second
+   */
+  static <T> AvlNode<T> difference(AvlNode<T> first, AvlNode<T> second,
+      Comparator<? super T> comparator, ForkJoinPool pool) {
+    return run(new SetOperation<T>(SetOperation.DIFFERENCE, first, second, comparator), pool);
+  }
+
+  private static <T> AvlNode<T> run(SetOperation<T> operation, ForkJoinPool pool) {
+    AvlNode<T> result = operation.isLarge() ? pool.invoke(operation) : operation.compute();
+    if (result != null) {
+      result.setParent(null);
+    }
+    return result;
+  }
+
+  /**
+   * One step of a set operation: splits second at the root of first (or first at the root of
+   * second for a difference), solves both halves, forking one of them when the subtrees are large,
+   * and joins the results.
+   */
+  private static final class SetOperation<T> extends RecursiveTask<AvlNode<T>> {
+    private static final long serialVersionUID = 1L;
+
+    static final int UNION = 0;
+    static final int INTERSECTION = 1;
+    static final int DIFFERENCE = 2;
+
+    private final int operation;
+    private final AvlNode<T> first;
+    private final AvlNode<T> second;
+    private final Comparator<? super T> comparator;
+
+    SetOperation(int operation, AvlNode<T> first, AvlNode<T> second,
+        Comparator<? super T> comparator) {
+      this.operation = operation;
+      this.first = first;
+      this.second = second;
+      this.comparator = comparator;
+    }
+
+    boolean isLarge() {
+      return size(first) + size(second) > SEQUENTIAL_THRESHOLD;
+    }
+
+    @Override
+    protected AvlNode<T> compute() {
+      if (first == null || second == null) {
+        if (operation == UNION) {
+          return first == null ? second : first;
+        }
+        return operation == INTERSECTION ? null : first;
+      }
+
+      // a difference keeps the nodes of first, so it splits first at the root of second
+      AvlNode<T> pivot = operation == DIFFERENCE ? second : first;
+      AvlNode<T> other = operation == DIFFERENCE ? first : second;
+      AvlNode<T> pivotLeft = pivot.getLeft();
+      AvlNode<T> pivotRight = pivot.getRight();
+      Split<T> split = split(other, pivot.getItem(), comparator);
+
+      SetOperation<T> leftTask = operation == DIFFERENCE
+          ? new SetOperation<T>(operation, split.left, pivotLeft, comparator)
+          : new SetOperation<T>(operation, pivotLeft, split.left, comparator);
+      SetOperation<T> rightTask = operation == DIFFERENCE
+          ? new SetOperation<T>(operation, split.right, pivotRight, comparator)
+          : new SetOperation<T>(operation, pivotRight, split.right, comparator);
+
+      AvlNode<T> left;
+      AvlNode<T> right;
+      if (isLarge() && ForkJoinTask.inForkJoinPool()) {
+        rightTask.fork();
+        left = leftTask.compute();
+        right = rightTask.join();
+      } else {
+        left = leftTask.compute();
+        right = rightTask.compute();
+      }
+
+      switch (operation) {
+        case UNION:
+          return AvlJoin.join(left, pivot, right);
+        case INTERSECTION:
+          return split.found != null
+              ? AvlJoin.join(left, pivot, right) : AvlJoin.join(left, right);
+        default:
+          return AvlJoin.join(left, right);
+      }
+    }
+  }
+}
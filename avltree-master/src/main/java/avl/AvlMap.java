@@ -0,0 +1,981 @@
+//  AvlMap.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * NavigableMap stored in an AvlTree whose items are the entries of the map, ordered by key.
+ *
+ * <p>Updates descend the tree once: put, putIfAbsent, computeIfAbsent, computeIfPresent, compute,
+ * merge, replace and remove find the node of the key, or the node below which it goes, and then
+ * change the value of the entry in place, attach a new node there, or unlink the node found,
+ * instead of searching again through AvlTree.insert or AvlTree.delete.
+ *
+ * <p>Sub-map and descending views are AvlMap instances sharing the tree of the map they come
+ * from, restricted to a range of keys and possibly traversing it backwards. As in TreeMap, the
+ * entries returned by navigation methods are snapshots, while the entries of entrySet() write
+ * through. A null comparator means the natural order of the keys. Not thread-safe.
+ */
+public class AvlMap<K, V> extends AbstractMap<K, V> implements NavigableMap<K, V> {
+
+  private final AvlTree<SimpleEntry<K, V>> tree;
+  /** The comparator given to the constructor, null for the natural order */
+  private final Comparator<? super K> comparator;
+  private final Comparator<? super K> keyComparator;
+
+  // bounds of a view, in ascending order; the map itself has none
+  private final boolean fromStart;
+  private final K low;
+  private final boolean lowInclusive;
+  private final boolean toEnd;
+  private final K high;
+  private final boolean highInclusive;
+  private final boolean descending;
+
+  private AvlNode<SimpleEntry<K, V>> closestNode;
+
+  /**
+   * Constructor of a map ordered by the natural order of the keys
+   */
+  public AvlMap() {
+    this(null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param comparator the order of the keys, or null for their natural order
+   */
+  @SuppressWarnings("unchecked")
+  public AvlMap(Comparator<? super K> comparator) {
+    this.comparator = comparator;
+    this.keyComparator = comparator != null
+        ? comparator : (Comparator<? super K>) Comparator.naturalOrder();
+    Comparator<SimpleEntry<K, V>> entryComparator =
+        (entry1, entry2) -> keyComparator.compare(entry1.getKey(), entry2.getKey());
+    this.tree = new AvlTree<SimpleEntry<K, V>>(entryComparator);
+    this.fromStart = true;
+    this.low = null;
+    this.lowInclusive = false;
+    this.toEnd = true;
+    this.high = null;
+    this.highInclusive = false;
+    this.descending = false;
+  }
+
+  private AvlMap(AvlMap<K, V> map, boolean fromStart, K low, boolean lowInclusive, boolean toEnd,
+      K high, boolean highInclusive, boolean descending) {
+    this.tree = map.tree;
+    this.comparator = map.comparator;
+    this.keyComparator = map.keyComparator;
+    this.fromStart = fromStart;
+    this.low = low;
+    this.lowInclusive = lowInclusive;
+    this.toEnd = toEnd;
+    this.high = high;
+    this.highInclusive = highInclusive;
+    this.descending = descending;
+  }
+
+  private boolean isView() {
+    return !fromStart || !toEnd;
+  }
+
+  @SuppressWarnings("unchecked")
+  private int compare(Object key1, K key2) {
+    return keyComparator.compare((K) key1, key2);
+  }
+
+  private static <K> K keyOf(AvlNode<? extends Entry<K, ?>> node) {
+    return node.getItem().getKey();
+  }
+
+  private static <K, V> Entry<K, V> snapshot(AvlNode<SimpleEntry<K, V>> node) {
+    return node == null ? null : new SimpleImmutableEntry<K, V>(node.getItem());
+  }
+
+  private static <K> K keyOrNull(AvlNode<? extends Entry<K, ?>> node) {
+    return node == null ? null : keyOf(node);
+  }
+
+  private static <K> K keyOrThrow(AvlNode<? extends Entry<K, ?>> node) {
+    if (node == null) {
+      throw new NoSuchElementException();
+    }
+    return keyOf(node);
+  }
+
+  // Bounds of views
+
+  private boolean tooLow(Object key) {
+    if (fromStart) {
+      return false;
+    }
+    int comparison = compare(key, low);
+    return comparison < 0 || comparison == 0 && !lowInclusive;
+  }
+
+  private boolean tooHigh(Object key) {
+    if (toEnd) {
+      return false;
+    }
+    int comparison = compare(key, high);
+    return comparison > 0 || comparison == 0 && !highInclusive;
+  }
+
+  private boolean inRange(Object key) {
+    return !tooLow(key) && !tooHigh(key);
+  }
+
+  /**
+   * Range check of a bound of a new view: an exclusive bound may equal an exclusive bound of this
+   * view
+   */
+  private boolean inRange(K key, boolean inclusive) {
+    if (inclusive) {
+      return inRange(key);
+    }
+    return (fromStart || compare(key, low) >= 0) && (toEnd || compare(key, high) <= 0);
+  }
+
+  private void checkInRange(Object key) {
+    if (!inRange(key)) {
+      throw new IllegalArgumentException("Key out of range");
+    }
+  }
+
+  // Descents on the whole tree, in ascending order
+
+  /**
+   * Searches for a key, leaving in closestNode the node where the search ended
+   *
+   * @return 0 if closestNode holds the key, otherwise -1 or +1 as the side of closestNode where
+   * the key goes
+   */
+  private int searchClosestNode(Object key) {
+    AvlNode<SimpleEntry<K, V>> currentNode = tree.getTop();
+    closestNode = null;
+    while (currentNode != null) {
+      closestNode = currentNode;
+      int comparison = compare(key, keyOf(currentNode));
+      if (comparison < 0) {
+        currentNode = currentNode.getLeft();
+        if (currentNode == null) {
+          return -1;
+        }
+      } else if (comparison > 0) {
+        currentNode = currentNode.getRight();
+        if (currentNode == null) {
+          return 1;
+        }
+      } else {
+        return 0;
+      }
+    }
+    return 1;
+  }
+
+  private AvlNode<SimpleEntry<K, V>> getNode(Object key) {
+    if (!inRange(key)) {
+      return null;
+    }
+    AvlNode<SimpleEntry<K, V>> node = searchClosestNode(key) == 0 ? closestNode : null;
+    closestNode = null;
+    return node;
+  }
+
+  /**
+   * @return the node of the smallest key greater than key (or equal to it, if inclusive)
+   */
+  private AvlNode<SimpleEntry<K, V>> ceilingNodeOf(K key, boolean inclusive) {
+    AvlNode<SimpleEntry<K, V>> result = null;
+    AvlNode<SimpleEntry<K, V>> currentNode = tree.getTop();
+    while (currentNode != null) {
+      int comparison = compare(key, keyOf(currentNode));
+      if (comparison < 0 || comparison == 0 && inclusive) {
+        result = currentNode;
+        if (comparison == 0) {
+          return result;
+        }
+        currentNode = currentNode.getLeft();
+      } else {
+        currentNode = currentNode.getRight();
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the node of the greatest key smaller than key (or equal to it, if inclusive)
+   */
+  private AvlNode<SimpleEntry<K, V>> floorNodeOf(K key, boolean inclusive) {
+    AvlNode<SimpleEntry<K, V>> result = null;
+    AvlNode<SimpleEntry<K, V>> currentNode = tree.getTop();
+    while (currentNode != null) {
+      int comparison = compare(key, keyOf(currentNode));
+      if (comparison > 0 || comparison == 0 && inclusive) {
+        result = currentNode;
+        if (comparison == 0) {
+          return result;
+        }
+        currentNode = currentNode.getRight();
+      } else {
+        currentNode = currentNode.getLeft();
+      }
+    }
+    return result;
+  }
+
+  private static <T> AvlNode<T> predecessor(AvlNode<T> node) {
+    if (node.hasLeft()) {
+      AvlNode<T> result = node.getLeft();
+      while (result.hasRight()) {
+        result = result.getRight();
+      }
+      return result;
+    }
+    AvlNode<T> child = node;
+    AvlNode<T> parent = node.getParent();
+    while (parent != null && parent.getLeft() == child) {
+      child = parent;
+      parent = parent.getParent();
+    }
+    return parent;
+  }
+
+  // Descents within the bounds of the view, in ascending order
+
+  private AvlNode<SimpleEntry<K, V>> absoluteLowest() {
+    AvlNode<SimpleEntry<K, V>> node;
+    if (fromStart) {
+      node = tree.getTop();
+      while (node != null && node.hasLeft()) {
+        node = node.getLeft();
+      }
+    } else {
+      node = ceilingNodeOf(low, lowInclusive);
+    }
+    return node == null || tooHigh(keyOf(node)) ? null : node;
+  }
+
+  private AvlNode<SimpleEntry<K, V>> absoluteHighest() {
+    AvlNode<SimpleEntry<K, V>> node;
+    if (toEnd) {
+      node = tree.getTop();
+      while (node != null && node.hasRight()) {
+        node = node.getRight();
+      }
+    } else {
+      node = floorNodeOf(high, highInclusive);
+    }
+    return node == null || tooLow(keyOf(node)) ? null : node;
+  }
+
+  private AvlNode<SimpleEntry<K, V>> absoluteCeiling(K key, boolean inclusive) {
+    if (tooLow(key)) {
+      return absoluteLowest();
+    }
+    AvlNode<SimpleEntry<K, V>> node = ceilingNodeOf(key, inclusive);
+    return node == null || tooHigh(keyOf(node)) ? null : node;
+  }
+
+  private AvlNode<SimpleEntry<K, V>> absoluteFloor(K key, boolean inclusive) {
+    if (tooHigh(key)) {
+      return absoluteHighest();
+    }
+    AvlNode<SimpleEntry<K, V>> node = floorNodeOf(key, inclusive);
+    return node == null || tooLow(keyOf(node)) ? null : node;
+  }
+
+  // Navigation in the order of the view
+
+  private AvlNode<SimpleEntry<K, V>> lowestNode() {
+    return descending ? absoluteHighest() : absoluteLowest();
+  }
+
+  private AvlNode<SimpleEntry<K, V>> highestNode() {
+    return descending ? absoluteLowest() : absoluteHighest();
+  }
+
+  private AvlNode<SimpleEntry<K, V>> ceilingNode(K key) {
+    return descending ? absoluteFloor(key, true) : absoluteCeiling(key, true);
+  }
+
+  private AvlNode<SimpleEntry<K, V>> higherNode(K key) {
+    return descending ? absoluteFloor(key, false) : absoluteCeiling(key, false);
+  }
+
+  private AvlNode<SimpleEntry<K, V>> floorNode(K key) {
+    return descending ? absoluteCeiling(key, true) : absoluteFloor(key, true);
+  }
+
+  private AvlNode<SimpleEntry<K, V>> lowerNode(K key) {
+    return descending ? absoluteCeiling(key, false) : absoluteFloor(key, false);
+  }
+
+  // Queries
+
+  /**
+   * @return the number of keys smaller than key, or not greater than it if inclusive
+   */
+  private int keysBelow(K key, boolean inclusive) {
+    int result = tree.rank(new SimpleEntry<K, V>(key, null));
+    return inclusive && searchClosestNode(key) == 0 && closestNode != null ? result + 1 : result;
+  }
+
+  /**
+   * The size of a view comes from the ranks of its bounds, in O(log n)
+   */
+  @Override
+  public int size() {
+    if (!isView()) {
+      return tree.size();
+    }
+    int end = toEnd ? tree.size() : keysBelow(high, highInclusive);
+    int start = fromStart ? 0 : keysBelow(low, !lowInclusive);
+    closestNode = null;
+    return Math.max(0, end - start);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return absoluteLowest() == null;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return getNode(key) != null;
+  }
+
+  @Override
+  public V get(Object key) {
+    AvlNode<SimpleEntry<K, V>> node = getNode(key);
+    return node == null ? null : node.getItem().getValue();
+  }
+
+  // Updates, each with a single descent
+
+  /**
+   * Attaches a new entry below closestNode, as left by searchClosestNode
+   */
+  private void insertAtClosestNode(int comparison, K key, V value) {
+    tree.insertChild(closestNode, comparison, new SimpleEntry<K, V>(key, value));
+    closestNode = null;
+  }
+
+  @Override
+  public V put(K key, V value) {
+    checkInRange(key);
+    int comparison = searchClosestNode(key);
+    if (comparison == 0 && closestNode != null) {
+      V oldValue = closestNode.getItem().setValue(value);
+      closestNode = null;
+      return oldValue;
+    }
+    insertAtClosestNode(comparison, key, value);
+    return null;
+  }
+
+  @Override
+  public V putIfAbsent(K key, V value) {
+    checkInRange(key);
+    int comparison = searchClosestNode(key);
+    if (comparison == 0 && closestNode != null) {
+      SimpleEntry<K, V> entry = closestNode.getItem();
+      closestNode = null;
+      return entry.getValue() != null ? entry.getValue() : entry.setValue(value);
+    }
+    insertAtClosestNode(comparison, key, value);
+    return null;
+  }
+
+  @Override
+  public V remove(Object key) {
+    AvlNode<SimpleEntry<K, V>> node = getNode(key);
+    if (node == null) {
+      return null;
+    }
+    V oldValue = node.getItem().getValue();
+    tree.removeNode(node);
+    return oldValue;
+  }
+
+  @Override
+  public V replace(K key, V value) {
+    AvlNode<SimpleEntry<K, V>> node = getNode(key);
+    return node == null ? null : node.getItem().setValue(value);
+  }
+
+  @Override
+  public boolean replace(K key, V oldValue, V newValue) {
+    AvlNode<SimpleEntry<K, V>> node = getNode(key);
+    if (node == null || !Objects.equals(node.getItem().getValue(), oldValue)) {
+      return false;
+    }
+    node.getItem().setValue(newValue);
+    return true;
+  }
+
+  private void checkNotModified(int expectedModCount) {
+    if (tree.getModCount() != expectedModCount) {
+      throw new ConcurrentModificationException();
+    }
+  }
+
+  @Override
+  public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+    Objects.requireNonNull(mappingFunction);
+    checkInRange(key);
+    int comparison = searchClosestNode(key);
+    AvlNode<SimpleEntry<K, V>> node = closestNode;
+    if (comparison == 0 && node != null && node.getItem().getValue() != null) {
+      closestNode = null;
+      return node.getItem().getValue();
+    }
+
+    int expectedModCount = tree.getModCount();
+    V newValue = mappingFunction.apply(key);
+    checkNotModified(expectedModCount);
+    if (newValue != null) {
+      if (comparison == 0 && node != null) {
+        node.getItem().setValue(newValue);
+      } else {
+        closestNode = node;
+        insertAtClosestNode(comparison, key, newValue);
+      }
+    }
+    closestNode = null;
+    return newValue;
+  }
+
+  @Override
+  public V computeIfPresent(K key,
+      BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+    Objects.requireNonNull(remappingFunction);
+    AvlNode<SimpleEntry<K, V>> node = getNode(key);
+    if (node == null || node.getItem().getValue() == null) {
+      return null;
+    }
+    int expectedModCount = tree.getModCount();
+    return remap(node, remappingFunction.apply(key, node.getItem().getValue()), expectedModCount);
+  }
+
+  @Override
+  public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+    Objects.requireNonNull(remappingFunction);
+    checkInRange(key);
+    int comparison = searchClosestNode(key);
+    AvlNode<SimpleEntry<K, V>> node = closestNode;
+    closestNode = null;
+    int expectedModCount = tree.getModCount();
+    if (comparison == 0 && node != null) {
+      V newValue = remappingFunction.apply(key, node.getItem().getValue());
+      return remap(node, newValue, expectedModCount);
+    }
+
+    V newValue = remappingFunction.apply(key, null);
+    checkNotModified(expectedModCount);
+    if (newValue != null) {
+      closestNode = node;
+      insertAtClosestNode(comparison, key, newValue);
+    }
+    return newValue;
+  }
+
+  @Override
+  public V merge(K key, V value,
+      BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+    Objects.requireNonNull(remappingFunction);
+    Objects.requireNonNull(value);
+    checkInRange(key);
+    int comparison = searchClosestNode(key);
+    AvlNode<SimpleEntry<K, V>> node = closestNode;
+    closestNode = null;
+    if (comparison == 0 && node != null) {
+      V oldValue = node.getItem().getValue();
+      if (oldValue == null) {
+        node.getItem().setValue(value);
+        return value;
+      }
+      int expectedModCount = tree.getModCount();
+      return remap(node, remappingFunction.apply(oldValue, value), expectedModCount);
+    }
+
+    closestNode = node;
+    insertAtClosestNode(comparison, key, value);
+    return value;
+  }
+
+  /**
+   * Stores the result of a remapping function in the entry of a node, or removes the node if the
+   * result is null
+   */
+  private V remap(AvlNode<SimpleEntry<K, V>> node, V newValue, int expectedModCount) {
+    checkNotModified(expectedModCount);
+    if (newValue == null) {
+      tree.removeNode(node);
+    } else {
+      node.getItem().setValue(newValue);
+    }
+    return newValue;
+  }
+
+  @Override
+  public void clear() {
+    if (isView()) {
+      for (Iterator<Entry<K, V>> iterator = entrySet().iterator(); iterator.hasNext(); ) {
+        iterator.next();
+        iterator.remove();
+      }
+    } else {
+      tree.takeTop();
+    }
+  }
+
+  // Navigation
+
+  @Override
+  public Comparator<? super K> comparator() {
+    return descending ? Collections.reverseOrder(comparator) : comparator;
+  }
+
+  @Override
+  public K firstKey() {
+    return keyOrThrow(lowestNode());
+  }
+
+  @Override
+  public K lastKey() {
+    return keyOrThrow(highestNode());
+  }
+
+  @Override
+  public Entry<K, V> firstEntry() {
+    return snapshot(lowestNode());
+  }
+
+  @Override
+  public Entry<K, V> lastEntry() {
+    return snapshot(highestNode());
+  }
+
+  @Override
+  public Entry<K, V> pollFirstEntry() {
+    return poll(lowestNode());
+  }
+
+  @Override
+  public Entry<K, V> pollLastEntry() {
+    return poll(highestNode());
+  }
+
+  private Entry<K, V> poll(AvlNode<SimpleEntry<K, V>> node) {
+    Entry<K, V> result = snapshot(node);
+    if (node != null) {
+      tree.removeNode(node);
+    }
+    return result;
+  }
+
+  @Override
+  public Entry<K, V> lowerEntry(K key) {
+    return snapshot(lowerNode(key));
+  }
+
+  @Override
+  public K lowerKey(K key) {
+    return keyOrNull(lowerNode(key));
+  }
+
+  @Override
+  public Entry<K, V> floorEntry(K key) {
+    return snapshot(floorNode(key));
+  }
+
+  @Override
+  public K floorKey(K key) {
+    return keyOrNull(floorNode(key));
+  }
+
+  @Override
+  public Entry<K, V> ceilingEntry(K key) {
+    return snapshot(ceilingNode(key));
+  }
+
+  @Override
+  public K ceilingKey(K key) {
+    return keyOrNull(ceilingNode(key));
+  }
+
+  @Override
+  public Entry<K, V> higherEntry(K key) {
+    return snapshot(higherNode(key));
+  }
+
+  @Override
+  public K higherKey(K key) {
+    return keyOrNull(higherNode(key));
+  }
+
+  // Views
+
+  /**
+   * Creates a view sharing the tree; a side whose new bound is absent keeps the bound of this view
+   */
+  private AvlMap<K, V> view(boolean newFromStart, K newLow, boolean newLowInclusive,
+      boolean newToEnd, K newHigh, boolean newHighInclusive, boolean newDescending) {
+    if (!newFromStart && !inRange(newLow, newLowInclusive)) {
+      throw new IllegalArgumentException("fromKey out of range");
+    }
+    if (!newToEnd && !inRange(newHigh, newHighInclusive)) {
+      throw new IllegalArgumentException("toKey out of range");
+    }
+    if (newFromStart) {
+      newFromStart = fromStart;
+      newLow = low;
+      newLowInclusive = lowInclusive;
+    }
+    if (newToEnd) {
+      newToEnd = toEnd;
+      newHigh = high;
+      newHighInclusive = highInclusive;
+    }
+    return new AvlMap<K, V>(this, newFromStart, newLow, newLowInclusive, newToEnd, newHigh,
+        newHighInclusive, newDescending);
+  }
+
+  @Override
+  public NavigableMap<K, V> descendingMap() {
+    return view(true, null, false, true, null, false, !descending);
+  }
+
+  @Override
+  public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey,
+      boolean toInclusive) {
+    int comparison = keyComparator.compare(fromKey, toKey);
+    if (descending ? comparison < 0 : comparison > 0) {
+      throw new IllegalArgumentException("fromKey > toKey");
+    }
+    return descending
+        ? view(false, toKey, toInclusive, false, fromKey, fromInclusive, true)
+        : view(false, fromKey, fromInclusive, false, toKey, toInclusive, false);
+  }
+
+  @Override
+  public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+    return descending
+        ? view(false, toKey, inclusive, true, null, false, true)
+        : view(true, null, false, false, toKey, inclusive, false);
+  }
+
+  @Override
+  public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+    return descending
+        ? view(true, null, false, false, fromKey, inclusive, true)
+        : view(false, fromKey, inclusive, true, null, false, false);
+  }
+
+  @Override
+  public SortedMap<K, V> subMap(K fromKey, K toKey) {
+    return subMap(fromKey, true, toKey, false);
+  }
+
+  @Override
+  public SortedMap<K, V> headMap(K toKey) {
+    return headMap(toKey, false);
+  }
+
+  @Override
+  public SortedMap<K, V> tailMap(K fromKey) {
+    return tailMap(fromKey, true);
+  }
+
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    return new EntrySet();
+  }
+
+  @Override
+  public Set<K> keySet() {
+    return navigableKeySet();
+  }
+
+  @Override
+  public NavigableSet<K> navigableKeySet() {
+    return new KeySet<K>(this);
+  }
+
+  @Override
+  public NavigableSet<K> descendingKeySet() {
+    return descendingMap().navigableKeySet();
+  }
+
+  /**
+   * Iterates over the nodes of the view in its order. Removing a node with a child moves into it
+   * the entry of a neighbour, so when that neighbour is the next one the iteration goes on from
+   * the same node.
+   */
+  private abstract class NodeIterator<E> implements Iterator<E> {
+    private AvlNode<SimpleEntry<K, V>> next;
+    private AvlNode<SimpleEntry<K, V>> lastReturned;
+    private int expectedModCount;
+
+    NodeIterator() {
+      next = lowestNode();
+      lastReturned = null;
+      expectedModCount = tree.getModCount();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    AvlNode<SimpleEntry<K, V>> nextNode() {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      checkNotModified(expectedModCount);
+      lastReturned = next;
+      next = advance(next);
+      return lastReturned;
+    }
+
+    private AvlNode<SimpleEntry<K, V>> advance(AvlNode<SimpleEntry<K, V>> node) {
+      AvlNode<SimpleEntry<K, V>> result;
+      if (descending) {
+        result = predecessor(node);
+        return result == null || tooLow(keyOf(result)) ? null : result;
+      }
+      result = tree.findSuccessor(node);
+      return result == null || tooHigh(keyOf(result)) ? null : result;
+    }
+
+    @Override
+    public void remove() {
+      if (lastReturned == null) {
+        throw new IllegalStateException();
+      }
+      checkNotModified(expectedModCount);
+      boolean movesNextItem = next != null && (descending
+          ? lastReturned.hasOnlyALeftChild() : lastReturned.hasRight());
+      tree.removeNode(lastReturned);
+      if (movesNextItem) {
+        next = lastReturned;
+      }
+      lastReturned = null;
+      expectedModCount = tree.getModCount();
+    }
+  }
+
+  private class EntrySet extends AbstractSet<Entry<K, V>> {
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+      return new NodeIterator<Entry<K, V>>() {
+        @Override
+        public Entry<K, V> next() {
+          return nextNode().getItem();
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return AvlMap.this.size();
+    }
+
+    @Override
+    public boolean contains(Object object) {
+      if (!(object instanceof Map.Entry)) {
+        return false;
+      }
+      Entry<?, ?> entry = (Entry<?, ?>) object;
+      AvlNode<SimpleEntry<K, V>> node = getNode(entry.getKey());
+      return node != null && Objects.equals(node.getItem().getValue(), entry.getValue());
+    }
+
+    @Override
+    public boolean remove(Object object) {
+      if (!contains(object)) {
+        return false;
+      }
+      tree.removeNode(getNode(((Entry<?, ?>) object).getKey()));
+      return true;
+    }
+
+    @Override
+    public void clear() {
+      AvlMap.this.clear();
+    }
+  }
+
+  Iterator<K> keyIterator() {
+    return new NodeIterator<K>() {
+      @Override
+      public K next() {
+        return keyOf(nextNode());
+      }
+    };
+  }
+
+  /**
+   * Navigable set of the keys of a map
+   */
+  static final class KeySet<K> extends AbstractSet<K> implements NavigableSet<K> {
+    private final AvlMap<K, ?> map;
+
+    KeySet(AvlMap<K, ?> map) {
+      this.map = map;
+    }
+
+    @Override
+    public Iterator<K> iterator() {
+      return map.keyIterator();
+    }
+
+    @Override
+    public Iterator<K> descendingIterator() {
+      return descendingSet().iterator();
+    }
+
+    @Override
+    public int size() {
+      return map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return map.isEmpty();
+    }
+
+    @Override
+    public boolean contains(Object object) {
+      return map.containsKey(object);
+    }
+
+    @Override
+    public boolean remove(Object object) {
+      boolean present = map.containsKey(object);
+      map.remove(object);
+      return present;
+    }
+
+    @Override
+    public void clear() {
+      map.clear();
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+      return map.comparator();
+    }
+
+    @Override
+    public K first() {
+      return map.firstKey();
+    }
+
+    @Override
+    public K last() {
+      return map.lastKey();
+    }
+
+    @Override
+    public K lower(K key) {
+      return map.lowerKey(key);
+    }
+
+    @Override
+    public K floor(K key) {
+      return map.floorKey(key);
+    }
+
+    @Override
+    public K ceiling(K key) {
+      return map.ceilingKey(key);
+    }
+
+    @Override
+    public K higher(K key) {
+      return map.higherKey(key);
+    }
+
+    @Override
+    public K pollFirst() {
+      Entry<K, ?> entry = map.pollFirstEntry();
+      return entry == null ? null : entry.getKey();
+    }
+
+    @Override
+    public K pollLast() {
+      Entry<K, ?> entry = map.pollLastEntry();
+      return entry == null ? null : entry.getKey();
+    }
+
+    @Override
+    public NavigableSet<K> descendingSet() {
+      return map.descendingMap().navigableKeySet();
+    }
+
+    @Override
+    public NavigableSet<K> subSet(K fromElement, boolean fromInclusive, K toElement,
+        boolean toInclusive) {
+      return map.subMap(fromElement, fromInclusive, toElement, toInclusive).navigableKeySet();
+    }
+
+    @Override
+    public NavigableSet<K> headSet(K toElement, boolean inclusive) {
+      return map.headMap(toElement, inclusive).navigableKeySet();
+    }
+
+    @Override
+    public NavigableSet<K> tailSet(K fromElement, boolean inclusive) {
+      return map.tailMap(fromElement, inclusive).navigableKeySet();
+    }
+
+    @Override
+    public SortedSet<K> subSet(K fromElement, K toElement) {
+      return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<K> headSet(K toElement) {
+      return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<K> tailSet(K fromElement) {
+      return tailSet(fromElement, true);
+    }
+  }
+}
@@ -31,8 +31,7 @@ public class AvlNode<T> {
   private AvlNode<T> parent;
 
   private int height;
-
-  private AvlNode<T> closestNode;
+  private int size;
 
   private T item;
 
@@ -46,7 +45,7 @@ public class AvlNode<T> {
     this.right = null;
     this.parent = null;
     height = 0;
-    closestNode = null;
+    size = 1;
 
     this.item = item;
   }
@@ -103,12 +102,19 @@ public class AvlNode<T> {
     }
   }
 
-  public AvlNode<T> getClosestNode() {
-    return closestNode;
+  /**
+   * @return the number of nodes of the subtree rooted at this node
+   */
+  public int getSize() {
+    return size;
+  }
+
+  public void setSize(int size) {
+    this.size = size;
   }
 
-  public void setClosestNode(AvlNode<T> closestNode) {
-    this.closestNode = closestNode;
+  public void updateSize() {
+    size = 1 + (hasLeft() ? getLeft().getSize() : 0) + (hasRight() ? getRight().getSize() : 0);
   }
 
   public boolean hasParent() {
@@ -0,0 +1,345 @@
+//  AvlSnapshot.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary format for the items of an AvlTree, written from an in-order traversal and read back into
+ * a balanced tree with bulkLoad, in linear time and without insert.
+ *
+ * <p>Layout (all values big-endian):
+ *
+ * <pre>
+ *   offset  size  field
+ *        0     4  magic (0x41564C53, "AVLS")
+ *        4     4  format version (1)
+ *        8     4  key width: KeySerializer.fixedSize(), or -1 if each key has its length before it
+ *       12     8  number of keys
+ *       20        keys in ascending order, each one width bytes long or a length (4) and its bytes
+ *                 CRC32C of everything before it (4)
+ * </pre>
+ *
+ * Keys go through one direct buffer that is reused by every write and read of the same instance,
+ * so the JDK does not copy them again to a temporary direct buffer when the channel is a
+ * FileChannel. A key too large for the buffer uses a heap buffer of its own. The reader fills the
+ * buffer ahead of the keys it decodes, so nothing should follow the snapshot in its channel.
+ * The header is not trusted: when the channel knows its size, the number of keys and every key
+ * length are checked against the bytes left before anything is allocated for them. Otherwise the
+ * memory used for the keys grows with the bytes actually read. Instances are not thread-safe.
+ */
+public class AvlSnapshot<T> implements AutoCloseable {
+
+  public static final int MAGIC = 0x41564C53;
+  public static final int VERSION = 1;
+  public static final int DEFAULT_BUFFER_BYTES = 1 << 18;
+  static final int HEADER_BYTES = 20;
+  static final int VARIABLE_WIDTH = -1;
+
+  private final KeySerializer<T> serializer;
+  private final CRC32C checksum;
+  private ByteBuffer buffer;
+
+  /**
+   * Constructor with a buffer of DEFAULT_BUFFER_BYTES
+   *
+   * @param serializer
+   */
+  public AvlSnapshot(KeySerializer<T> serializer) {
+    this(serializer, DEFAULT_BUFFER_BYTES);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param serializer
+   * @param bufferBytes size of the direct buffer, at least HEADER_BYTES
+   */
+  public AvlSnapshot(KeySerializer<T> serializer, int bufferBytes) {
+    if (bufferBytes < HEADER_BYTES) {
+      throw new IllegalArgumentException("The buffer must hold at least " + HEADER_BYTES + " bytes");
+    }
+    this.serializer = serializer;
+    this.checksum = new CRC32C();
+    this.buffer = ByteBuffer.allocateDirect(bufferBytes);
+  }
+
+  /**
+   * Writes the items of a tree to a channel
+   *
+   * @param tree
+   * @param channel
+   * @return the number of bytes written
+   * @throws IOException if the channel cannot be written
+   */
+  public long write(AvlTree<T> tree, WritableByteChannel channel) throws IOException {
+    checkOpen();
+    int width = serializer.fixedSize();
+    checksum.reset();
+    buffer.clear();
+    buffer.putInt(MAGIC).putInt(VERSION).putInt(width).putLong(tree.size());
+    long written = 0;
+    for (T item : tree) {
+      int length = width == VARIABLE_WIDTH ? serializer.serializedSize(item) : width;
+      int recordBytes = width == VARIABLE_WIDTH ? 4 + length : length;
+      if (buffer.remaining() < recordBytes) {
+        written += drain(channel);
+        if (buffer.remaining() < recordBytes) {
+          written += writeLarge(item, length, recordBytes, channel);
+          continue;
+        }
+      }
+      writeRecord(item, length, recordBytes, buffer);
+    }
+    written += drain(channel);
+    buffer.putInt((int) checksum.getValue()).flip();
+    while (buffer.hasRemaining()) {
+      written += channel.write(buffer);
+    }
+    buffer.clear();
+    return written;
+  }
+
+  private void writeRecord(T item, int length, int recordBytes, ByteBuffer target) {
+    int end = target.position() + recordBytes;
+    if (recordBytes != length) {
+      target.putInt(length);
+    }
+    serializer.write(item, target);
+    if (target.position() != end) {
+      throw new IllegalStateException("The serializer did not write " + length + " bytes");
+    }
+  }
+
+  private long writeLarge(T item, int length, int recordBytes, WritableByteChannel channel)
+      throws IOException {
+    ByteBuffer large = ByteBuffer.allocate(recordBytes);
+    writeRecord(item, length, recordBytes, large);
+    large.flip();
+    checksum.update(large);
+    large.flip();
+    long written = 0;
+    while (large.hasRemaining()) {
+      written += channel.write(large);
+    }
+    return written;
+  }
+
+  /**
+   * Adds the bytes of the buffer to the checksum and writes them
+   */
+  private long drain(WritableByteChannel channel) throws IOException {
+    buffer.flip();
+    checksum.update(buffer);
+    buffer.flip();
+    long written = 0;
+    while (buffer.hasRemaining()) {
+      written += channel.write(buffer);
+    }
+    buffer.clear();
+    return written;
+  }
+
+  /**
+   * Reads a snapshot into a new tree
+   *
+   * @param channel
+   * @param comparator the order the snapshot was written in
+   * @return the tree
+   * @throws IOException if the channel cannot be read or does not hold a valid snapshot
+   */
+  public AvlTree<T> read(ReadableByteChannel channel, Comparator<? super T> comparator)
+      throws IOException {
+    checkOpen();
+    checksum.reset();
+    buffer.clear().limit(0);
+    require(channel, HEADER_BYTES);
+    if (buffer.getInt() != MAGIC) {
+      throw new IOException("Not an AVL tree snapshot");
+    }
+    int version = buffer.getInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported AVL tree snapshot version " + version);
+    }
+    int width = buffer.getInt();
+    long count = buffer.getLong();
+    if (count < 0 || count > Integer.MAX_VALUE) {
+      throw new IOException("Invalid AVL tree snapshot header");
+    }
+    if (width != serializer.fixedSize()) {
+      throw new IOException("The AVL tree snapshot has keys of width " + width
+          + ", but the serializer expects " + serializer.fixedSize());
+    }
+    long available = available(channel);
+    long minimumRecordBytes = width == VARIABLE_WIDTH ? 4 : width;
+    if (available != Long.MAX_VALUE
+        && count * minimumRecordBytes > available - 4) {
+      throw new IOException("The AVL tree snapshot is truncated");
+    }
+
+    // The count is only reported as the exact size once the channel size has confirmed it, so a
+    // corrupted header cannot make bulkLoad allocate room for keys that are not there
+    int characteristics = available == Long.MAX_VALUE ? 0 : Spliterator.SIZED;
+    AvlTree<T> tree = new AvlTree<T>(comparator);
+    try {
+      tree.bulkLoad(new Spliterators.AbstractSpliterator<T>(count, characteristics) {
+        long remaining = count;
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+          if (remaining == 0) {
+            return false;
+          }
+          remaining--;
+          try {
+            action.accept(readItem(channel, width));
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+          return true;
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+
+    require(channel, 4);
+    checksumConsumed();
+    if (buffer.getInt() != (int) checksum.getValue()) {
+      throw new IOException("The AVL tree snapshot is corrupted");
+    }
+    if (tree.size() != count) {
+      throw new IOException("The AVL tree snapshot has repeated keys");
+    }
+    return tree;
+  }
+
+  private T readItem(ReadableByteChannel channel, int width) throws IOException {
+    int length = width;
+    if (width == VARIABLE_WIDTH) {
+      require(channel, 4);
+      length = buffer.getInt();
+      if (length < 0) {
+        throw new IOException("The AVL tree snapshot is corrupted");
+      }
+    }
+    if (length > buffer.capacity()) {
+      return readLarge(channel, length);
+    }
+    require(channel, length);
+    int end = buffer.position() + length;
+    T item = serializer.read(buffer, length);
+    buffer.position(end);
+    return item;
+  }
+
+  /**
+   * Reads a key larger than the buffer into a heap buffer that grows, up to length, with the bytes
+   * actually read
+   */
+  private T readLarge(ReadableByteChannel channel, int length) throws IOException {
+    if (length > available(channel)) {
+      throw new IOException("The AVL tree snapshot is truncated");
+    }
+    checksumConsumed();
+    ByteBuffer large = ByteBuffer.allocate((int) Math.min(length, 2L * buffer.capacity()));
+    large.put(buffer);
+    buffer.clear().limit(0);
+    while (large.position() < length) {
+      if (!large.hasRemaining()) {
+        large = ByteBuffer.allocate((int) Math.min(length, 2L * large.capacity()))
+            .put(large.flip());
+      }
+      if (channel.read(large) < 0) {
+        throw new IOException("The AVL tree snapshot is truncated");
+      }
+    }
+    large.flip();
+    checksum.update(large);
+    large.flip();
+    return serializer.read(large, length);
+  }
+
+  /**
+   * @return the number of unread bytes, buffered or not, or Long.MAX_VALUE if the channel does not
+   *     know its size
+   */
+  private long available(ReadableByteChannel channel) throws IOException {
+    if (channel instanceof SeekableByteChannel) {
+      SeekableByteChannel seekable = (SeekableByteChannel) channel;
+      return seekable.size() - seekable.position() + buffer.remaining();
+    }
+    return Long.MAX_VALUE;
+  }
+
+  /**
+   * Makes the buffer hold at least the given number of unread bytes. The bytes before its
+   * position have been read but are not in the checksum yet.
+   */
+  private void require(ReadableByteChannel channel, int bytes) throws IOException {
+    if (buffer.remaining() >= bytes) {
+      return;
+    }
+    checksumConsumed();
+    buffer.compact();
+    while (buffer.position() < bytes) {
+      if (channel.read(buffer) < 0) {
+        throw new IOException("The AVL tree snapshot is truncated");
+      }
+    }
+    buffer.flip();
+  }
+
+  /**
+   * Adds the bytes read from the buffer to the checksum and discards them
+   */
+  private void checksumConsumed() {
+    int unread = buffer.position();
+    int limit = buffer.limit();
+    buffer.flip();
+    checksum.update(buffer);
+    buffer.limit(limit).position(unread);
+    buffer.compact().flip();
+  }
+
+  /**
+   * Releases the direct buffer
+   */
+  @Override
+  public void close() {
+    if (buffer != null) {
+      BufferCleaner.clean(buffer);
+      buffer = null;
+    }
+  }
+
+  private void checkOpen() {
+    if (buffer == null) {
+      throw new IllegalStateException("The snapshot has been closed");
+    }
+  }
+}
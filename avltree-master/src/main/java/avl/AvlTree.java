@@ -22,25 +22,59 @@
 
 package avl;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Created with IntelliJ IDEA. User: Antonio J. Nebro Date: 08/07/13 Time: 15:51 Class implementing
  * Avl trees.
  */
-public class AvlTree<T> {
+public class AvlTree<T> implements Iterable<T> {
 
   private AvlNode<T> top;
-  Comparator comparator;
+  final Comparator<? super T> comparator;
+
+  /** True when the items are compared with compareTo instead of through the comparator */
+  private final boolean naturalOrder;
+
+  /** Number of structural modifications, used to make iterators fail fast */
+  private int modCount;
+
+  private AvlNode<T> closestNode;
 
   /**
-   * Constructor
+   * Constructor of a tree ordered by the natural order of the items
+   */
+  public AvlTree() {
+    this(null);
+  }
+
+  /**
+   * Constructor. Trees in natural order call compareTo directly instead of going through a
+   * Comparator.
    *
-   * @param comparator
+   * @param comparator the order of the items, or null for their natural order
    */
+  @SuppressWarnings("unchecked")
   public AvlTree(Comparator comparator) {
     top = null;
-    this.comparator = comparator;
+    this.naturalOrder = comparator == null || comparator == Comparator.naturalOrder();
+    this.comparator = naturalOrder
+        ? (Comparator<? super T>) Comparator.naturalOrder() : comparator;
   }
 
   public int getHeight(){
@@ -48,48 +82,406 @@ public class AvlTree<T> {
     return top.getHeight();
   }
 
+  /**
+   * @return the number of items in the tree
+   */
+  public int size() {
+    return top == null ? 0 : top.getSize();
+  }
+
+  /**
+   * @param item
+   * @return the number of items of the tree that are smaller than item
+   */
+  public int rank(T item) {
+    int result = 0;
+    AvlNode<T> currentNode = top;
+    while (currentNode != null) {
+      int comparison = compareItem(item, currentNode);
+      if (comparison < 0) {
+        currentNode = currentNode.getLeft();
+      } else if (comparison > 0) {
+        result += size(currentNode.getLeft()) + 1;
+        currentNode = currentNode.getRight();
+      } else {
+        result += size(currentNode.getLeft());
+        currentNode = null;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @param index position of the item in ascending order, starting at 0
+   * @return the index-th smallest item of the tree
+   * @throws IndexOutOfBoundsException if index is not in [0, size())
+   */
+  public T select(int index) {
+    return selectNode(index).getItem();
+  }
+
+  AvlNode<T> selectNode(int index) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    }
+    AvlNode<T> currentNode = top;
+    int leftSize = size(currentNode.getLeft());
+    while (index != leftSize) {
+      if (index < leftSize) {
+        currentNode = currentNode.getLeft();
+      } else {
+        index -= leftSize + 1;
+        currentNode = currentNode.getRight();
+      }
+      leftSize = size(currentNode.getLeft());
+    }
+    return currentNode;
+  }
+
   public void insert(T item) {
-    AvlNode<T> node = new AvlNode<T>(item);
-    insertAvlNode(node);
+    insertItem(top, item);
   }
 
-  private void insertAvlNode(AvlNode<T> node) {
+  /**
+   * Inserts an item, searching for its position from the node start
+   *
+   * @param start a node of the tree whose subtree must contain the position of the item
+   * @param item
+   * @return the node holding the item: the new one, or the one that was already in the tree
+   */
+  private AvlNode<T> insertItem(AvlNode<T> start, T item) {
+    AvlNode<T> result;
     if (avlIsEmpty()) {
-      insertTop(node);
+      result = new AvlNode<T>(item);
+      insertTop(result);
+      modCount++;
     } else {
-      int result = searchClosestNode(node);
+      int comparison = searchClosestNode(start, item);
 
-      switch (result) {
+      switch (comparison) {
         case -1:
-          insertNodeLeft(node);
+          result = new AvlNode<T>(item);
+          insertNodeLeft(result);
+          modCount++;
           break;
         case +1:
-          insertNodeRight(node);
+          result = new AvlNode<T>(item);
+          insertNodeRight(result);
+          modCount++;
           break;
         default:
+          result = closestNode;
           break;
       }
+      closestNode = null;
+    }
+    return result;
+  }
+
+  /**
+   * Inserts an item below a node found by a descent made outside the tree, as AvlMap does, so
+   * that the position is not searched for again
+   *
+   * @param parent the node below which the item goes, or null if the tree is empty
+   * @param direction negative to make the item the left child of parent, positive for the right
+   * @param item
+   * @return the new node
+   */
+  AvlNode<T> insertChild(AvlNode<T> parent, int direction, T item) {
+    AvlNode<T> result = new AvlNode<T>(item);
+    if (parent == null) {
+      insertTop(result);
+    } else {
+      closestNode = parent;
+      if (direction < 0) {
+        insertNodeLeft(result);
+      } else {
+        insertNodeRight(result);
+      }
+      closestNode = null;
+    }
+    modCount++;
+    return result;
+  }
+
+  /**
+   * Removes a node found by a descent made outside the tree. A node with children is not unlinked
+   * itself: it takes the item of its only child, or of its successor, whose node is unlinked.
+   *
+   * @param node
+   */
+  void removeNode(AvlNode<T> node) {
+    deleteFoundNode(node);
+  }
+
+  int getModCount() {
+    return modCount;
+  }
+
+  /**
+   * Searches for an item starting from a finger, a node returned by an earlier finger operation,
+   * climbing only until reaching a subtree whose range of items contains it. Nodes only link to
+   * their parents, not to their neighbours on the same level, so a finger and an item on both
+   * sides of a high ancestor still climb to it: a search takes O(log n) steps in the worst case,
+   * even for neighbouring items. Visiting the items in order, each from the node of the previous
+   * one, takes amortized O(1) steps per item, as an in-order walk does.
+   *
+   * @param finger a node of this tree, or null to start from the top. A node that has been
+   * removed from the tree is ignored.
+   * @param item
+   * @return the node holding the item, or null if it is not in the tree
+   */
+  public AvlNode<T> searchFrom(AvlNode<T> finger, T item) {
+    return searchNode(searchStartFrom(finger, item), item);
+  }
+
+  /**
+   * Inserts an item starting the search for its position from a finger, as searchFrom does.
+   * Feeding the result back as the next finger makes near-sorted insertions cheap.
+   *
+   * @param finger a node of this tree, or null to start from the top
+   * @param item
+   * @return the node holding the item: the new one, or the one that was already in the tree
+   */
+  public AvlNode<T> insertFrom(AvlNode<T> finger, T item) {
+    return insertItem(searchStartFrom(finger, item), item);
+  }
+
+  /**
+   * Deletes an item starting the search for it from a finger, as searchFrom does
+   *
+   * @param finger a node of this tree, or null to start from the top
+   * @param item
+   * @return the finger to use next: a node that is still in the tree next to the position of the
+   * removed item, the given finger if the item was not in the tree, or null if the tree is empty
+   */
+  public AvlNode<T> deleteFrom(AvlNode<T> finger, T item) {
+    AvlNode<T> nodeFound = searchFrom(finger, item);
+    return nodeFound == null ? finger : deleteFoundNode(nodeFound);
+  }
+
+  /**
+   * Inserts all the items of a batch. The batch is sorted first, and each search starts from the
+   * node of the previous item, climbing only as far as needed instead of descending from the top.
+   * Ancestors are not revisited by rebalance once their heights stop changing.
+   *
+   * @param items
+   */
+  public void insertAll(Collection<? extends T> items) {
+    AvlNode<T> finger = null;
+    for (T item : sortedBatch(items)) {
+      finger = insertFrom(finger, item);
+    }
+  }
+
+  /**
+   * Deletes all the items of a batch, sorting it first and starting each search from where the
+   * previous deletion took place, as insertAll does
+   *
+   * @param items
+   */
+  public void deleteAll(Collection<? extends T> items) {
+    AvlNode<T> finger = null;
+    for (T item : sortedBatch(items)) {
+      finger = deleteFrom(finger, item);
+    }
+  }
+
+  /**
+   * Adds the items of another tree ordered by the same comparator, in O(m log(n / m + 1)) work
+   * for trees of m <= n items, splitting and joining subtrees in parallel in the common
+   * fork/join pool. The nodes of other are moved into this tree, so other is left empty; of two
+   * equal items, the one of this tree is kept. The union of a tree with itself leaves it as it is.
+   *
+   * @param other
+   */
+  public void union(AvlTree<T> other) {
+    union(other, ForkJoinPool.commonPool());
+  }
+
+  public void union(AvlTree<T> other, ForkJoinPool pool) {
+    if (other == this) {
+      return;
+    }
+    replaceTop(AvlJoin.union(top, other.takeTop(), comparator, pool));
+  }
+
+  /**
+   * Keeps only the items that are also in another tree ordered by the same comparator, working
+   * in parallel like union. other is left empty.
+   *
+   * @param other
+   */
+  public void intersection(AvlTree<T> other) {
+    intersection(other, ForkJoinPool.commonPool());
+  }
+
+  public void intersection(AvlTree<T> other, ForkJoinPool pool) {
+    if (other == this) {
+      return;
+    }
+    replaceTop(AvlJoin.intersection(top, other.takeTop(), comparator, pool));
+  }
+
+  /**
+   * Removes the items that are in another tree ordered by the same comparator, working in
+   * parallel like union. other is left empty.
+   *
+   * @param other
+   */
+  public void difference(AvlTree<T> other) {
+    difference(other, ForkJoinPool.commonPool());
+  }
+
+  public void difference(AvlTree<T> other, ForkJoinPool pool) {
+    if (other == this) {
+      replaceTop(null);
+      return;
+    }
+    replaceTop(AvlJoin.difference(top, other.takeTop(), comparator, pool));
+  }
+
+  /**
+   * Cuts the tree at an item in O(log n): the items smaller than item stay in this tree, and the
+   * others are moved, without copying any node, into the tree returned
+   *
+   * @param item
+   * @return a tree, with the same comparator, holding the items greater than or equal to item
+   */
+  public AvlTree<T> split(T item) {
+    AvlJoin.Split<T> split = AvlJoin.split(takeTop(), item, comparator);
+    replaceTop(split.left);
+
+    AvlTree<T> result = new AvlTree<T>(comparator);
+    AvlNode<T> right = split.found == null
+        ? split.right : AvlJoin.join(null, split.found, split.right);
+    result.replaceTop(right);
+    return result;
+  }
+
+  /**
+   * Joins two trees and an item lying between them into a new tree in O(log n), moving the nodes
+   * of left and right, which are left empty
+   *
+   * @param left a tree whose items are all smaller than item
+   * @param item
+   * @param right a tree whose items are all greater than item
+   * @return a tree with the comparator of left holding every item
+   * @throws IllegalArgumentException if the items of left and right are not on each side of item
+   */
+  public static <T> AvlTree<T> join(AvlTree<T> left, T item, AvlTree<T> right) {
+    if (!left.avlIsEmpty() && left.compare(left.lastNode().getItem(), item) >= 0
+        || !right.avlIsEmpty() && left.compare(item, right.firstNode().getItem()) >= 0) {
+      throw new IllegalArgumentException("Item does not lie between the two trees");
+    }
+
+    AvlTree<T> result = new AvlTree<T>(left.comparator);
+    result.replaceTop(AvlJoin.join(left.takeTop(), new AvlNode<T>(item), right.takeTop()));
+    return result;
+  }
+
+  /**
+   * Appends the items of another tree, all greater than the items of this one, in O(log n),
+   * moving its nodes; other is left empty
+   *
+   * @param other
+   * @throws IllegalArgumentException if some item of other is not greater than every item of this
+   * tree
+   */
+  public void concat(AvlTree<T> other) {
+    if (other.avlIsEmpty()) {
+      return;
+    }
+    if (other == this || !avlIsEmpty()
+        && compare(lastNode().getItem(), other.firstNode().getItem()) >= 0) {
+      throw new IllegalArgumentException("Items of the tree overlap");
+    }
+
+    replaceTop(AvlJoin.join(takeTop(), other.takeTop()));
+  }
+
+  /**
+   * Empties the tree
+   *
+   * @return the former top, whose nodes now belong to the caller
+   */
+  AvlNode<T> takeTop() {
+    AvlNode<T> oldTop = top;
+    top = null;
+    modCount++;
+    return oldTop;
+  }
+
+  private void replaceTop(AvlNode<T> newTop) {
+    if (newTop == null) {
+      top = null;
+    } else {
+      setTop(newTop);
+    }
+    modCount++;
+  }
+
+  @SuppressWarnings("unchecked")
+  private T[] sortedBatch(Collection<? extends T> items) {
+    T[] batch = (T[]) items.toArray();
+    sort(batch);
+    return batch;
+  }
+
+  private void sort(T[] items) {
+    if (naturalOrder) {
+      Arrays.sort(items);
+    } else {
+      Arrays.sort(items, comparator);
+    }
+  }
+
+  /**
+   * Finds the node from which the search of an item can start, climbing from a finger node until
+   * reaching a subtree whose range of items contains it
+   *
+   * @param finger a node of the tree, or null to start from the top
+   * @param item
+   * @return the node to start the search from
+   */
+  private AvlNode<T> searchStartFrom(AvlNode<T> finger, T item) {
+    if (finger == null || (!finger.hasParent() && finger != top)) {
+      return top;
+    }
+
+    AvlNode<T> node = finger;
+    int comparison = compareItem(item, finger);
+    if (comparison > 0) {
+      while (node.hasParent()
+          && !(node.getParent().getLeft() == node && compareItem(item, node.getParent()) < 0)) {
+        node = node.getParent();
+      }
+    } else if (comparison < 0) {
+      while (node.hasParent()
+          && !(node.getParent().getRight() == node && compareItem(item, node.getParent()) > 0)) {
+        node = node.getParent();
+      }
     }
+    return node;
   }
 
   public AvlNode<T> search(T item) {
-    AvlNode<T> node = new AvlNode<T>(item);
-    return searchNode(node);
+    return searchNode(top, item);
   }
 
-  private AvlNode<T> searchNode(AvlNode<T> targetNode) {
+  private AvlNode<T> searchNode(AvlNode<T> start, T item) {
     AvlNode<T> currentNode;
     AvlNode<T> result = null;
 
-    currentNode = top;
-    if (top == null) {
+    currentNode = start;
+    if (start == null) {
       result = null;
     } else {
       boolean searchFinished;
       int comparison;
       searchFinished = false;
       while (!searchFinished) {
-        comparison = compareNodes(targetNode, currentNode);
+        comparison = compareItem(item, currentNode);
         if (comparison < 0) {
           if (currentNode.getLeft() != null) {
             currentNode = currentNode.getLeft();
@@ -114,34 +506,49 @@ public class AvlTree<T> {
   }
 
   public void delete(T item) {
-    deleteNode(new AvlNode<T>(item));
+    deleteNode(item);
   }
 
-  private void deleteNode(AvlNode<T> node) {
+  private void deleteNode(T item) {
     AvlNode<T> nodeFound;
 
-    nodeFound = searchNode(node);
+    nodeFound = searchNode(top, item);
     if (nodeFound != null) {
-      if (nodeFound.isLeaf()) {
-        deleteLeafNode(nodeFound);
-      } else if (nodeFound.hasOnlyALeftChild()) {
-        deleteNodeWithALeftChild(nodeFound);
-      } else if (nodeFound.hasOnlyARightChild()) {
-        deleteNodeWithARightChild(nodeFound);
-      } else { // has two children
-        AvlNode<T> successor = findSuccessor(nodeFound);
-        T tmp = successor.getItem();
-        successor.setItem(nodeFound.getItem());
-        nodeFound.setItem(tmp);
-        if (successor.isLeaf()) {
-          deleteLeafNode(successor);
-        } else if (successor.hasOnlyALeftChild()) {
-          deleteNodeWithALeftChild(successor);
-        } else if (successor.hasOnlyARightChild()) {
-          deleteNodeWithARightChild(successor);
-        }
+      deleteFoundNode(nodeFound);
+    }
+  }
+
+  /**
+   * Removes a node of the tree
+   *
+   * @param nodeFound
+   * @return a node that is still in the tree next to the position of the removed item, or null if
+   * the tree is now empty
+   */
+  private AvlNode<T> deleteFoundNode(AvlNode<T> nodeFound) {
+    AvlNode<T> remainingNode = nodeFound;
+    modCount++;
+    if (nodeFound.isLeaf()) {
+      remainingNode = nodeFound.getParent();
+      deleteLeafNode(nodeFound);
+    } else if (nodeFound.hasOnlyALeftChild()) {
+      deleteNodeWithALeftChild(nodeFound);
+    } else if (nodeFound.hasOnlyARightChild()) {
+      deleteNodeWithARightChild(nodeFound);
+    } else { // has two children
+      AvlNode<T> successor = findSuccessor(nodeFound);
+      T tmp = successor.getItem();
+      successor.setItem(nodeFound.getItem());
+      nodeFound.setItem(tmp);
+      if (successor.isLeaf()) {
+        deleteLeafNode(successor);
+      } else if (successor.hasOnlyALeftChild()) {
+        deleteNodeWithALeftChild(successor);
+      } else if (successor.hasOnlyARightChild()) {
+        deleteNodeWithARightChild(successor);
       }
     }
+    return remainingNode;
   }
 
   private void deleteLeafNode(AvlNode<T> node) {
@@ -153,50 +560,60 @@ public class AvlTree<T> {
       } else {
         node.getParent().setRight(null);
       }
-      node.getParent().updateHeight();
-      rebalance(node.getParent());
+      AvlNode<T> parent = node.getParent();
+      node.setParent(null);
+      parent.updateHeight();
+      parent.updateSize();
+      rebalance(parent);
     }
   }
 
   private void deleteNodeWithALeftChild(AvlNode<T> node) {
     node.setItem((T) node.getLeft().getItem());
+    node.getLeft().setParent(null);
     node.setLeft(null);
     node.updateHeight();
+    node.updateSize();
     rebalance(node);
   }
 
   private void deleteNodeWithARightChild(AvlNode<T> node) {
     node.setItem((T) node.getRight().getItem());
+    node.getRight().setParent(null);
     node.setRight(null);
     node.updateHeight();
+    node.updateSize();
     rebalance(node);
   }
 
   /**
-   * Searches for the closest node of the node passed as argument
+   * Searches for the closest node of the item passed as argument. The node is left in the
+   * closestNode field, so no AvlNode has to be created before knowing whether the item is already
+   * in the tree.
    *
-   * @param node
-   * @return -1 if node has to be inserted in the left, +1 if it must be inserted in the right, 0
+   * @param start node where the search starts, normally the top
+   * @param item
+   * @return -1 if item has to be inserted in the left, +1 if it must be inserted in the right, 0
    * otherwise
    */
-  private int searchClosestNode(AvlNode<T> node) {
+  private int searchClosestNode(AvlNode<T> start, T item) {
     AvlNode<T> currentNode;
     int result = 0;
 
-    currentNode = top;
-    if (top == null) {
+    currentNode = start;
+    if (start == null) {
       result = 0;
     } else {
       int comparison;
       boolean notFound = true;
       while (notFound) {
-        comparison = compareNodes(node, currentNode);
+        comparison = compareItem(item, currentNode);
         if (comparison < 0) {
           if (currentNode.hasLeft()) {
             currentNode = currentNode.getLeft();
           } else {
             notFound = false;
-            node.setClosestNode(currentNode);
+            closestNode = currentNode;
             result = -1;
           }
         } else if (comparison > 0) {
@@ -204,12 +621,12 @@ public class AvlTree<T> {
             currentNode = currentNode.getRight();
           } else {
             notFound = false;
-            node.setClosestNode(currentNode);
+            closestNode = currentNode;
             result = 1;
           }
         } else {
           notFound = false;
-          node.setClosestNode(currentNode);
+          closestNode = currentNode;
           result = 0;
         }
       }
@@ -218,6 +635,379 @@ public class AvlTree<T> {
     return result;
   }
 
+  /**
+   * Adds all the items of a sorted sequence in linear time, building a perfectly balanced tree
+   * instead of inserting and rebalancing them one by one. Items that are not in ascending order
+   * are sorted first (O(n log n)). As with insert, an item equal to one already in the tree, or to
+   * an earlier item of the sequence, is ignored.
+   *
+   * @param items
+   */
+  public void bulkLoad(Iterator<? extends T> items) {
+    List<T> list = new ArrayList<>();
+    items.forEachRemaining(list::add);
+    bulkLoad(list);
+  }
+
+  /**
+   * Same as bulkLoad(Iterator), sizing the intermediate buffer when the spliterator knows its size
+   *
+   * @param items
+   */
+  public void bulkLoad(Spliterator<? extends T> items) {
+    long exactSize = items.getExactSizeIfKnown();
+    List<T> list = new ArrayList<>(exactSize >= 0 && exactSize < Integer.MAX_VALUE
+        ? (int) exactSize : 16);
+    items.forEachRemaining(list::add);
+    bulkLoad(list);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void bulkLoad(List<T> list) {
+    T[] newItems = (T[]) list.toArray();
+    int count = newItems.length;
+    if (!isStrictlyAscending(newItems, count)) {
+      sort(newItems);
+      count = removeDuplicates(newItems);
+    }
+    if (count == 0) {
+      return;
+    }
+
+    List<AvlNode<T>> nodes = mergeWithTree(newItems, count);
+    setTop(buildBalanced(nodes, 0, nodes.size(), null));
+    modCount++;
+  }
+
+  private boolean isStrictlyAscending(T[] items, int count) {
+    for (int i = 1; i < count; i++) {
+      if (compare(items[i - 1], items[i]) >= 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Removes consecutive equal items of a sorted array, keeping the first one of each run
+   *
+   * @return the number of items left at the beginning of the array
+   */
+  private int removeDuplicates(T[] items) {
+    int count = 0;
+    for (int i = 0; i < items.length; i++) {
+      if (count == 0 || compare(items[count - 1], items[i]) != 0) {
+        items[count++] = items[i];
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Merges the nodes of the tree, in order, with new nodes for the sorted items that are not in it
+   * yet. Nodes already in the tree are reused, so nodes returned by search stay valid.
+   */
+  private List<AvlNode<T>> mergeWithTree(T[] items, int count) {
+    List<AvlNode<T>> merged = new ArrayList<>(count);
+    AvlNode<T> node = firstNode();
+    int i = 0;
+    while (node != null && i < count) {
+      int comparison = compareItem(items[i], node);
+      if (comparison < 0) {
+        merged.add(new AvlNode<T>(items[i++]));
+      } else {
+        if (comparison == 0) {
+          i++;
+        }
+        merged.add(node);
+        node = findSuccessor(node);
+      }
+    }
+    while (node != null) {
+      merged.add(node);
+      node = findSuccessor(node);
+    }
+    while (i < count) {
+      merged.add(new AvlNode<T>(items[i++]));
+    }
+    return merged;
+  }
+
+  /**
+   * Links the nodes in positions [from, to) of the list as a perfectly balanced subtree
+   *
+   * @return the root of the subtree
+   */
+  private AvlNode<T> buildBalanced(List<AvlNode<T>> nodes, int from, int to, AvlNode<T> parent) {
+    if (from >= to) {
+      return null;
+    }
+    int middle = (from + to) >>> 1;
+    AvlNode<T> node = nodes.get(middle);
+    node.setParent(parent);
+    node.setLeft(buildBalanced(nodes, from, middle, node));
+    node.setRight(buildBalanced(nodes, middle + 1, to, node));
+    node.updateHeight();
+    node.updateSize();
+    return node;
+  }
+
+  /**
+   * Iterates over the items in ascending order, following findSuccessor from the smallest node, so
+   * no recursion or auxiliary stack is needed. The iterator supports remove() and fails fast if the
+   * tree is modified by other means.
+   */
+  @Override
+  public Iterator<T> iterator() {
+    return new RangeIterator(firstNode(), null, false);
+  }
+
+  /**
+   * Spliterator over the items in ascending order. It splits a range of ranks in two halves,
+   * finding the first node of each half with selectNode in O(log n), and reports exact sizes for
+   * every part. It is bound to the tree when created and fails fast if the tree is modified.
+   */
+  @Override
+  public Spliterator<T> spliterator() {
+    return new RankSpliterator(0, size(), null);
+  }
+
+  public Stream<T> stream() {
+    return StreamSupport.stream(spliterator(), false);
+  }
+
+  /**
+   * @return a parallel stream over the items, which splits the tree in ranges of ranks
+   */
+  public Stream<T> parallelStream() {
+    return StreamSupport.stream(spliterator(), true);
+  }
+
+  /**
+   * View of the items in [from, to), in ascending order. The view is not a copy: each iterator
+   * walks the tree as it is when the iterator is created.
+   *
+   * @param from lowest item of the range (inclusive)
+   * @param to highest item of the range (exclusive)
+   */
+  public Iterable<T> subRange(T from, T to) {
+    return () -> compare(from, to) >= 0
+        ? Collections.emptyIterator()
+        : new RangeIterator(ceilingNode(from), to, true);
+  }
+
+  /**
+   * View of the items smaller than to, in ascending order
+   *
+   * @param to highest item of the range (exclusive)
+   */
+  public Iterable<T> headRange(T to) {
+    return () -> new RangeIterator(firstNode(), to, true);
+  }
+
+  /**
+   * View of the items greater than or equal to from, in ascending order
+   *
+   * @param from lowest item of the range (inclusive)
+   */
+  public Iterable<T> tailRange(T from) {
+    return () -> new RangeIterator(ceilingNode(from), null, false);
+  }
+
+  /**
+   * @return the node with the smallest item greater than or equal to item, or null if there is none
+   */
+  private AvlNode<T> ceilingNode(T item) {
+    AvlNode<T> result = null;
+    AvlNode<T> currentNode = top;
+    while (currentNode != null) {
+      int comparison = compareItem(item, currentNode);
+      if (comparison < 0) {
+        result = currentNode;
+        currentNode = currentNode.getLeft();
+      } else if (comparison > 0) {
+        currentNode = currentNode.getRight();
+      } else {
+        result = currentNode;
+        currentNode = null;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Spliterator over the items whose rank is in [from, to)
+   */
+  private class RankSpliterator implements Spliterator<T> {
+    private int from;
+    private final int to;
+    /** Node of rank from, or null until it is needed */
+    private AvlNode<T> next;
+    private final int expectedModCount;
+
+    RankSpliterator(int from, int to, AvlNode<T> next) {
+      this.from = from;
+      this.to = to;
+      this.next = next;
+      this.expectedModCount = modCount;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      if (from >= to) {
+        return false;
+      }
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      if (next == null) {
+        next = selectNode(from);
+      }
+      T item = next.getItem();
+      from++;
+      next = from < to ? findSuccessor(next) : null;
+      action.accept(item);
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+      if (from >= to) {
+        return;
+      }
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      AvlNode<T> node = next == null ? selectNode(from) : next;
+      int count = to - from;
+      from = to;
+      next = null;
+      for (int i = 0; i < count; i++) {
+        action.accept(node.getItem());
+        if (i + 1 < count) {
+          node = findSuccessor(node);
+        }
+      }
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+      int middle = (from + to) >>> 1;
+      if (middle <= from) {
+        return null;
+      }
+      Spliterator<T> prefix = new RankSpliterator(from, middle, next);
+      from = middle;
+      next = null;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return to - from;
+    }
+
+    @Override
+    public int characteristics() {
+      return Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.SIZED
+          | Spliterator.SUBSIZED;
+    }
+
+    @Override
+    public Comparator<? super T> getComparator() {
+      return naturalOrder ? null : comparator;
+    }
+  }
+
+  /**
+   * In order iterator over the nodes from first (inclusive) up to the item to (exclusive) when the
+   * range is bounded, or up to the end of the tree otherwise
+   */
+  private class RangeIterator implements Iterator<T> {
+    private AvlNode<T> next;
+    private final T to;
+    private final boolean bounded;
+    private AvlNode<T> lastReturned;
+    private int expectedModCount;
+
+    RangeIterator(AvlNode<T> first, T to, boolean bounded) {
+      this.to = to;
+      this.bounded = bounded;
+      this.next = inRange(first);
+      this.lastReturned = null;
+      this.expectedModCount = modCount;
+    }
+
+    private AvlNode<T> inRange(AvlNode<T> node) {
+      return node != null && bounded && compareItem(to, node) <= 0 ? null : node;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      lastReturned = next;
+      next = inRange(findSuccessor(next));
+      return lastReturned.getItem();
+    }
+
+    /**
+     * Deleting a node with a right child moves the item of its successor into it, so the node just
+     * returned becomes the next one
+     */
+    @Override
+    public void remove() {
+      if (lastReturned == null) {
+        throw new IllegalStateException();
+      }
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      boolean successorMoves = lastReturned.hasRight();
+      deleteFoundNode(lastReturned);
+      if (successorMoves) {
+        next = inRange(lastReturned);
+      }
+      expectedModCount = modCount;
+      lastReturned = null;
+    }
+  }
+
+  /**
+   * @return the node with the smallest item, or null if the tree is empty
+   */
+  private AvlNode<T> firstNode() {
+    AvlNode<T> node = top;
+    if (node != null) {
+      while (node.hasLeft()) {
+        node = node.getLeft();
+      }
+    }
+    return node;
+  }
+
+  private AvlNode<T> lastNode() {
+    AvlNode<T> node = top;
+    if (node != null) {
+      while (node.hasRight()) {
+        node = node.getRight();
+      }
+    }
+    return node;
+  }
+
   public AvlNode<T> findSuccessor(AvlNode<T> node) {
     AvlNode<T> result;
 
@@ -239,22 +1029,22 @@ public class AvlTree<T> {
   /**
    * Insert node in the left of its nearest node
    *
-   * @param node REQUIRES: a previous call to searchClosestNode(node)
+   * @param node REQUIRES: a previous call to searchClosestNode(start, node.getItem())
    */
   private void insertNodeLeft(AvlNode<T> node) {
-    node.getClosestNode().setLeft(node);
-    node.setParent(node.getClosestNode());
+    closestNode.setLeft(node);
+    node.setParent(closestNode);
     rebalance(node);
   }
 
   /**
    * Insert node in the right of its nearest node
    *
-   * @param node REQUIRES: a previous call to searchClosestNode(node)
+   * @param node REQUIRES: a previous call to searchClosestNode(start, node.getItem())
    */
   private void insertNodeRight(AvlNode<T> node) {
-    node.getClosestNode().setRight(node);
-    node.setParent(node.getClosestNode());
+    closestNode.setRight(node);
+    node.setParent(closestNode);
     rebalance(node);
   }
 
@@ -266,23 +1056,58 @@ public class AvlTree<T> {
    * @return The experimentoutput of the comparison according to the comparators
    */
   public int compareNodes(AvlNode<T> node1, AvlNode<T> node2) {
-    return comparator.compare(node1.getItem(), node2.getItem());
+    return compare(node1.getItem(), node2.getItem());
+  }
+
+  /**
+   * Compares an item with the item of a node, so lookups do not need to wrap the item in a node
+   *
+   * @param item
+   * @param node
+   * @return The output of the comparison according to the comparator
+   */
+  private int compareItem(T item, AvlNode<T> node) {
+    return compare(item, node.getItem());
+  }
+
+  /**
+   * Order of the items, used by every lookup and update of the tree. The descents of every tree
+   * in the JVM share the call to this method, and through it the calls to compareTo and to the
+   * comparator, so the JIT compiler only inlines each of them while it sees at most two tree
+   * classes, item classes or comparator classes there. A subclass can override this method with a
+   * direct comparison of its item type, which is inlined while it is one of at most two tree
+   * classes in use. The override must agree with the comparator given to the constructor, which
+   * orders the sorts and splits of bulk operations.
+   *
+   * @param item1
+   * @param item2
+   * @return The output of the comparison according to the order of the tree
+   */
+  @SuppressWarnings("unchecked")
+  protected int compare(T item1, T item2) {
+    if (naturalOrder) {
+      return ((Comparable<? super T>) item1).compareTo(item2);
+    }
+    return comparator.compare(item1, item2);
   }
 
   public void rebalance(AvlNode<T> node) {
     AvlNode<T> currentNode;
     boolean notFinished;
+    boolean rotated;
 
     currentNode = node;
     notFinished = true;
 
     while (notFinished) {
+      rotated = false;
       if (getBalance(currentNode) == -2) {
         if (height(currentNode.getLeft().getLeft()) >= height(currentNode.getLeft().getRight())) {
           leftRotation(currentNode);
         } else {
           doubleLeftRotation(currentNode);
         }
+        rotated = true;
       }
 
       if (getBalance(currentNode) == 2) {
@@ -291,11 +1116,21 @@ public class AvlTree<T> {
         } else {
           doubleRightRotation(currentNode);
         }
+        rotated = true;
       }
 
       if (currentNode.hasParent()) {
-        currentNode.getParent().updateHeight();
-        currentNode = currentNode.getParent();
+        AvlNode<T> parent = currentNode.getParent();
+        int previousHeight = parent.getHeight();
+        parent.updateHeight();
+        parent.updateSize();
+        if (!rotated && parent.getHeight() == previousHeight
+            && Math.abs(getBalance(parent)) < 2) {
+          // the height of the subtree did not change, so only subtree sizes change above
+          updateSizesAbove(parent);
+          notFinished = false;
+        }
+        currentNode = parent;
       } else {
         setTop(currentNode);
         notFinished = false;
@@ -303,48 +1138,37 @@ public class AvlTree<T> {
     }
   }
 
-  public void leftRotation(AvlNode<T> node) {
-    AvlNode<T> leftNode = node.getLeft();
-
-    if (node.hasParent()) {
-      leftNode.setParent(node.getParent());
-      if (node.getParent().getLeft() == node) {
-        node.getParent().setLeft(leftNode);
-      } else {
-        node.getParent().setRight(leftNode);
-      }
-    } else {
-      setTop(leftNode);
+  private void updateSizesAbove(AvlNode<T> node) {
+    while (node.hasParent()) {
+      node = node.getParent();
+      node.updateSize();
     }
+  }
 
-    node.setLeft(node.getLeft().getRight());
-    leftNode.setRight(node);
-    node.setParent(leftNode);
-
-    node.updateHeight();
-    leftNode.updateHeight();
+  public void leftRotation(AvlNode<T> node) {
+    AvlNode<T> parent = node.getParent();
+    replaceChild(parent, node, AvlJoin.rotateLeftChildUp(node));
   }
 
   public void rightRotation(AvlNode<T> node) {
-    AvlNode<T> rightNode = node.getRight();
+    AvlNode<T> parent = node.getParent();
+    replaceChild(parent, node, AvlJoin.rotateRightChildUp(node));
+  }
 
-    if (node.hasParent()) {
-      rightNode.setParent(node.getParent());
-      if (node.getParent().getRight() == node) {
-        node.getParent().setRight(rightNode);
+  /**
+   * Links newChild where oldChild was below parent, or makes it the top if parent is null
+   */
+  private void replaceChild(AvlNode<T> parent, AvlNode<T> oldChild, AvlNode<T> newChild) {
+    if (parent == null) {
+      setTop(newChild);
+    } else {
+      newChild.setParent(parent);
+      if (parent.getLeft() == oldChild) {
+        parent.setLeft(newChild);
       } else {
-        node.getParent().setLeft(rightNode);
+        parent.setRight(newChild);
       }
-    } else {
-      setTop(rightNode);
     }
-
-    node.setRight(node.getRight().getLeft());
-    rightNode.setLeft(node);
-    node.setParent(rightNode);
-
-    node.updateHeight();
-    rightNode.updateHeight();
   }
 
   public void doubleLeftRotation(AvlNode<T> node) {
@@ -397,6 +1221,10 @@ public class AvlTree<T> {
     this.top.setParent(null);
   }
 
+  private int size(AvlNode<T> node) {
+    return node == null ? 0 : node.getSize();
+  }
+
   public int height(AvlNode<T> node) {
     int result = 0;
     if (node == null) {
@@ -408,23 +1236,28 @@ public class AvlTree<T> {
     return result;
   }
 
+  /**
+   * @return the items of the tree in pre-order (node, left subtree, right subtree), each one
+   * preceded by " | "
+   */
   public String toString() {
-    String result;
+    StringBuilder result = new StringBuilder();
+    Deque<AvlNode<T>> pending = new ArrayDeque<>();
 
-    result = inOrder(top);
-
-    return result;
-  }
-
-  private String inOrder(AvlNode<T> node) {
-    String result;
-    if (node == null) {
-      return "";
-    } else {
-      result = " | " + node.getItem();
-      result += inOrder(node.getLeft());
-      result += inOrder(node.getRight());
-      return result;
+    if (top != null) {
+      pending.push(top);
     }
+    while (!pending.isEmpty()) {
+      AvlNode<T> node = pending.pop();
+      result.append(" | ").append(node.getItem());
+      if (node.hasRight()) {
+        pending.push(node.getRight());
+      }
+      if (node.hasLeft()) {
+        pending.push(node.getLeft());
+      }
+    }
+
+    return result.toString();
   }
 }
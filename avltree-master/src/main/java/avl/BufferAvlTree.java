@@ -0,0 +1,476 @@
+//  BufferAvlTree.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Avl tree of long keys whose nodes are stored in ByteBuffer chunks instead of Java objects. A node
+ * is an int index; chunk (index >>> CHUNK_SHIFT) holds it at offset (index & CHUNK_MASK) *
+ * NODE_BYTES with the following little-endian layout:
+ *
+ * <pre>
+ *   offset  size  field
+ *        0     8  key
+ *        8     4  left   (node index, NIL if none)
+ *       12     4  right  (node index, NIL if none)
+ *       16     4  parent (node index, NIL if none)
+ *       20     4  height
+ * </pre>
+ *
+ * Slots of deleted nodes are kept in a free list linked through the left field. Insert, search,
+ * delete and rebalance follow the same algorithms as AvlTree. Subclasses decide where the chunks
+ * live.
+ */
+public abstract class BufferAvlTree implements AutoCloseable {
+
+  public static final int NIL = -1;
+
+  public static final int NODE_BYTES = 24;
+  public static final int CHUNK_SHIFT = 16;
+  public static final int CHUNK_NODES = 1 << CHUNK_SHIFT;
+  public static final int CHUNK_BYTES = CHUNK_NODES * NODE_BYTES;
+  static final int CHUNK_MASK = CHUNK_NODES - 1;
+
+  static final int KEY = 0;
+  static final int LEFT = 8;
+  static final int RIGHT = 12;
+  static final int PARENT = 16;
+  static final int HEIGHT = 20;
+
+  private ByteBuffer[] chunks;
+  private int chunkCount;
+
+  protected int top;
+  protected int size;
+  protected int used;
+  protected int free;
+
+  private int closestNode;
+  private boolean closed;
+
+  protected BufferAvlTree() {
+    chunks = new ByteBuffer[8];
+    chunkCount = 0;
+    top = NIL;
+    size = 0;
+    used = 0;
+    free = NIL;
+    closed = false;
+  }
+
+  /**
+   * Provides the storage of a chunk. The buffer must hold CHUNK_BYTES bytes, starting at position
+   * 0, and is used with absolute little-endian accesses.
+   *
+   * @param chunkIndex index of the chunk, starting at 0
+   */
+  protected abstract ByteBuffer allocateChunk(int chunkIndex);
+
+  /**
+   * Gives back the storage of all the chunks when the tree is closed
+   */
+  protected abstract void releaseChunks(ByteBuffer[] chunks, int chunkCount);
+
+  /**
+   * Makes sure the first chunkCount chunks are available, allocating the missing ones
+   */
+  protected void ensureChunks(int chunkCount) {
+    while (this.chunkCount < chunkCount) {
+      if (this.chunkCount == chunks.length) {
+        chunks = Arrays.copyOf(chunks, chunks.length * 2);
+      }
+      chunks[this.chunkCount] = allocateChunk(this.chunkCount).order(ByteOrder.LITTLE_ENDIAN);
+      this.chunkCount++;
+    }
+  }
+
+  protected int chunkCount() {
+    return chunkCount;
+  }
+
+  public int getHeight() {
+    checkOpen();
+    if (top == NIL) throw new NullPointerException();
+    return height(top);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean avlIsEmpty() {
+    return top == NIL;
+  }
+
+  /**
+   * @return the bytes of storage taken by the chunks per stored entry
+   */
+  public double bytesPerEntry() {
+    long bytes = (long) chunkCount * CHUNK_BYTES;
+    return size == 0 ? bytes : (double) bytes / size;
+  }
+
+  public void insert(long key) {
+    checkOpen();
+    if (avlIsEmpty()) {
+      top = newNode(key);
+    } else {
+      int result = searchClosestNode(key);
+
+      switch (result) {
+        case -1: {
+          int node = newNode(key);
+          setLeft(closestNode, node);
+          setParent(node, closestNode);
+          rebalance(node);
+          break;
+        }
+        case +1: {
+          int node = newNode(key);
+          setRight(closestNode, node);
+          setParent(node, closestNode);
+          rebalance(node);
+          break;
+        }
+        default:
+          break;
+      }
+      closestNode = NIL;
+    }
+  }
+
+  public boolean contains(long key) {
+    checkOpen();
+    return searchNode(key) != NIL;
+  }
+
+  public void delete(long key) {
+    checkOpen();
+    int nodeFound = searchNode(key);
+    if (nodeFound != NIL) {
+      if (left(nodeFound) == NIL || right(nodeFound) == NIL) {
+        deleteNodeWithAtMostOneChild(nodeFound);
+      } else { // has two children
+        int successor = findSuccessor(nodeFound);
+        long tmp = key(successor);
+        setKey(successor, key(nodeFound));
+        setKey(nodeFound, tmp);
+        deleteNodeWithAtMostOneChild(successor);
+      }
+    }
+  }
+
+  /**
+   * Releases the storage of the tree. The tree cannot be used afterwards.
+   */
+  @Override
+  public void close() {
+    if (!closed) {
+      closed = true;
+      releaseChunks(chunks, chunkCount);
+      chunks = null;
+      chunkCount = 0;
+    }
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+
+  protected void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("The tree has been closed");
+    }
+  }
+
+  private void deleteNodeWithAtMostOneChild(int node) {
+    int child = left(node) != NIL ? left(node) : right(node);
+    if (child == NIL) {
+      int nodeParent = parent(node);
+      if (nodeParent == NIL) {
+        top = NIL;
+      } else {
+        if (left(nodeParent) == node) {
+          setLeft(nodeParent, NIL);
+        } else {
+          setRight(nodeParent, NIL);
+        }
+        updateHeight(nodeParent);
+        rebalance(nodeParent);
+      }
+      freeNode(node);
+    } else {
+      setKey(node, key(child));
+      setLeft(node, NIL);
+      setRight(node, NIL);
+      updateHeight(node);
+      rebalance(node);
+      freeNode(child);
+    }
+  }
+
+  private int searchNode(long key) {
+    int currentNode = top;
+    while (currentNode != NIL) {
+      long nodeKey = key(currentNode);
+      if (key < nodeKey) {
+        currentNode = left(currentNode);
+      } else if (key > nodeKey) {
+        currentNode = right(currentNode);
+      } else {
+        return currentNode;
+      }
+    }
+    return NIL;
+  }
+
+  /**
+   * Searches for the closest node of the key passed as argument and leaves it in closestNode
+   *
+   * @param key
+   * @return -1 if key has to be inserted in the left, +1 if it must be inserted in the right, 0
+   * otherwise
+   */
+  private int searchClosestNode(long key) {
+    int currentNode = top;
+    while (true) {
+      long nodeKey = key(currentNode);
+      if (key < nodeKey) {
+        if (left(currentNode) == NIL) {
+          closestNode = currentNode;
+          return -1;
+        }
+        currentNode = left(currentNode);
+      } else if (key > nodeKey) {
+        if (right(currentNode) == NIL) {
+          closestNode = currentNode;
+          return 1;
+        }
+        currentNode = right(currentNode);
+      } else {
+        closestNode = currentNode;
+        return 0;
+      }
+    }
+  }
+
+  private int findSuccessor(int node) {
+    int result;
+
+    if (right(node) != NIL) {
+      int tmp = right(node);
+      while (left(tmp) != NIL) {
+        tmp = left(tmp);
+      }
+      result = tmp;
+    } else {
+      while (parent(node) != NIL && right(parent(node)) == node) {
+        node = parent(node);
+      }
+      result = parent(node);
+    }
+    return result;
+  }
+
+  private void rebalance(int node) {
+    int currentNode = node;
+    boolean notFinished = true;
+
+    while (notFinished) {
+      if (getBalance(currentNode) == -2) {
+        if (heightOf(left(left(currentNode))) >= heightOf(right(left(currentNode)))) {
+          leftRotation(currentNode);
+        } else {
+          rightRotation(left(currentNode));
+          leftRotation(currentNode);
+        }
+      }
+
+      if (getBalance(currentNode) == 2) {
+        if (heightOf(right(right(currentNode))) >= heightOf(left(right(currentNode)))) {
+          rightRotation(currentNode);
+        } else {
+          leftRotation(right(currentNode));
+          rightRotation(currentNode);
+        }
+      }
+
+      int nodeParent = parent(currentNode);
+      if (nodeParent != NIL) {
+        updateHeight(nodeParent);
+        currentNode = nodeParent;
+      } else {
+        top = currentNode;
+        notFinished = false;
+      }
+    }
+  }
+
+  /**
+   * Rotates the left child of node up, as AvlTree.leftRotation does
+   */
+  private void leftRotation(int node) {
+    int leftNode = left(node);
+    replaceChild(node, leftNode);
+
+    int moved = right(leftNode);
+    setLeft(node, moved);
+    if (moved != NIL) {
+      setParent(moved, node);
+    }
+    setRight(leftNode, node);
+    setParent(node, leftNode);
+
+    updateHeight(node);
+    updateHeight(leftNode);
+  }
+
+  /**
+   * Rotates the right child of node up, as AvlTree.rightRotation does
+   */
+  private void rightRotation(int node) {
+    int rightNode = right(node);
+    replaceChild(node, rightNode);
+
+    int moved = left(rightNode);
+    setRight(node, moved);
+    if (moved != NIL) {
+      setParent(moved, node);
+    }
+    setLeft(rightNode, node);
+    setParent(node, rightNode);
+
+    updateHeight(node);
+    updateHeight(rightNode);
+  }
+
+  private void replaceChild(int node, int newChild) {
+    int nodeParent = parent(node);
+    setParent(newChild, nodeParent);
+    if (nodeParent == NIL) {
+      top = newChild;
+    } else if (left(nodeParent) == node) {
+      setLeft(nodeParent, newChild);
+    } else {
+      setRight(nodeParent, newChild);
+    }
+  }
+
+  private int getBalance(int node) {
+    return heightOf(right(node)) - heightOf(left(node));
+  }
+
+  private int heightOf(int node) {
+    return node == NIL ? -1 : height(node);
+  }
+
+  private void updateHeight(int node) {
+    setHeight(node, 1 + Math.max(heightOf(left(node)), heightOf(right(node))));
+  }
+
+  private int newNode(long key) {
+    int node;
+    if (free != NIL) {
+      node = free;
+      free = left(node);
+    } else {
+      if (used == Integer.MAX_VALUE) {
+        throw new IllegalStateException("Too many nodes for a BufferAvlTree");
+      }
+      ensureChunks((used >>> CHUNK_SHIFT) + 1);
+      node = used++;
+    }
+    setKey(node, key);
+    setLeft(node, NIL);
+    setRight(node, NIL);
+    setParent(node, NIL);
+    setHeight(node, 0);
+    size++;
+    return node;
+  }
+
+  private void freeNode(int node) {
+    setRight(node, NIL);
+    setParent(node, NIL);
+    setLeft(node, free);
+    free = node;
+    size--;
+  }
+
+  final long key(int node) {
+    return chunks[node >>> CHUNK_SHIFT].getLong(offset(node) + KEY);
+  }
+
+  final int left(int node) {
+    return chunks[node >>> CHUNK_SHIFT].getInt(offset(node) + LEFT);
+  }
+
+  final int right(int node) {
+    return chunks[node >>> CHUNK_SHIFT].getInt(offset(node) + RIGHT);
+  }
+
+  final int parent(int node) {
+    return chunks[node >>> CHUNK_SHIFT].getInt(offset(node) + PARENT);
+  }
+
+  final int height(int node) {
+    return chunks[node >>> CHUNK_SHIFT].getInt(offset(node) + HEIGHT);
+  }
+
+  private void setKey(int node, long key) {
+    chunks[node >>> CHUNK_SHIFT].putLong(offset(node) + KEY, key);
+  }
+
+  private void setLeft(int node, int left) {
+    chunks[node >>> CHUNK_SHIFT].putInt(offset(node) + LEFT, left);
+  }
+
+  private void setRight(int node, int right) {
+    chunks[node >>> CHUNK_SHIFT].putInt(offset(node) + RIGHT, right);
+  }
+
+  private void setParent(int node, int parent) {
+    chunks[node >>> CHUNK_SHIFT].putInt(offset(node) + PARENT, parent);
+  }
+
+  private void setHeight(int node, int height) {
+    chunks[node >>> CHUNK_SHIFT].putInt(offset(node) + HEIGHT, height);
+  }
+
+  private static int offset(int node) {
+    return (node & CHUNK_MASK) * NODE_BYTES;
+  }
+
+  public String toString() {
+    StringBuilder result = new StringBuilder();
+    if (!closed) {
+      preOrder(top, result);
+    }
+    return result.toString();
+  }
+
+  private void preOrder(int node, StringBuilder result) {
+    if (node != NIL) {
+      result.append(" | ").append(key(node));
+      preOrder(left(node), result);
+      preOrder(right(node), result);
+    }
+  }
+}
@@ -0,0 +1,70 @@
+//  BufferCleaner.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Releases the memory of direct and mapped buffers as soon as they are no longer needed, instead of
+ * waiting for the garbage collector to find them. Relies on sun.misc.Unsafe.invokeCleaner; when it
+ * is not available the buffers are simply left to the garbage collector.
+ */
+final class BufferCleaner {
+
+  private static final Object UNSAFE;
+  private static final Method INVOKE_CLEANER;
+
+  static {
+    Object unsafe = null;
+    Method invokeCleaner = null;
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field field = unsafeClass.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      unsafe = field.get(null);
+      invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      unsafe = null;
+      invokeCleaner = null;
+    }
+    UNSAFE = unsafe;
+    INVOKE_CLEANER = invokeCleaner;
+  }
+
+  private BufferCleaner() {
+  }
+
+  /**
+   * Frees the memory of a direct buffer. The buffer must not be used afterwards.
+   *
+   * @param buffer
+   * @return true if the memory was released, false if it is left to the garbage collector
+   */
+  static boolean clean(ByteBuffer buffer) {
+    if (INVOKE_CLEANER == null || buffer == null || !buffer.isDirect()) {
+      return false;
+    }
+    try {
+      INVOKE_CLEANER.invoke(UNSAFE, buffer);
+      return true;
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return false;
+    }
+  }
+}
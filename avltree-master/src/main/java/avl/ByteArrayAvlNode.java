@@ -0,0 +1,135 @@
+//  ByteArrayAvlNode.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl;
+
+/**
+ * Node of a ByteArrayAvlTree. The key of the node is the first prefixLength bytes of the key of
+ * its parent followed by suffix; prefixLength is always 0 when the tree does not compress prefixes,
+ * so suffix is then the whole key.
+ */
+public class ByteArrayAvlNode {
+
+  private ByteArrayAvlNode left;
+  private ByteArrayAvlNode right;
+  private ByteArrayAvlNode parent;
+
+  private int height;
+
+  private int prefixLength;
+  private byte[] suffix;
+
+  /**
+   * Constructor
+   *
+   * @param prefixLength number of bytes of the key taken from the key of the parent
+   * @param suffix the rest of the key
+   */
+  public ByteArrayAvlNode(int prefixLength, byte[] suffix) {
+    this.left = null;
+    this.right = null;
+    this.parent = null;
+    height = 0;
+
+    this.prefixLength = prefixLength;
+    this.suffix = suffix;
+  }
+
+  public ByteArrayAvlNode getLeft() {
+    return left;
+  }
+
+  public void setLeft(ByteArrayAvlNode left) {
+    this.left = left;
+  }
+
+  public ByteArrayAvlNode getParent() {
+    return parent;
+  }
+
+  public void setParent(ByteArrayAvlNode parent) {
+    this.parent = parent;
+  }
+
+  public ByteArrayAvlNode getRight() {
+    return right;
+  }
+
+  public void setRight(ByteArrayAvlNode right) {
+    this.right = right;
+  }
+
+  public int getPrefixLength() {
+    return prefixLength;
+  }
+
+  public byte[] getSuffix() {
+    return suffix;
+  }
+
+  /**
+   * @param prefixLength number of bytes of the key taken from the key of the parent
+   * @param suffix the rest of the key
+   */
+  public void setKey(int prefixLength, byte[] suffix) {
+    this.prefixLength = prefixLength;
+    this.suffix = suffix;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  public void setHeight(int height) {
+    this.height = height;
+  }
+
+  public void updateHeight() {
+    if (!hasLeft() && !hasRight()) {
+      height = 0;
+    } else if (!hasRight()) {
+      height = 1 + getLeft().getHeight();
+    } else if (!hasLeft()) {
+      height = 1 + getRight().getHeight();
+    } else {
+      height = 1 + Math.max(getLeft().getHeight(), getRight().getHeight());
+    }
+  }
+
+  public boolean hasParent() {
+    return parent != null;
+  }
+
+  public boolean hasLeft() {
+    return left != null;
+  }
+
+  public boolean hasRight() {
+    return right != null;
+  }
+
+  public boolean isLeaf() {
+    return (!hasLeft() && !hasRight());
+  }
+
+  public boolean hasOnlyALeftChild() {
+    return (hasLeft() && !hasRight());
+  }
+
+  public boolean hasOnlyARightChild() {
+    return (hasRight() && !hasLeft());
+  }
+}
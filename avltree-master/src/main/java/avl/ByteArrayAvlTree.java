@@ -0,0 +1,522 @@
+//  ByteArrayAvlTree.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Avl tree of byte[] keys in unsigned lexicographic order, the order of Arrays.compareUnsigned and
+ * of the keys written by order-preserving KeySerializers. Keys are compared with Arrays.mismatch,
+ * which the JIT vectorizes, and a search never compares again the prefix that the key is known to
+ * share with every node of the current subtree: the shorter of the common prefixes of the key with
+ * the nearest ancestors bounding the subtree from below and from above.
+ *
+ * <p>With prefix compression, each node only stores the bytes of its key that follow the prefix it
+ * shares with the key of its parent, which saves memory when keys share long prefixes, such as
+ * paths or URLs. A search then goes down knowing the common prefix of the key with the parent, and
+ * when the node shares more than that with its parent, the node compares as the parent did without
+ * reading its bytes. Rotations and deletions rebuild the keys of the nodes whose parent changes,
+ * walking up to the top, so updates cost more than without compression.
+ *
+ * <p>Keys are copied on insertion, so the caller may reuse its arrays.
+ */
+public class ByteArrayAvlTree {
+
+  private final boolean prefixCompression;
+
+  private ByteArrayAvlNode top;
+
+  private ByteArrayAvlNode closestNode;
+  /** Length of the common prefix of the last searched key and the key of closestNode */
+  private int closestPrefix;
+
+  private int size;
+
+  /**
+   * Constructor of a tree that stores whole keys
+   */
+  public ByteArrayAvlTree() {
+    this(false);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param prefixCompression true to store in each node only the bytes of its key that are not in
+   * the key of its parent
+   */
+  public ByteArrayAvlTree(boolean prefixCompression) {
+    this.prefixCompression = prefixCompression;
+    top = null;
+    size = 0;
+  }
+
+  public boolean isPrefixCompressed() {
+    return prefixCompression;
+  }
+
+  public int getHeight() {
+    if (top == null) throw new NullPointerException();
+    return top.getHeight();
+  }
+
+  /**
+   * @return the number of keys in the tree
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the number of key bytes stored in the nodes, which prefix compression reduces
+   */
+  public long storedKeyBytes() {
+    return storedKeyBytes(top);
+  }
+
+  private long storedKeyBytes(ByteArrayAvlNode node) {
+    return node == null ? 0
+        : node.getSuffix().length + storedKeyBytes(node.getLeft())
+            + storedKeyBytes(node.getRight());
+  }
+
+  public void insert(byte[] key) {
+    if (avlIsEmpty()) {
+      insertTop(new ByteArrayAvlNode(0, key.clone()));
+      size++;
+    } else {
+      int result = searchClosestNode(key);
+      if (result != 0) {
+        int prefixLength = prefixCompression ? closestPrefix : 0;
+        ByteArrayAvlNode node =
+            new ByteArrayAvlNode(prefixLength, Arrays.copyOfRange(key, prefixLength, key.length));
+        if (result < 0) {
+          insertNodeLeft(node);
+        } else {
+          insertNodeRight(node);
+        }
+        size++;
+      }
+      closestNode = null;
+    }
+  }
+
+  public ByteArrayAvlNode search(byte[] key) {
+    ByteArrayAvlNode result = null;
+    if (!avlIsEmpty() && searchClosestNode(key) == 0) {
+      result = closestNode;
+    }
+    closestNode = null;
+    return result;
+  }
+
+  public boolean contains(byte[] key) {
+    return search(key) != null;
+  }
+
+  /**
+   * @param node a node of this tree
+   * @return a copy of the key of the node
+   */
+  public byte[] getKey(ByteArrayAvlNode node) {
+    return fullKey(node).clone();
+  }
+
+  /**
+   * Searches for the closest node of the key passed as argument and leaves it in closestNode, with
+   * the length of their common prefix in closestPrefix. The tree must not be empty.
+   *
+   * @param key
+   * @return -1 if key has to be inserted in the left, +1 if it must be inserted in the right, 0
+   * otherwise
+   */
+  private int searchClosestNode(byte[] key) {
+    ByteArrayAvlNode currentNode = top;
+    // common prefixes with the nearest ancestors smaller and greater than key
+    int lowPrefix = 0;
+    int highPrefix = 0;
+    // common prefix with the last node visited, and how key compares to it
+    int prefix = 0;
+    int comparison = 0;
+    while (true) {
+      int nodePrefixLength = currentNode.getPrefixLength();
+      // otherwise the node has the byte of the parent where key differs from the parent, so key
+      // compares to the node as it compared to the parent
+      if (prefix >= nodePrefixLength) {
+        byte[] suffix = currentNode.getSuffix();
+        int from = Math.max(nodePrefixLength, Math.min(lowPrefix, highPrefix));
+        int mismatch = Arrays.mismatch(key, from, key.length,
+            suffix, from - nodePrefixLength, suffix.length);
+        if (mismatch < 0) {
+          closestNode = currentNode;
+          closestPrefix = key.length;
+          return 0;
+        }
+        prefix = from + mismatch;
+        if (prefix == key.length) {
+          comparison = -1;
+        } else if (prefix - nodePrefixLength == suffix.length) {
+          comparison = 1;
+        } else {
+          comparison = Byte.toUnsignedInt(key[prefix])
+              < Byte.toUnsignedInt(suffix[prefix - nodePrefixLength]) ? -1 : 1;
+        }
+      }
+
+      if (comparison < 0) {
+        highPrefix = prefix;
+        if (!currentNode.hasLeft()) {
+          break;
+        }
+        currentNode = currentNode.getLeft();
+      } else {
+        lowPrefix = prefix;
+        if (!currentNode.hasRight()) {
+          break;
+        }
+        currentNode = currentNode.getRight();
+      }
+    }
+    closestNode = currentNode;
+    closestPrefix = prefix;
+    return comparison;
+  }
+
+  public void delete(byte[] key) {
+    if (avlIsEmpty() || searchClosestNode(key) != 0) {
+      closestNode = null;
+      return;
+    }
+    ByteArrayAvlNode nodeFound = closestNode;
+    closestNode = null;
+    size--;
+
+    if (nodeFound.hasLeft() && nodeFound.hasRight()) {
+      deleteNodeWithTwoChildren(nodeFound);
+    } else {
+      ByteArrayAvlNode child = nodeFound.hasLeft() ? nodeFound.getLeft() : nodeFound.getRight();
+      ByteArrayAvlNode parent = nodeFound.getParent();
+      byte[] childKey = child == null ? null : fullKey(child);
+      replaceChild(parent, nodeFound, child);
+      if (child != null) {
+        reencode(child, childKey);
+      }
+      if (parent != null) {
+        parent.updateHeight();
+        rebalance(parent);
+      }
+    }
+  }
+
+  /**
+   * Replaces a node by its successor, moving the successor node instead of its key, since keys
+   * may be stored relative to their parents
+   */
+  private void deleteNodeWithTwoChildren(ByteArrayAvlNode node) {
+    ByteArrayAvlNode successor = node.getRight();
+    while (successor.hasLeft()) {
+      successor = successor.getLeft();
+    }
+    ByteArrayAvlNode successorChild = successor.getRight();
+    byte[] successorKey = fullKey(successor);
+    byte[] leftKey = fullKey(node.getLeft());
+    byte[] rightKey = null;
+    byte[] successorChildKey = null;
+
+    ByteArrayAvlNode rebalanceFrom;
+    if (successor == node.getRight()) {
+      rebalanceFrom = successor;
+    } else {
+      rightKey = fullKey(node.getRight());
+      successorChildKey = successorChild == null ? null : fullKey(successorChild);
+      rebalanceFrom = successor.getParent();
+      rebalanceFrom.setLeft(successorChild);
+      if (successorChild != null) {
+        successorChild.setParent(rebalanceFrom);
+      }
+      successor.setRight(node.getRight());
+      node.getRight().setParent(successor);
+    }
+    successor.setLeft(node.getLeft());
+    node.getLeft().setParent(successor);
+    replaceChild(node.getParent(), node, successor);
+
+    // from the top down, so that the key of each parent is already valid
+    reencode(successor, successorKey);
+    reencode(successor.getLeft(), leftKey);
+    if (rightKey != null) {
+      reencode(successor.getRight(), rightKey);
+    }
+    if (successorChildKey != null) {
+      reencode(successorChild, successorChildKey);
+    }
+
+    rebalanceFrom.updateHeight();
+    rebalance(rebalanceFrom);
+  }
+
+  /**
+   * Puts a node, or nothing, in the place of a child of parent, or at the top if parent is null
+   */
+  private void replaceChild(ByteArrayAvlNode parent, ByteArrayAvlNode oldChild,
+      ByteArrayAvlNode newChild) {
+    if (parent == null) {
+      top = newChild;
+    } else if (parent.getLeft() == oldChild) {
+      parent.setLeft(newChild);
+    } else {
+      parent.setRight(newChild);
+    }
+    if (newChild != null) {
+      newChild.setParent(parent);
+    }
+    oldChild.setParent(null);
+  }
+
+  /**
+   * @return the key of a node. Without prefix compression it is the array stored in the node, so
+   * it must not be modified.
+   */
+  private byte[] fullKey(ByteArrayAvlNode node) {
+    int prefixLength = node.getPrefixLength();
+    byte[] suffix = node.getSuffix();
+    if (prefixLength == 0) {
+      return suffix;
+    }
+    byte[] key = Arrays.copyOf(fullKey(node.getParent()), prefixLength + suffix.length);
+    System.arraycopy(suffix, 0, key, prefixLength, suffix.length);
+    return key;
+  }
+
+  /**
+   * Stores the key of a node relative to the key of its current parent. Does nothing without
+   * prefix compression.
+   *
+   * @param node
+   * @param key the key of the node, computed before its parent changed
+   */
+  private void reencode(ByteArrayAvlNode node, byte[] key) {
+    if (prefixCompression) {
+      int prefixLength = 0;
+      if (node.hasParent()) {
+        byte[] parentKey = fullKey(node.getParent());
+        prefixLength = Arrays.mismatch(key, parentKey);
+      }
+      node.setKey(prefixLength, Arrays.copyOfRange(key, prefixLength, key.length));
+    }
+  }
+
+  /**
+   * Insert node in the left of its nearest node
+   *
+   * @param node REQUIRES: a previous call to searchClosestNode(key)
+   */
+  private void insertNodeLeft(ByteArrayAvlNode node) {
+    closestNode.setLeft(node);
+    node.setParent(closestNode);
+    rebalance(node);
+  }
+
+  /**
+   * Insert node in the right of its nearest node
+   *
+   * @param node REQUIRES: a previous call to searchClosestNode(key)
+   */
+  private void insertNodeRight(ByteArrayAvlNode node) {
+    closestNode.setRight(node);
+    node.setParent(closestNode);
+    rebalance(node);
+  }
+
+  public void rebalance(ByteArrayAvlNode node) {
+    ByteArrayAvlNode currentNode;
+    boolean notFinished;
+
+    currentNode = node;
+    notFinished = true;
+
+    while (notFinished) {
+      if (getBalance(currentNode) == -2) {
+        if (height(currentNode.getLeft().getLeft()) >= height(currentNode.getLeft().getRight())) {
+          leftRotation(currentNode);
+        } else {
+          doubleLeftRotation(currentNode);
+        }
+      }
+
+      if (getBalance(currentNode) == 2) {
+        if (height(currentNode.getRight().getRight()) >= height(currentNode.getRight().getLeft())) {
+          rightRotation(currentNode);
+        } else {
+          doubleRightRotation(currentNode);
+        }
+      }
+
+      if (currentNode.hasParent()) {
+        currentNode.getParent().updateHeight();
+        currentNode = currentNode.getParent();
+      } else {
+        setTop(currentNode);
+        notFinished = false;
+      }
+    }
+  }
+
+  public void leftRotation(ByteArrayAvlNode node) {
+    ByteArrayAvlNode leftNode = node.getLeft();
+    ByteArrayAvlNode movedNode = leftNode.getRight();
+    byte[] nodeKey = fullKey(node);
+    byte[] leftKey = fullKey(leftNode);
+    byte[] movedKey = movedNode == null ? null : fullKey(movedNode);
+
+    if (node.hasParent()) {
+      leftNode.setParent(node.getParent());
+      if (node.getParent().getLeft() == node) {
+        node.getParent().setLeft(leftNode);
+      } else {
+        node.getParent().setRight(leftNode);
+      }
+    } else {
+      setTop(leftNode);
+    }
+
+    node.setLeft(movedNode);
+    if (node.hasLeft()) {
+      node.getLeft().setParent(node);
+    }
+    leftNode.setRight(node);
+    node.setParent(leftNode);
+
+    node.updateHeight();
+    leftNode.updateHeight();
+
+    reencode(leftNode, leftKey);
+    reencode(node, nodeKey);
+    if (movedNode != null) {
+      reencode(movedNode, movedKey);
+    }
+  }
+
+  public void rightRotation(ByteArrayAvlNode node) {
+    ByteArrayAvlNode rightNode = node.getRight();
+    ByteArrayAvlNode movedNode = rightNode.getLeft();
+    byte[] nodeKey = fullKey(node);
+    byte[] rightKey = fullKey(rightNode);
+    byte[] movedKey = movedNode == null ? null : fullKey(movedNode);
+
+    if (node.hasParent()) {
+      rightNode.setParent(node.getParent());
+      if (node.getParent().getRight() == node) {
+        node.getParent().setRight(rightNode);
+      } else {
+        node.getParent().setLeft(rightNode);
+      }
+    } else {
+      setTop(rightNode);
+    }
+
+    node.setRight(movedNode);
+    if (node.hasRight()) {
+      node.getRight().setParent(node);
+    }
+    rightNode.setLeft(node);
+    node.setParent(rightNode);
+
+    node.updateHeight();
+    rightNode.updateHeight();
+
+    reencode(rightNode, rightKey);
+    reencode(node, nodeKey);
+    if (movedNode != null) {
+      reencode(movedNode, movedKey);
+    }
+  }
+
+  public void doubleLeftRotation(ByteArrayAvlNode node) {
+    rightRotation(node.getLeft());
+    leftRotation(node);
+  }
+
+  public void doubleRightRotation(ByteArrayAvlNode node) {
+    leftRotation(node.getRight());
+    rightRotation(node);
+  }
+
+  public int getBalance(ByteArrayAvlNode node) {
+    return height(node.getRight()) - height(node.getLeft());
+  }
+
+  public boolean avlIsEmpty() {
+    return top == null;
+  }
+
+  public void insertTop(ByteArrayAvlNode node) {
+    top = node;
+  }
+
+  public ByteArrayAvlNode getTop() {
+    return top;
+  }
+
+  public void setTop(ByteArrayAvlNode top) {
+    this.top = top;
+    this.top.setParent(null);
+  }
+
+  public int height(ByteArrayAvlNode node) {
+    return node == null ? -1 : node.getHeight();
+  }
+
+  /**
+   * Performs an action for each key in ascending order, passing a copy of the key
+   *
+   * @param action
+   */
+  public void forEach(Consumer<byte[]> action) {
+    inOrder(top, null, action);
+  }
+
+  private void inOrder(ByteArrayAvlNode node, byte[] parentKey, Consumer<byte[]> action) {
+    if (node != null) {
+      int prefixLength = node.getPrefixLength();
+      byte[] suffix = node.getSuffix();
+      byte[] key = suffix;
+      if (prefixLength > 0) {
+        key = Arrays.copyOf(parentKey, prefixLength + suffix.length);
+        System.arraycopy(suffix, 0, key, prefixLength, suffix.length);
+      }
+      inOrder(node.getLeft(), key, action);
+      action.accept(key.clone());
+      inOrder(node.getRight(), key, action);
+    }
+  }
+
+  public String toString() {
+    StringBuilder result = new StringBuilder();
+    preOrder(top, result);
+    return result.toString();
+  }
+
+  private void preOrder(ByteArrayAvlNode node, StringBuilder result) {
+    if (node != null) {
+      result.append(" | ").append(Arrays.toString(fullKey(node)));
+      preOrder(node.getLeft(), result);
+      preOrder(node.getRight(), result);
+    }
+  }
+}
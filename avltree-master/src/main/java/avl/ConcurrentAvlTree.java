@@ -0,0 +1,816 @@
+//  ConcurrentAvlTree.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+/**
+ * Thread-safe Avl tree following the optimistic concurrent AVL tree of Bronson, Casper, Chafi and
+ * Olukotun ("A Practical Concurrent Binary Search Tree", PPoPP 2010).
+ *
+ * <p>Searches take no locks. Each node carries a version that is changed when a rotation moves the
+ * node down (shrinking the range of items its subtree may hold) or when the node is unlinked; a
+ * search reads the version of a node before following one of its links and validates it again
+ * afterwards, retrying from the parent when it changed. Writers lock only the nodes they modify,
+ * always parents before children.
+ *
+ * <p>Deleting an item whose node has two children only clears the item, leaving a routing node
+ * that keeps guiding searches; routing nodes are unlinked as soon as they have at most one child.
+ * Rebalancing is relaxed: heights are repaired and rotations performed bottom-up after each update,
+ * and the tree is a valid Avl tree again once no update is in progress. Heights are counted from 1
+ * for a leaf internally; getHeight() uses the same convention as AvlTree.
+ */
+public class ConcurrentAvlTree<T> {
+
+  static final long UNLINKED = 1L;
+  static final long SHRINKING = 2L;
+  static final long SHRINK_INCREMENT = 4L;
+
+  static final int UNLINK_REQUIRED = -1;
+  static final int REBALANCE_REQUIRED = -2;
+  static final int NOTHING_REQUIRED = -3;
+
+  static final int SPIN_COUNT = 100;
+
+  /** Result of an optimistic step that must be retried from the parent */
+  private static final Object RETRY = new Object();
+
+  static final class Node<T> {
+    final T key;
+    volatile Object value;
+    volatile int height;
+    volatile long version;
+    volatile Node<T> parent;
+    volatile Node<T> left;
+    volatile Node<T> right;
+
+    Node(T key, Object value, Node<T> parent) {
+      this.key = key;
+      this.value = value;
+      this.height = 1;
+      this.version = 0L;
+      this.parent = parent;
+      this.left = null;
+      this.right = null;
+    }
+
+    Node<T> child(int direction) {
+      return direction < 0 ? left : right;
+    }
+
+    void setChild(int direction, Node<T> child) {
+      if (direction < 0) {
+        left = child;
+      } else {
+        right = child;
+      }
+    }
+
+    /**
+     * Waits until a rotation or unlink of the node in progress is over. The writer holds the lock of
+     * the node while the version says it is shrinking, so after a short spin the lock is used to
+     * wait for it.
+     */
+    void waitUntilShrinkCompleted(long version) {
+      if (!isShrinking(version)) {
+        return;
+      }
+      for (int i = 0; i < SPIN_COUNT; i++) {
+        if (this.version != version) {
+          return;
+        }
+        Thread.onSpinWait();
+      }
+      synchronized (this) {
+        // the shrink is over once the lock is released
+      }
+    }
+  }
+
+  /** Sentinel whose right child is the root of the tree; it is never rotated or unlinked */
+  private final Node<T> rootHolder;
+  final Comparator<? super T> comparator;
+
+  /**
+   * Constructor
+   *
+   * @param comparator
+   */
+  public ConcurrentAvlTree(Comparator<? super T> comparator) {
+    this.rootHolder = new Node<T>(null, null, null);
+    this.comparator = comparator;
+  }
+
+  private static boolean isShrinking(long version) {
+    return (version & SHRINKING) != 0;
+  }
+
+  private static boolean isUnlinked(long version) {
+    return version == UNLINKED;
+  }
+
+  private static boolean isShrinkingOrUnlinked(long version) {
+    return (version & (SHRINKING | UNLINKED)) != 0;
+  }
+
+  private static long beginShrink(long version) {
+    return version | SHRINKING;
+  }
+
+  private static long endShrink(long version) {
+    return version + SHRINK_INCREMENT;
+  }
+
+  private static int height(Node<?> node) {
+    return node == null ? 0 : node.height;
+  }
+
+  private int compare(T item, T key) {
+    int comparison = comparator.compare(item, key);
+    return comparison < 0 ? -1 : (comparison > 0 ? 1 : 0);
+  }
+
+  /**
+   * @return the height of the tree, with the same convention as AvlTree (0 for a single node)
+   * @throws NullPointerException if the tree is empty
+   */
+  public int getHeight() {
+    Node<T> root = rootHolder.right;
+    if (root == null) throw new NullPointerException();
+    return root.height - 1;
+  }
+
+  public boolean avlIsEmpty() {
+    return rootHolder.right == null;
+  }
+
+  public boolean contains(T item) {
+    return search(item) != null;
+  }
+
+  /**
+   * Searches for an item without taking any lock
+   *
+   * @param item
+   * @return the item stored in the tree that is equal to the one passed as argument, or null
+   */
+  @SuppressWarnings("unchecked")
+  public T search(T item) {
+    while (true) {
+      Node<T> root = rootHolder.right;
+      if (root == null) {
+        return null;
+      }
+      int comparison = compare(item, root.key);
+      if (comparison == 0) {
+        return (T) root.value;
+      }
+      long rootVersion = root.version;
+      if (isShrinkingOrUnlinked(rootVersion)) {
+        root.waitUntilShrinkCompleted(rootVersion);
+      } else if (root == rootHolder.right) {
+        Object result = attemptSearch(item, root, comparison, rootVersion);
+        if (result != RETRY) {
+          return (T) result;
+        }
+      }
+    }
+  }
+
+  /**
+   * Continues a search below node, whose version was nodeVersion when the link to it was followed
+   *
+   * @return the value found (null if the item is not in the tree), or RETRY if node changed
+   */
+  private Object attemptSearch(T item, Node<T> node, int direction, long nodeVersion) {
+    while (true) {
+      Node<T> child = node.child(direction);
+      if (child == null) {
+        return node.version != nodeVersion ? RETRY : null;
+      }
+
+      int childDirection = compare(item, child.key);
+      if (childDirection == 0) {
+        return child.value;
+      }
+
+      long childVersion = child.version;
+      if (isShrinkingOrUnlinked(childVersion)) {
+        child.waitUntilShrinkCompleted(childVersion);
+        if (node.version != nodeVersion) {
+          return RETRY;
+        }
+      } else if (child != node.child(direction)) {
+        if (node.version != nodeVersion) {
+          return RETRY;
+        }
+      } else {
+        if (node.version != nodeVersion) {
+          return RETRY;
+        }
+        Object result = attemptSearch(item, child, childDirection, childVersion);
+        if (result != RETRY) {
+          return result;
+        }
+      }
+    }
+  }
+
+  /**
+   * Inserts an item if no equal item is in the tree
+   *
+   * @param item
+   * @return true if the item was inserted
+   */
+  public boolean insert(T item) {
+    if (item == null) {
+      throw new NullPointerException();
+    }
+    return update(item, item) == null;
+  }
+
+  /**
+   * Deletes the item equal to the one passed as argument
+   *
+   * @param item
+   * @return true if an item was deleted
+   */
+  public boolean delete(T item) {
+    return update(item, null) != null;
+  }
+
+  /**
+   * Sets the value of the node of item: the item itself to insert it, or null to delete it
+   *
+   * @return the previous value, null if the item was not in the tree
+   */
+  private Object update(T item, Object newValue) {
+    while (true) {
+      Node<T> root = rootHolder.right;
+      if (root == null) {
+        if (newValue == null || attemptInsertIntoEmpty(item, newValue)) {
+          return null;
+        }
+      } else {
+        long rootVersion = root.version;
+        if (isShrinkingOrUnlinked(rootVersion)) {
+          root.waitUntilShrinkCompleted(rootVersion);
+        } else if (root == rootHolder.right) {
+          Object result = attemptUpdate(item, newValue, rootHolder, root, rootVersion);
+          if (result != RETRY) {
+            return result;
+          }
+        }
+      }
+    }
+  }
+
+  private boolean attemptInsertIntoEmpty(T item, Object value) {
+    synchronized (rootHolder) {
+      if (rootHolder.right == null) {
+        rootHolder.right = new Node<T>(item, value, rootHolder);
+        rootHolder.height = 2;
+        return true;
+      }
+      return false;
+    }
+  }
+
+  private Object attemptUpdate(T item, Object newValue, Node<T> parent, Node<T> node,
+      long nodeVersion) {
+    int direction = compare(item, node.key);
+    if (direction == 0) {
+      return attemptNodeUpdate(newValue, parent, node);
+    }
+
+    while (true) {
+      Node<T> child = node.child(direction);
+      if (node.version != nodeVersion) {
+        return RETRY;
+      }
+
+      if (child == null) {
+        if (newValue == null) {
+          return null;
+        }
+        Node<T> damaged;
+        synchronized (node) {
+          if (node.version != nodeVersion) {
+            return RETRY;
+          }
+          if (node.child(direction) != null) {
+            // somebody else inserted here first, read the new child
+            continue;
+          }
+          node.setChild(direction, new Node<T>(item, newValue, node));
+          damaged = fixHeight(node);
+        }
+        fixHeightAndRebalance(damaged);
+        return null;
+      }
+
+      long childVersion = child.version;
+      if (isShrinkingOrUnlinked(childVersion)) {
+        child.waitUntilShrinkCompleted(childVersion);
+      } else if (child == node.child(direction)) {
+        if (node.version != nodeVersion) {
+          return RETRY;
+        }
+        Object result = attemptUpdate(item, newValue, node, child, childVersion);
+        if (result != RETRY) {
+          return result;
+        }
+      }
+    }
+  }
+
+  private Object attemptNodeUpdate(Object newValue, Node<T> parent, Node<T> node) {
+    if (newValue == null && node.value == null) {
+      return null;
+    }
+
+    if (newValue == null && (node.left == null || node.right == null)) {
+      // deleting the item of a node that can be unlinked, so the parent must be locked too
+      Object previous;
+      Node<T> damaged;
+      synchronized (parent) {
+        if (isUnlinked(parent.version) || node.parent != parent) {
+          return RETRY;
+        }
+        synchronized (node) {
+          previous = node.value;
+          if (previous == null) {
+            return null;
+          }
+          if (!attemptUnlink(parent, node)) {
+            return RETRY;
+          }
+        }
+        damaged = fixHeight(parent);
+      }
+      fixHeightAndRebalance(damaged);
+      return previous;
+    }
+
+    synchronized (node) {
+      if (isUnlinked(node.version)) {
+        return RETRY;
+      }
+      Object previous = node.value;
+      if (newValue == null && (node.left == null || node.right == null)) {
+        // the node can be unlinked now, so the parent must be locked
+        return RETRY;
+      }
+      if (newValue != null && previous != null) {
+        // the item is already in the tree
+        return previous;
+      }
+      node.value = newValue;
+      return previous;
+    }
+  }
+
+  /**
+   * Splices out a node with at most one child. Parent and node must be locked.
+   *
+   * @return false if node is no longer a child of parent or has two children
+   */
+  private boolean attemptUnlink(Node<T> parent, Node<T> node) {
+    Node<T> parentLeft = parent.left;
+    Node<T> parentRight = parent.right;
+    if (parentLeft != node && parentRight != node) {
+      return false;
+    }
+
+    Node<T> left = node.left;
+    Node<T> right = node.right;
+    if (left != null && right != null) {
+      return false;
+    }
+
+    Node<T> splice = left != null ? left : right;
+    if (parentLeft == node) {
+      parent.left = splice;
+    } else {
+      parent.right = splice;
+    }
+    if (splice != null) {
+      splice.parent = parent;
+    }
+
+    node.version = UNLINKED;
+    node.value = null;
+    return true;
+  }
+
+  /**
+   * @return the new height of node, or UNLINK_REQUIRED, REBALANCE_REQUIRED or NOTHING_REQUIRED
+   */
+  private int nodeCondition(Node<T> node) {
+    Node<T> left = node.left;
+    Node<T> right = node.right;
+
+    if ((left == null || right == null) && node.value == null) {
+      return UNLINK_REQUIRED;
+    }
+
+    int nodeHeight = node.height;
+    int leftHeight = height(left);
+    int rightHeight = height(right);
+
+    int newHeight = 1 + Math.max(leftHeight, rightHeight);
+    int balance = leftHeight - rightHeight;
+    if (balance < -1 || balance > 1) {
+      return REBALANCE_REQUIRED;
+    }
+    return nodeHeight != newHeight ? newHeight : NOTHING_REQUIRED;
+  }
+
+  /**
+   * Repairs heights and balance from a damaged node up to the root
+   */
+  private void fixHeightAndRebalance(Node<T> node) {
+    while (node != null && node.parent != null) {
+      int condition = nodeCondition(node);
+      if (condition == NOTHING_REQUIRED || isUnlinked(node.version)) {
+        return;
+      }
+
+      if (condition != UNLINK_REQUIRED && condition != REBALANCE_REQUIRED) {
+        synchronized (node) {
+          node = fixHeight(node);
+        }
+      } else {
+        Node<T> parent = node.parent;
+        synchronized (parent) {
+          if (!isUnlinked(parent.version) && node.parent == parent) {
+            synchronized (node) {
+              node = rebalance(parent, node);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Fixes the height of a locked node
+   *
+   * @return the next damaged node this thread is responsible for, or null if there is none
+   */
+  private Node<T> fixHeight(Node<T> node) {
+    int condition = nodeCondition(node);
+    switch (condition) {
+      case REBALANCE_REQUIRED:
+      case UNLINK_REQUIRED:
+        return node;
+      case NOTHING_REQUIRED:
+        return null;
+      default:
+        node.height = condition;
+        return node.parent;
+    }
+  }
+
+  /**
+   * Rebalances node, with node and its parent locked
+   *
+   * @return the next damaged node, or null if no more repairs are needed
+   */
+  private Node<T> rebalance(Node<T> parent, Node<T> node) {
+    Node<T> left = node.left;
+    Node<T> right = node.right;
+
+    if ((left == null || right == null) && node.value == null) {
+      if (attemptUnlink(parent, node)) {
+        return fixHeight(parent);
+      }
+      return node;
+    }
+
+    int nodeHeight = node.height;
+    int leftHeight = height(left);
+    int rightHeight = height(right);
+    int newHeight = 1 + Math.max(leftHeight, rightHeight);
+    int balance = leftHeight - rightHeight;
+
+    if (balance > 1) {
+      return rebalanceToRight(parent, node, left, rightHeight);
+    } else if (balance < -1) {
+      return rebalanceToLeft(parent, node, right, leftHeight);
+    } else if (newHeight != nodeHeight) {
+      node.height = newHeight;
+      return fixHeight(parent);
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * The left subtree of node is too tall: rotates its left child up, after rotating up its
+   * left-right grandchild when that one is the taller
+   */
+  private Node<T> rebalanceToRight(Node<T> parent, Node<T> node, Node<T> left, int rightHeight) {
+    synchronized (left) {
+      int leftHeight = left.height;
+      if (leftHeight - rightHeight <= 1) {
+        return node;
+      }
+
+      Node<T> leftRight = left.right;
+      int leftLeftHeight = height(left.left);
+      int leftRightHeight = height(leftRight);
+      if (leftLeftHeight >= leftRightHeight) {
+        return rotateRight(parent, node, left, rightHeight, leftLeftHeight, leftRight,
+            leftRightHeight);
+      }
+
+      synchronized (leftRight) {
+        int currentLeftRightHeight = leftRight.height;
+        if (leftLeftHeight >= currentLeftRightHeight) {
+          return rotateRight(parent, node, left, rightHeight, leftLeftHeight, leftRight,
+              currentLeftRightHeight);
+        }
+
+        int leftRightLeftHeight = height(leftRight.left);
+        int balance = leftLeftHeight - leftRightLeftHeight;
+        if (balance >= -1 && balance <= 1
+            && !((leftLeftHeight == 0 || leftRightLeftHeight == 0) && left.value == null)) {
+          return rotateRightOverLeft(parent, node, left, rightHeight, leftLeftHeight, leftRight,
+              leftRightLeftHeight);
+        }
+      }
+      // a double rotation would leave left damaged, so fix left on its own first
+      return rebalanceToLeft(node, left, leftRight, leftLeftHeight);
+    }
+  }
+
+  /**
+   * Mirror image of rebalanceToRight
+   */
+  private Node<T> rebalanceToLeft(Node<T> parent, Node<T> node, Node<T> right, int leftHeight) {
+    synchronized (right) {
+      int rightHeight = right.height;
+      if (leftHeight - rightHeight >= -1) {
+        return node;
+      }
+
+      Node<T> rightLeft = right.left;
+      int rightLeftHeight = height(rightLeft);
+      int rightRightHeight = height(right.right);
+      if (rightRightHeight >= rightLeftHeight) {
+        return rotateLeft(parent, node, leftHeight, right, rightLeft, rightLeftHeight,
+            rightRightHeight);
+      }
+
+      synchronized (rightLeft) {
+        int currentRightLeftHeight = rightLeft.height;
+        if (rightRightHeight >= currentRightLeftHeight) {
+          return rotateLeft(parent, node, leftHeight, right, rightLeft, currentRightLeftHeight,
+              rightRightHeight);
+        }
+
+        int rightLeftRightHeight = height(rightLeft.right);
+        int balance = rightRightHeight - rightLeftRightHeight;
+        if (balance >= -1 && balance <= 1
+            && !((rightRightHeight == 0 || rightLeftRightHeight == 0) && right.value == null)) {
+          return rotateLeftOverRight(parent, node, leftHeight, right, rightLeft, rightRightHeight,
+              rightLeftRightHeight);
+        }
+      }
+      return rebalanceToRight(node, right, rightLeft, rightRightHeight);
+    }
+  }
+
+  private void replaceChild(Node<T> parent, Node<T> oldChild, Node<T> newChild) {
+    if (parent.left == oldChild) {
+      parent.left = newChild;
+    } else {
+      parent.right = newChild;
+    }
+    newChild.parent = parent;
+  }
+
+  /**
+   * Rotates the left child of node up. Parent, node and left must be locked.
+   */
+  private Node<T> rotateRight(Node<T> parent, Node<T> node, Node<T> left, int rightHeight,
+      int leftLeftHeight, Node<T> leftRight, int leftRightHeight) {
+    long nodeVersion = node.version;
+    node.version = beginShrink(nodeVersion);
+
+    node.left = leftRight;
+    if (leftRight != null) {
+      leftRight.parent = node;
+    }
+    left.right = node;
+    node.parent = left;
+    replaceChild(parent, node, left);
+
+    int newNodeHeight = 1 + Math.max(leftRightHeight, rightHeight);
+    node.height = newNodeHeight;
+    left.height = 1 + Math.max(leftLeftHeight, newNodeHeight);
+
+    node.version = endShrink(nodeVersion);
+
+    int nodeBalance = leftRightHeight - rightHeight;
+    if (nodeBalance < -1 || nodeBalance > 1) {
+      return node;
+    }
+    if ((leftRight == null || rightHeight == 0) && node.value == null) {
+      return node;
+    }
+    int leftBalance = leftLeftHeight - newNodeHeight;
+    if (leftBalance < -1 || leftBalance > 1) {
+      return left;
+    }
+    if (leftLeftHeight == 0 && left.value == null) {
+      return left;
+    }
+    return fixHeight(parent);
+  }
+
+  /**
+   * Rotates the right child of node up. Parent, node and right must be locked.
+   */
+  private Node<T> rotateLeft(Node<T> parent, Node<T> node, int leftHeight, Node<T> right,
+      Node<T> rightLeft, int rightLeftHeight, int rightRightHeight) {
+    long nodeVersion = node.version;
+    node.version = beginShrink(nodeVersion);
+
+    node.right = rightLeft;
+    if (rightLeft != null) {
+      rightLeft.parent = node;
+    }
+    right.left = node;
+    node.parent = right;
+    replaceChild(parent, node, right);
+
+    int newNodeHeight = 1 + Math.max(leftHeight, rightLeftHeight);
+    node.height = newNodeHeight;
+    right.height = 1 + Math.max(newNodeHeight, rightRightHeight);
+
+    node.version = endShrink(nodeVersion);
+
+    int nodeBalance = leftHeight - rightLeftHeight;
+    if (nodeBalance < -1 || nodeBalance > 1) {
+      return node;
+    }
+    if ((rightLeft == null || leftHeight == 0) && node.value == null) {
+      return node;
+    }
+    int rightBalance = newNodeHeight - rightRightHeight;
+    if (rightBalance < -1 || rightBalance > 1) {
+      return right;
+    }
+    if (rightRightHeight == 0 && right.value == null) {
+      return right;
+    }
+    return fixHeight(parent);
+  }
+
+  /**
+   * Rotates the left-right grandchild of node up two levels. Parent, node, left and leftRight must
+   * be locked.
+   */
+  private Node<T> rotateRightOverLeft(Node<T> parent, Node<T> node, Node<T> left, int rightHeight,
+      int leftLeftHeight, Node<T> leftRight, int leftRightLeftHeight) {
+    long nodeVersion = node.version;
+    long leftVersion = left.version;
+    Node<T> leftRightLeft = leftRight.left;
+    Node<T> leftRightRight = leftRight.right;
+    int leftRightRightHeight = height(leftRightRight);
+
+    node.version = beginShrink(nodeVersion);
+    left.version = beginShrink(leftVersion);
+
+    node.left = leftRightRight;
+    if (leftRightRight != null) {
+      leftRightRight.parent = node;
+    }
+    left.right = leftRightLeft;
+    if (leftRightLeft != null) {
+      leftRightLeft.parent = left;
+    }
+    leftRight.left = left;
+    left.parent = leftRight;
+    leftRight.right = node;
+    node.parent = leftRight;
+    replaceChild(parent, node, leftRight);
+
+    int newNodeHeight = 1 + Math.max(leftRightRightHeight, rightHeight);
+    node.height = newNodeHeight;
+    int newLeftHeight = 1 + Math.max(leftLeftHeight, leftRightLeftHeight);
+    left.height = newLeftHeight;
+    leftRight.height = 1 + Math.max(newLeftHeight, newNodeHeight);
+
+    node.version = endShrink(nodeVersion);
+    left.version = endShrink(leftVersion);
+
+    int nodeBalance = leftRightRightHeight - rightHeight;
+    if (nodeBalance < -1 || nodeBalance > 1) {
+      return node;
+    }
+    if ((leftRightRight == null || rightHeight == 0) && node.value == null) {
+      return node;
+    }
+    int leftRightBalance = newLeftHeight - newNodeHeight;
+    if (leftRightBalance < -1 || leftRightBalance > 1) {
+      return leftRight;
+    }
+    return fixHeight(parent);
+  }
+
+  /**
+   * Mirror image of rotateRightOverLeft
+   */
+  private Node<T> rotateLeftOverRight(Node<T> parent, Node<T> node, int leftHeight, Node<T> right,
+      Node<T> rightLeft, int rightRightHeight, int rightLeftRightHeight) {
+    long nodeVersion = node.version;
+    long rightVersion = right.version;
+    Node<T> rightLeftLeft = rightLeft.left;
+    Node<T> rightLeftRight = rightLeft.right;
+    int rightLeftLeftHeight = height(rightLeftLeft);
+
+    node.version = beginShrink(nodeVersion);
+    right.version = beginShrink(rightVersion);
+
+    node.right = rightLeftLeft;
+    if (rightLeftLeft != null) {
+      rightLeftLeft.parent = node;
+    }
+    right.left = rightLeftRight;
+    if (rightLeftRight != null) {
+      rightLeftRight.parent = right;
+    }
+    rightLeft.right = right;
+    right.parent = rightLeft;
+    rightLeft.left = node;
+    node.parent = rightLeft;
+    replaceChild(parent, node, rightLeft);
+
+    int newNodeHeight = 1 + Math.max(leftHeight, rightLeftLeftHeight);
+    node.height = newNodeHeight;
+    int newRightHeight = 1 + Math.max(rightLeftRightHeight, rightRightHeight);
+    right.height = newRightHeight;
+    rightLeft.height = 1 + Math.max(newNodeHeight, newRightHeight);
+
+    node.version = endShrink(nodeVersion);
+    right.version = endShrink(rightVersion);
+
+    int nodeBalance = leftHeight - rightLeftLeftHeight;
+    if (nodeBalance < -1 || nodeBalance > 1) {
+      return node;
+    }
+    if ((rightLeftLeft == null || leftHeight == 0) && node.value == null) {
+      return node;
+    }
+    int rightLeftBalance = newNodeHeight - newRightHeight;
+    if (rightLeftBalance < -1 || rightLeftBalance > 1) {
+      return rightLeft;
+    }
+    return fixHeight(parent);
+  }
+
+  /**
+   * Performs an action for each item in ascending order. The traversal takes no locks; it is exact
+   * when no update is in progress, and otherwise may miss or repeat items that concurrent updates
+   * move around.
+   *
+   * @param action
+   */
+  @SuppressWarnings("unchecked")
+  public void forEach(Consumer<? super T> action) {
+    Deque<Node<T>> pending = new ArrayDeque<>();
+    Node<T> node = rootHolder.right;
+    while (node != null || !pending.isEmpty()) {
+      while (node != null) {
+        pending.push(node);
+        node = node.left;
+      }
+      node = pending.pop();
+      Object value = node.value;
+      if (value != null) {
+        action.accept((T) value);
+      }
+      node = node.right;
+    }
+  }
+}
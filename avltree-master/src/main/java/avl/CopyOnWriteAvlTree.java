@@ -0,0 +1,154 @@
+//  CopyOnWriteAvlTree.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+
+/**
+ * Avl tree for one writer thread and any number of reader threads. The writer never changes a node
+ * that readers can reach: updates copy the path to the changed item (see PersistentAvlTree), and the
+ * new root is published through a volatile field after each insert or delete, or once per batch.
+ * Readers take the published root and traverse it without locks or retries, so reads are wait-free
+ * and always see a consistent version of the tree.
+ *
+ * <p>Writes are serialized by the monitor of the tree, so several writers are safe, but the intended
+ * use is a single ingestion thread.
+ */
+public class CopyOnWriteAvlTree<T> implements Iterable<T> {
+
+  /** Working version, only touched by the writer */
+  private final PersistentAvlTree<T> writer;
+  private volatile PersistentAvlTree.Node<T> published;
+
+  /**
+   * Constructor
+   *
+   * @param comparator
+   */
+  public CopyOnWriteAvlTree(Comparator<? super T> comparator) {
+    this.writer = new PersistentAvlTree<T>(comparator);
+    this.published = null;
+  }
+
+  /**
+   * @return the item stored in the tree that is equal to the one passed as argument, or null
+   */
+  public T search(T item) {
+    PersistentAvlTree.Node<T> node = writer.searchNode(published, item);
+    return node == null ? null : node.item;
+  }
+
+  public boolean contains(T item) {
+    return writer.searchNode(published, item) != null;
+  }
+
+  /**
+   * @return the number of items in the published version
+   */
+  public int size() {
+    return PersistentAvlTree.size(published);
+  }
+
+  public boolean avlIsEmpty() {
+    return published == null;
+  }
+
+  public int getHeight() {
+    PersistentAvlTree.Node<T> root = published;
+    if (root == null) throw new NullPointerException();
+    return root.height;
+  }
+
+  /**
+   * @return the published version of the tree, in O(1); later writes do not affect it
+   */
+  public PersistentAvlTree<T> snapshot() {
+    return new PersistentAvlTree<T>(writer.comparator, published);
+  }
+
+  /**
+   * Iterates over the published version of the tree at the time of the call
+   */
+  @Override
+  public Iterator<T> iterator() {
+    return snapshot().iterator();
+  }
+
+  public synchronized void insert(T item) {
+    writer.insert(item);
+    publish();
+  }
+
+  public synchronized void delete(T item) {
+    writer.delete(item);
+    publish();
+  }
+
+  /**
+   * Inserts several items and publishes the result once, so readers see all of them or none. If
+   * an item fails, for example on the comparator, none of them is inserted.
+   *
+   * @param items
+   */
+  public synchronized void insertAll(Collection<? extends T> items) {
+    PersistentAvlTree.Node<T> root = writer.getRoot();
+    try {
+      for (T item : items) {
+        writer.insert(item);
+      }
+    } catch (RuntimeException | Error e) {
+      writer.setRoot(root);
+      throw e;
+    }
+    publish();
+  }
+
+  /**
+   * Deletes several items and publishes the result once, so readers see all of them or none
+   * deleted. If an item fails, for example on the comparator, none of them is deleted.
+   *
+   * @param items
+   */
+  public synchronized void deleteAll(Collection<? extends T> items) {
+    PersistentAvlTree.Node<T> root = writer.getRoot();
+    try {
+      for (T item : items) {
+        writer.delete(item);
+      }
+    } catch (RuntimeException | Error e) {
+      writer.setRoot(root);
+      throw e;
+    }
+    publish();
+  }
+
+  private void publish() {
+    PersistentAvlTree.Node<T> root = writer.getRoot();
+    if (root != published) {
+      published = root;
+    }
+  }
+
+  /**
+   * @return the items of the published version in pre-order, each one preceded by " | "
+   */
+  public String toString() {
+    return snapshot().toString();
+  }
+}
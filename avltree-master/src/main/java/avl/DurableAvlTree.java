@@ -0,0 +1,599 @@
+//  DurableAvlTree.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * AvlTree whose inserts and deletes are appended to a write-ahead log before they are applied, so
+ * the tree can be recovered after a crash. Recovery loads the last checkpoint, an AvlSnapshot that
+ * is read back with bulkLoad in linear time, and replays the log on top of it.
+ *
+ * <p>Files in the directory of the tree (all values big-endian):
+ *
+ * <pre>
+ *   avl.log          magic (0x41564C57, "AVLW"), version (1), then one record per operation:
+ *                    length of the item (4), type (1 = insert, 2 = delete), item,
+ *                    CRC32C of the length, type and item (4)
+ *   avl.checkpoint   AvlSnapshot of the items
+ * </pre>
+ *
+ * Records are buffered in memory and written by group commit: the first writer that has to wait
+ * for its record writes and forces everything buffered so far, and the writers that arrive
+ * meanwhile are covered by its force, or by the next one. The SyncPolicy decides which writes
+ * wait. A record cut short by a crash fails its checksum, and recovery drops it and everything
+ * after it.
+ *
+ * <p>Replaying an insert or a delete twice leaves the tree as replaying it once, so a crash after
+ * a checkpoint is written and before the log is emptied only replays records that the checkpoint
+ * already contains. If writing to the log fails, the tree stops accepting writes, since it no
+ * longer knows which records are on the device.
+ *
+ * <p>Operations are serialized by the monitor of the tree, and forces by a separate lock, so
+ * writers keep appending to the log while it is being forced.
+ */
+public class DurableAvlTree<T> implements AutoCloseable {
+
+  public static final String LOG_FILE = "avl.log";
+  public static final String CHECKPOINT_FILE = "avl.checkpoint";
+  static final String CHECKPOINT_TEMP_FILE = "avl.checkpoint.tmp";
+
+  public static final int LOG_MAGIC = 0x41564C57;
+  public static final int VERSION = 1;
+  static final int LOG_HEADER_BYTES = 8;
+
+  static final byte INSERT = 1;
+  static final byte DELETE = 2;
+  /** Length, type and checksum of a record */
+  static final int RECORD_OVERHEAD = 9;
+
+  private static final int INITIAL_BUFFER_BYTES = 1 << 16;
+  /** Size of the windows of the log mapped at once by recovery */
+  static final long REPLAY_WINDOW_BYTES = 1L << 26;
+
+  private final Path directory;
+  private final AvlTree<T> tree;
+  private final KeySerializer<T> serializer;
+  /** Writes checkpoints, holding syncLock and the monitor */
+  private final AvlSnapshot<T> snapshot;
+  private final SyncPolicy policy;
+  private final FileChannel log;
+  private final CRC32C checksum;
+  /** Held by the thread writing and forcing the log */
+  private final ReentrantLock syncLock;
+  /** Forces the log once per interval under SyncPolicy.everyInterval, null otherwise */
+  private final ScheduledExecutorService flusher;
+
+  /** Records not written to the log yet, guarded by the monitor */
+  private ByteBuffer pending;
+  /** Buffer being written by the holder of syncLock, swapped with pending on each force */
+  private ByteBuffer writing;
+  /** Number of bytes of records appended since the tree was opened, guarded by the monitor */
+  private long appendedBytes;
+  /** Number of bytes of records known to be on the device */
+  private volatile long durableBytes;
+  private volatile IOException failure;
+  private boolean closed;
+
+  private DurableAvlTree(Path directory, AvlTree<T> tree, KeySerializer<T> serializer,
+      AvlSnapshot<T> snapshot, SyncPolicy policy, FileChannel log) {
+    this.directory = directory;
+    this.tree = tree;
+    this.serializer = serializer;
+    this.snapshot = snapshot;
+    this.policy = policy;
+    this.log = log;
+    this.checksum = new CRC32C();
+    this.syncLock = new ReentrantLock();
+    this.pending = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    this.writing = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    this.appendedBytes = 0;
+    this.durableBytes = 0;
+    this.closed = false;
+    if (policy.getKind() == SyncPolicy.Kind.INTERVAL) {
+      this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "avl-log-flusher");
+        thread.setDaemon(true);
+        return thread;
+      });
+      flusher.scheduleWithFixedDelay(this::flushInBackground, policy.getIntervalNanos(),
+          policy.getIntervalNanos(), TimeUnit.NANOSECONDS);
+    } else {
+      this.flusher = null;
+    }
+  }
+
+  /**
+   * Opens the tree stored in a directory, recovering it from its checkpoint and its log, or
+   * creates an empty one if the directory holds neither
+   *
+   * @param directory
+   * @param comparator
+   * @param serializer
+   * @param policy
+   * @return the tree
+   * @throws IOException if the files cannot be read or are not valid
+   */
+  public static <T> DurableAvlTree<T> open(Path directory, Comparator<? super T> comparator,
+      KeySerializer<T> serializer, SyncPolicy policy) throws IOException {
+    Files.createDirectories(directory);
+    Files.deleteIfExists(directory.resolve(CHECKPOINT_TEMP_FILE));
+    AvlSnapshot<T> snapshot = new AvlSnapshot<T>(serializer);
+    FileChannel log = null;
+    try {
+      AvlTree<T> tree = readCheckpoint(directory.resolve(CHECKPOINT_FILE), snapshot, comparator);
+      log = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.CREATE,
+          StandardOpenOption.READ, StandardOpenOption.WRITE);
+      long end = replay(log, serializer, tree);
+      if (end < log.size()) {
+        log.truncate(end);
+        log.force(true);
+      }
+      log.position(end);
+      return new DurableAvlTree<T>(directory, tree, serializer, snapshot, policy, log);
+    } catch (IOException | RuntimeException e) {
+      if (log != null) {
+        log.close();
+      }
+      snapshot.close();
+      throw e;
+    }
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  public SyncPolicy getSyncPolicy() {
+    return policy;
+  }
+
+  /**
+   * Logs and inserts an item. Under SyncPolicy.everyOperation the record is on the device when
+   * this method returns.
+   *
+   * @param item
+   * @throws UncheckedIOException if the log cannot be written
+   */
+  public void insert(T item) {
+    update(INSERT, item);
+  }
+
+  /**
+   * Logs and deletes an item, as insert does
+   *
+   * @param item
+   */
+  public void delete(T item) {
+    update(DELETE, item);
+  }
+
+  private void update(byte type, T item) {
+    long end;
+    boolean mustForce;
+    synchronized (this) {
+      checkOpen();
+      int start = pending.position();
+      appendRecord(type, item);
+      try {
+        if (type == INSERT) {
+          tree.insert(item);
+        } else {
+          tree.delete(item);
+        }
+      } catch (RuntimeException e) {
+        // an item the comparator rejects must not be replayed
+        appendedBytes -= pending.position() - start;
+        pending.position(start);
+        throw e;
+      }
+      end = appendedBytes;
+      mustForce = policy.getKind() == SyncPolicy.Kind.EVERY_OPERATION
+          || policy.getKind() == SyncPolicy.Kind.BYTES
+          && end - durableBytes >= policy.getMaxPendingBytes();
+    }
+    if (mustForce) {
+      awaitDurable(end);
+    }
+  }
+
+  public synchronized T search(T item) {
+    checkOpen();
+    AvlNode<T> node = tree.search(item);
+    return node == null ? null : node.getItem();
+  }
+
+  public synchronized boolean contains(T item) {
+    checkOpen();
+    return tree.search(item) != null;
+  }
+
+  public synchronized int size() {
+    checkOpen();
+    return tree.size();
+  }
+
+  public synchronized boolean avlIsEmpty() {
+    checkOpen();
+    return tree.avlIsEmpty();
+  }
+
+  public synchronized int getHeight() {
+    checkOpen();
+    return tree.getHeight();
+  }
+
+  /**
+   * Performs an action for each item in ascending order, blocking writers meanwhile
+   *
+   * @param action
+   */
+  public synchronized void forEach(Consumer<? super T> action) {
+    checkOpen();
+    tree.forEach(action);
+  }
+
+  @Override
+  public synchronized String toString() {
+    return tree.toString();
+  }
+
+  /**
+   * Forces every record appended so far to the device
+   *
+   * @throws UncheckedIOException if the log cannot be written
+   */
+  public void sync() {
+    long end;
+    synchronized (this) {
+      checkOpen();
+      end = appendedBytes;
+    }
+    awaitDurable(end);
+  }
+
+  /**
+   * Writes the items to a new checkpoint in ascending order and empties the log, so recovery
+   * does not replay the records written until now. Writers are blocked while the checkpoint is
+   * written.
+   *
+   * @throws UncheckedIOException if the checkpoint cannot be written; the previous checkpoint and
+   * the log are then still valid
+   */
+  public void checkpoint() {
+    syncLock.lock();
+    try {
+      synchronized (this) {
+        checkOpen();
+        try {
+          writeCheckpoint();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        try {
+          pending.clear();
+          log.truncate(LOG_HEADER_BYTES);
+          log.position(LOG_HEADER_BYTES);
+          log.force(true);
+          durableBytes = appendedBytes;
+        } catch (IOException e) {
+          failure = e;
+          throw new UncheckedIOException(e);
+        }
+      }
+    } finally {
+      syncLock.unlock();
+    }
+  }
+
+  /**
+   * Forces the log and closes it
+   */
+  @Override
+  public void close() {
+    syncLock.lock();
+    try {
+      synchronized (this) {
+        if (closed) {
+          return;
+        }
+      }
+      try {
+        if (failure == null) {
+          flush();
+        }
+      } finally {
+        synchronized (this) {
+          closed = true;
+        }
+        if (flusher != null) {
+          flusher.shutdownNow();
+        }
+        snapshot.close();
+        try {
+          log.close();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    } finally {
+      syncLock.unlock();
+    }
+  }
+
+  public synchronized boolean isClosed() {
+    return closed;
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("The tree has been closed");
+    }
+    if (failure != null) {
+      throw new UncheckedIOException("The log could not be written", failure);
+    }
+  }
+
+  // Log
+
+  /**
+   * Appends a record to the pending buffer, leaving it unchanged if the serializer fails
+   */
+  private void appendRecord(byte type, T item) {
+    int length = serializer.serializedSize(item);
+    ensureRemaining(RECORD_OVERHEAD + length);
+    int start = pending.position();
+    try {
+      pending.putInt(length);
+      pending.put(type);
+      serializer.write(item, pending);
+    } catch (RuntimeException e) {
+      pending.position(start);
+      throw e;
+    }
+    if (pending.position() != start + RECORD_OVERHEAD - 4 + length) {
+      pending.position(start);
+      throw new IllegalStateException("The serializer did not write " + length + " bytes");
+    }
+    checksum.reset();
+    checksum.update(pending.array(), pending.arrayOffset() + start, RECORD_OVERHEAD - 4 + length);
+    pending.putInt((int) checksum.getValue());
+    appendedBytes += RECORD_OVERHEAD + length;
+  }
+
+  private void ensureRemaining(int bytes) {
+    if (pending.remaining() < bytes) {
+      ByteBuffer larger =
+          ByteBuffer.allocate(Math.max(2 * pending.capacity(), pending.position() + bytes));
+      pending.flip();
+      larger.put(pending);
+      pending = larger;
+    }
+  }
+
+  /**
+   * Waits until the records up to end are on the device, forcing the log if no other thread is
+   * doing it
+   */
+  private void awaitDurable(long end) {
+    while (durableBytes < end) {
+      syncLock.lock();
+      try {
+        if (durableBytes < end) {
+          flush();
+        }
+      } finally {
+        syncLock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Writes and forces the pending records. Called holding syncLock.
+   */
+  private void flush() {
+    ByteBuffer batch;
+    long end;
+    synchronized (this) {
+      if (failure != null) {
+        throw new UncheckedIOException("The log could not be written", failure);
+      }
+      batch = pending;
+      pending = writing;
+      writing = batch;
+      end = appendedBytes;
+    }
+    try {
+      batch.flip();
+      while (batch.hasRemaining()) {
+        log.write(batch);
+      }
+      // the size of the file is forced with the data it covers, so no other metadata is needed
+      log.force(false);
+    } catch (IOException e) {
+      failure = e;
+      throw new UncheckedIOException(e);
+    } finally {
+      batch.clear();
+    }
+    durableBytes = end;
+  }
+
+  private void flushInBackground() {
+    syncLock.lock();
+    try {
+      boolean mustForce;
+      synchronized (this) {
+        mustForce = !closed && failure == null && durableBytes < appendedBytes;
+      }
+      if (mustForce) {
+        flush();
+      }
+    } catch (UncheckedIOException e) {
+      // recorded in failure and reported to the next writer
+    } finally {
+      syncLock.unlock();
+    }
+  }
+
+  /**
+   * Applies the valid records of a log to a tree, writing the header if the log is new
+   *
+   * @return the position after the last valid record
+   */
+  private static <T> long replay(FileChannel log, KeySerializer<T> serializer, AvlTree<T> tree)
+      throws IOException {
+    return replay(log, serializer, tree, REPLAY_WINDOW_BYTES);
+  }
+
+  /**
+   * Same as replay(log, serializer, tree), mapping the log one window at a time so that logs of
+   * any size can be replayed
+   *
+   * @param windowBytes the size of the mapped windows; a window grows to hold a larger record
+   * @return the position after the last valid record
+   */
+  static <T> long replay(FileChannel log, KeySerializer<T> serializer, AvlTree<T> tree,
+      long windowBytes) throws IOException {
+    long size = log.size();
+    ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_BYTES);
+    if (size < LOG_HEADER_BYTES) {
+      header.putInt(LOG_MAGIC).putInt(VERSION).flip();
+      log.truncate(0);
+      while (header.hasRemaining()) {
+        log.write(header, LOG_HEADER_BYTES - header.remaining());
+      }
+      log.force(true);
+      return LOG_HEADER_BYTES;
+    }
+    while (header.hasRemaining()) {
+      log.read(header, header.position());
+    }
+    if (header.getInt(0) != LOG_MAGIC) {
+      throw new IOException(LOG_FILE + " is not an AVL tree log");
+    }
+    if (header.getInt(4) != VERSION) {
+      throw new IOException("Unsupported AVL tree log version " + header.getInt(4));
+    }
+
+    CRC32C recordChecksum = new CRC32C();
+    long position = LOG_HEADER_BYTES;
+    long windowStart = position;
+    MappedByteBuffer window = null;
+    try {
+      while (size - position >= RECORD_OVERHEAD) {
+        if (window == null || position + 4 > windowStart + window.capacity()) {
+          BufferCleaner.clean(window);
+          window = null;
+          window = log.map(FileChannel.MapMode.READ_ONLY, position,
+              Math.min(windowBytes, size - position));
+          windowStart = position;
+        }
+        int length = window.getInt((int) (position - windowStart));
+        if (length < 0 || length > size - position - RECORD_OVERHEAD) {
+          break;
+        }
+        long recordBytes = RECORD_OVERHEAD + (long) length;
+        if (position + recordBytes > windowStart + window.capacity()) {
+          if (recordBytes > Integer.MAX_VALUE) {
+            break;
+          }
+          BufferCleaner.clean(window);
+          window = null;
+          window = log.map(FileChannel.MapMode.READ_ONLY, position,
+              Math.min(Math.max(windowBytes, recordBytes), size - position));
+          windowStart = position;
+        }
+
+        int offset = (int) (position - windowStart);
+        int checksumOffset = offset + RECORD_OVERHEAD - 4 + length;
+        recordChecksum.reset();
+        window.limit(checksumOffset).position(offset);
+        recordChecksum.update(window);
+        window.limit(window.capacity());
+        byte type = window.get(offset + 4);
+        if ((int) recordChecksum.getValue() != window.getInt(checksumOffset)
+            || type != INSERT && type != DELETE) {
+          break;
+        }
+
+        window.position(offset + 5);
+        T item = serializer.read(window, length);
+        if (type == INSERT) {
+          tree.insert(item);
+        } else {
+          tree.delete(item);
+        }
+        position += recordBytes;
+      }
+      return position;
+    } finally {
+      BufferCleaner.clean(window);
+    }
+  }
+
+  // Checkpoints
+
+  private void writeCheckpoint() throws IOException {
+    Path temp = directory.resolve(CHECKPOINT_TEMP_FILE);
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      snapshot.write(tree, channel);
+      channel.force(true);
+    }
+    Files.move(temp, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+    forceDirectory();
+  }
+
+  /**
+   * Forces the entry of the renamed checkpoint. Some platforms cannot open directories, and there
+   * renames are already durable or cannot be forced at all.
+   */
+  private void forceDirectory() {
+    try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      // not supported on this platform
+    }
+  }
+
+  private static <T> AvlTree<T> readCheckpoint(Path path, AvlSnapshot<T> snapshot,
+      Comparator<? super T> comparator) throws IOException {
+    if (!Files.exists(path)) {
+      return new AvlTree<T>(comparator);
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return snapshot.read(channel, comparator);
+    }
+  }
+}
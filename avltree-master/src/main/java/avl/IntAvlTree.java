@@ -0,0 +1,338 @@
+//  IntAvlTree.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl;
+
+/**
+ * Avl tree of primitive int items. It follows the same insert, search, delete and rebalance
+ * algorithms as AvlTree, but items are stored unboxed in IntAvlNode and compared with the native
+ * operators instead of through a Comparator.
+ */
+public class IntAvlTree {
+
+  private IntAvlNode top;
+
+  private IntAvlNode closestNode;
+
+  /**
+   * Constructor
+   */
+  public IntAvlTree() {
+    top = null;
+  }
+
+  public int getHeight() {
+    if (top == null) throw new NullPointerException();
+    return top.getHeight();
+  }
+
+  public void insert(int item) {
+    if (avlIsEmpty()) {
+      insertTop(new IntAvlNode(item));
+    } else {
+      int result = searchClosestNode(item);
+
+      switch (result) {
+        case -1:
+          insertNodeLeft(new IntAvlNode(item));
+          break;
+        case +1:
+          insertNodeRight(new IntAvlNode(item));
+          break;
+        default:
+          break;
+      }
+      closestNode = null;
+    }
+  }
+
+  public IntAvlNode search(int item) {
+    IntAvlNode currentNode = top;
+    while (currentNode != null) {
+      int nodeItem = currentNode.getItem();
+      if (item < nodeItem) {
+        currentNode = currentNode.getLeft();
+      } else if (item > nodeItem) {
+        currentNode = currentNode.getRight();
+      } else {
+        return currentNode;
+      }
+    }
+    return null;
+  }
+
+  public boolean contains(int item) {
+    return search(item) != null;
+  }
+
+  public void delete(int item) {
+    IntAvlNode nodeFound;
+
+    nodeFound = search(item);
+    if (nodeFound != null) {
+      if (nodeFound.isLeaf()) {
+        deleteLeafNode(nodeFound);
+      } else if (nodeFound.hasOnlyALeftChild()) {
+        deleteNodeWithALeftChild(nodeFound);
+      } else if (nodeFound.hasOnlyARightChild()) {
+        deleteNodeWithARightChild(nodeFound);
+      } else { // has two children
+        IntAvlNode successor = findSuccessor(nodeFound);
+        int tmp = successor.getItem();
+        successor.setItem(nodeFound.getItem());
+        nodeFound.setItem(tmp);
+        if (successor.isLeaf()) {
+          deleteLeafNode(successor);
+        } else if (successor.hasOnlyALeftChild()) {
+          deleteNodeWithALeftChild(successor);
+        } else if (successor.hasOnlyARightChild()) {
+          deleteNodeWithARightChild(successor);
+        }
+      }
+    }
+  }
+
+  private void deleteLeafNode(IntAvlNode node) {
+    if (!node.hasParent()) {
+      top = null;
+    } else {
+      if (node.getParent().getLeft() == node) {
+        node.getParent().setLeft(null);
+      } else {
+        node.getParent().setRight(null);
+      }
+      node.getParent().updateHeight();
+      rebalance(node.getParent());
+    }
+  }
+
+  private void deleteNodeWithALeftChild(IntAvlNode node) {
+    node.setItem(node.getLeft().getItem());
+    node.setLeft(null);
+    node.updateHeight();
+    rebalance(node);
+  }
+
+  private void deleteNodeWithARightChild(IntAvlNode node) {
+    node.setItem(node.getRight().getItem());
+    node.setRight(null);
+    node.updateHeight();
+    rebalance(node);
+  }
+
+  /**
+   * Searches for the closest node of the item passed as argument and leaves it in closestNode
+   *
+   * @param item
+   * @return -1 if item has to be inserted in the left, +1 if it must be inserted in the right, 0
+   * otherwise
+   */
+  private int searchClosestNode(int item) {
+    IntAvlNode currentNode = top;
+    while (true) {
+      int nodeItem = currentNode.getItem();
+      if (item < nodeItem) {
+        if (!currentNode.hasLeft()) {
+          closestNode = currentNode;
+          return -1;
+        }
+        currentNode = currentNode.getLeft();
+      } else if (item > nodeItem) {
+        if (!currentNode.hasRight()) {
+          closestNode = currentNode;
+          return 1;
+        }
+        currentNode = currentNode.getRight();
+      } else {
+        closestNode = currentNode;
+        return 0;
+      }
+    }
+  }
+
+  public IntAvlNode findSuccessor(IntAvlNode node) {
+    IntAvlNode result;
+
+    if (node.hasRight()) {
+      IntAvlNode tmp = node.getRight();
+      while (tmp.hasLeft()) {
+        tmp = tmp.getLeft();
+      }
+      result = tmp;
+    } else {
+      while (node.hasParent() && (node.getParent().getRight() == node)) {
+        node = node.getParent();
+      }
+      result = node.getParent();
+    }
+    return result;
+  }
+
+  /**
+   * Insert node in the left of its nearest node
+   *
+   * @param node REQUIRES: a previous call to searchClosestNode(node.getItem())
+   */
+  private void insertNodeLeft(IntAvlNode node) {
+    closestNode.setLeft(node);
+    node.setParent(closestNode);
+    rebalance(node);
+  }
+
+  /**
+   * Insert node in the right of its nearest node
+   *
+   * @param node REQUIRES: a previous call to searchClosestNode(node.getItem())
+   */
+  private void insertNodeRight(IntAvlNode node) {
+    closestNode.setRight(node);
+    node.setParent(closestNode);
+    rebalance(node);
+  }
+
+  public void rebalance(IntAvlNode node) {
+    IntAvlNode currentNode;
+    boolean notFinished;
+
+    currentNode = node;
+    notFinished = true;
+
+    while (notFinished) {
+      if (getBalance(currentNode) == -2) {
+        if (height(currentNode.getLeft().getLeft()) >= height(currentNode.getLeft().getRight())) {
+          leftRotation(currentNode);
+        } else {
+          doubleLeftRotation(currentNode);
+        }
+      }
+
+      if (getBalance(currentNode) == 2) {
+        if (height(currentNode.getRight().getRight()) >= height(currentNode.getRight().getLeft())) {
+          rightRotation(currentNode);
+        } else {
+          doubleRightRotation(currentNode);
+        }
+      }
+
+      if (currentNode.hasParent()) {
+        currentNode.getParent().updateHeight();
+        currentNode = currentNode.getParent();
+      } else {
+        setTop(currentNode);
+        notFinished = false;
+      }
+    }
+  }
+
+  public void leftRotation(IntAvlNode node) {
+    IntAvlNode leftNode = node.getLeft();
+
+    if (node.hasParent()) {
+      leftNode.setParent(node.getParent());
+      if (node.getParent().getLeft() == node) {
+        node.getParent().setLeft(leftNode);
+      } else {
+        node.getParent().setRight(leftNode);
+      }
+    } else {
+      setTop(leftNode);
+    }
+
+    node.setLeft(node.getLeft().getRight());
+    if (node.hasLeft()) {
+      node.getLeft().setParent(node);
+    }
+    leftNode.setRight(node);
+    node.setParent(leftNode);
+
+    node.updateHeight();
+    leftNode.updateHeight();
+  }
+
+  public void rightRotation(IntAvlNode node) {
+    IntAvlNode rightNode = node.getRight();
+
+    if (node.hasParent()) {
+      rightNode.setParent(node.getParent());
+      if (node.getParent().getRight() == node) {
+        node.getParent().setRight(rightNode);
+      } else {
+        node.getParent().setLeft(rightNode);
+      }
+    } else {
+      setTop(rightNode);
+    }
+
+    node.setRight(node.getRight().getLeft());
+    if (node.hasRight()) {
+      node.getRight().setParent(node);
+    }
+    rightNode.setLeft(node);
+    node.setParent(rightNode);
+
+    node.updateHeight();
+    rightNode.updateHeight();
+  }
+
+  public void doubleLeftRotation(IntAvlNode node) {
+    rightRotation(node.getLeft());
+    leftRotation(node);
+  }
+
+  public void doubleRightRotation(IntAvlNode node) {
+    leftRotation(node.getRight());
+    rightRotation(node);
+  }
+
+  public int getBalance(IntAvlNode node) {
+    return height(node.getRight()) - height(node.getLeft());
+  }
+
+  public boolean avlIsEmpty() {
+    return top == null;
+  }
+
+  public void insertTop(IntAvlNode node) {
+    top = node;
+  }
+
+  public IntAvlNode getTop() {
+    return top;
+  }
+
+  public void setTop(IntAvlNode top) {
+    this.top = top;
+    this.top.setParent(null);
+  }
+
+  public int height(IntAvlNode node) {
+    return node == null ? -1 : node.getHeight();
+  }
+
+  public String toString() {
+    StringBuilder result = new StringBuilder();
+    preOrder(top, result);
+    return result.toString();
+  }
+
+  private void preOrder(IntAvlNode node, StringBuilder result) {
+    if (node != null) {
+      result.append(" | ").append(node.getItem());
+      preOrder(node.getLeft(), result);
+      preOrder(node.getRight(), result);
+    }
+  }
+}
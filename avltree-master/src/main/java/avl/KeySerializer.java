@@ -0,0 +1,68 @@
+//  KeySerializer.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts the items of a tree to bytes and back, for the log and checkpoints of DurableAvlTree and
+ * for AvlSnapshot. The length of each item is stored next to it when needed, so an implementation
+ * does not have to write it. KeySerializers has implementations for numbers, UUIDs and strings.
+ *
+ * @param <T> type of the items
+ */
+public interface KeySerializer<T> {
+
+  /**
+   * @param item
+   * @return the number of bytes that write puts for the item
+   */
+  int serializedSize(T item);
+
+  /**
+   * @return the number of bytes of every item if they all have the same size, or -1. Snapshots of
+   * items of a fixed size do not store the length of each one.
+   */
+  default int fixedSize() {
+    return -1;
+  }
+
+  /**
+   * @return true if the bytes of two items, compared as unsigned bytes in lexicographic order (see
+   * KeySerializers.compare), are in the natural order of the items
+   */
+  default boolean preservesOrder() {
+    return false;
+  }
+
+  /**
+   * Writes an item at the position of a buffer, advancing it by serializedSize(item) bytes
+   *
+   * @param item
+   * @param buffer a buffer with at least serializedSize(item) bytes remaining
+   */
+  void write(T item, ByteBuffer buffer);
+
+  /**
+   * Reads an item written by write, advancing the position of the buffer by length bytes
+   *
+   * @param buffer
+   * @param length the number of bytes of the item
+   * @return the item
+   */
+  T read(ByteBuffer buffer, int length);
+}
@@ -0,0 +1,248 @@
+//  KeySerializers.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * Built-in KeySerializers. Their encodings preserve order: the bytes of two keys, compared as
+ * unsigned bytes in lexicographic order, are in the natural order of the keys, or for strings in
+ * CODE_POINT_ORDER, so keys on disk can be compared without reading them back. Writing does not
+ * allocate; reading only allocates the key itself.
+ *
+ * <p>Numbers are written big-endian whatever the order of the buffer, with the sign bit flipped so
+ * that negative numbers come first.
+ */
+public final class KeySerializers {
+
+  /** Integers in 4 bytes */
+  public static final KeySerializer<Integer> INTEGER = new FixedSizeSerializer<Integer>(4) {
+    @Override
+    public void write(Integer item, ByteBuffer buffer) {
+      buffer.putInt(bigEndian(buffer, item ^ Integer.MIN_VALUE));
+    }
+
+    @Override
+    public Integer read(ByteBuffer buffer, int length) {
+      return bigEndian(buffer, buffer.getInt()) ^ Integer.MIN_VALUE;
+    }
+  };
+
+  /** Longs in 8 bytes */
+  public static final KeySerializer<Long> LONG = new FixedSizeSerializer<Long>(8) {
+    @Override
+    public void write(Long item, ByteBuffer buffer) {
+      buffer.putLong(bigEndian(buffer, item ^ Long.MIN_VALUE));
+    }
+
+    @Override
+    public Long read(ByteBuffer buffer, int length) {
+      return bigEndian(buffer, buffer.getLong()) ^ Long.MIN_VALUE;
+    }
+  };
+
+  /**
+   * Doubles in 8 bytes, in the order of Double.compare: -0.0 before 0.0, and NaN, whose bits are
+   * made canonical, after positive infinity
+   */
+  public static final KeySerializer<Double> DOUBLE = new FixedSizeSerializer<Double>(8) {
+    @Override
+    public void write(Double item, ByteBuffer buffer) {
+      long bits = Double.doubleToLongBits(item);
+      // negative numbers are ordered by magnitude, so all their bits are flipped
+      bits = bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+      buffer.putLong(bigEndian(buffer, bits));
+    }
+
+    @Override
+    public Double read(ByteBuffer buffer, int length) {
+      long bits = bigEndian(buffer, buffer.getLong());
+      return Double.longBitsToDouble(bits < 0 ? bits ^ Long.MIN_VALUE : ~bits);
+    }
+  };
+
+  /**
+   * UUIDs in 16 bytes. UUID.compareTo compares both halves as signed numbers, so the bytes are not
+   * those of the usual textual or RFC 4122 layout.
+   */
+  public static final KeySerializer<UUID> UUID = new FixedSizeSerializer<UUID>(16) {
+    @Override
+    public void write(UUID item, ByteBuffer buffer) {
+      buffer.putLong(bigEndian(buffer, item.getMostSignificantBits() ^ Long.MIN_VALUE));
+      buffer.putLong(bigEndian(buffer, item.getLeastSignificantBits() ^ Long.MIN_VALUE));
+    }
+
+    @Override
+    public UUID read(ByteBuffer buffer, int length) {
+      long mostSignificantBits = bigEndian(buffer, buffer.getLong()) ^ Long.MIN_VALUE;
+      long leastSignificantBits = bigEndian(buffer, buffer.getLong()) ^ Long.MIN_VALUE;
+      return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+  };
+
+  /**
+   * Strings in UTF-8, encoded straight into the buffer. UTF-8 bytes are in the order of code
+   * points, which is the order of String.compareTo except that characters from U+E000 to U+FFFF
+   * come before supplementary characters, so preservesOrder is false; trees of such strings
+   * should use CODE_POINT_ORDER. Strings with unpaired surrogates have no UTF-8 form and are
+   * rejected, as replacing them would read back a different key.
+   */
+  public static final KeySerializer<String> UTF_8 = new KeySerializer<String>() {
+    @Override
+    public int serializedSize(String item) {
+      int size = 0;
+      for (int i = 0; i < item.length(); i++) {
+        char c = item.charAt(i);
+        if (c < 0x80) {
+          size++;
+        } else if (c < 0x800) {
+          size += 2;
+        } else if (Character.isHighSurrogate(c) && i + 1 < item.length()
+            && Character.isLowSurrogate(item.charAt(i + 1))) {
+          size += 4;
+          i++;
+        } else if (Character.isSurrogate(c)) {
+          throw unpairedSurrogate(i);
+        } else {
+          size += 3;
+        }
+      }
+      return size;
+    }
+
+    @Override
+    public void write(String item, ByteBuffer buffer) {
+      for (int i = 0; i < item.length(); i++) {
+        char c = item.charAt(i);
+        if (c < 0x80) {
+          buffer.put((byte) c);
+        } else if (c < 0x800) {
+          buffer.put((byte) (0xC0 | c >> 6));
+          buffer.put((byte) (0x80 | c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && i + 1 < item.length()
+            && Character.isLowSurrogate(item.charAt(i + 1))) {
+          int codePoint = Character.toCodePoint(c, item.charAt(++i));
+          buffer.put((byte) (0xF0 | codePoint >> 18));
+          buffer.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+          buffer.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+          buffer.put((byte) (0x80 | codePoint & 0x3F));
+        } else if (Character.isSurrogate(c)) {
+          throw unpairedSurrogate(i);
+        } else {
+          buffer.put((byte) (0xE0 | c >> 12));
+          buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+          buffer.put((byte) (0x80 | c & 0x3F));
+        }
+      }
+    }
+
+    @Override
+    public String read(ByteBuffer buffer, int length) {
+      String item;
+      if (buffer.hasArray()) {
+        item = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+            StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+      } else {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        item = new String(bytes, StandardCharsets.UTF_8);
+      }
+      return item;
+    }
+  };
+
+  /** Order of strings by code point, the order of their UTF_8 bytes */
+  public static final Comparator<String> CODE_POINT_ORDER = (first, second) -> {
+    int length = Math.min(first.length(), second.length());
+    for (int i = 0; i < length; i++) {
+      char c1 = first.charAt(i);
+      char c2 = second.charAt(i);
+      if (c1 != c2) {
+        // surrogates go after the other characters of the basic plane
+        if (Character.isSurrogate(c1) != Character.isSurrogate(c2)) {
+          return Character.isSurrogate(c1) ? 1 : -1;
+        }
+        return c1 - c2;
+      }
+    }
+    return first.length() - second.length();
+  };
+
+  private KeySerializers() {
+  }
+
+  /**
+   * Compares two serialized keys as unsigned bytes in lexicographic order, from the position to
+   * the limit of each buffer, without changing them
+   *
+   * @param first
+   * @param second
+   * @return a negative number, zero or a positive number as first is smaller than, equal to or
+   * greater than second
+   */
+  public static int compare(ByteBuffer first, ByteBuffer second) {
+    int mismatch = first.mismatch(second);
+    if (mismatch < 0) {
+      return 0;
+    }
+    if (mismatch == first.remaining() || mismatch == second.remaining()) {
+      return first.remaining() - second.remaining();
+    }
+    return Byte.toUnsignedInt(first.get(first.position() + mismatch))
+        - Byte.toUnsignedInt(second.get(second.position() + mismatch));
+  }
+
+  private static IllegalArgumentException unpairedSurrogate(int index) {
+    return new IllegalArgumentException("Unpaired surrogate at index " + index);
+  }
+
+  private static int bigEndian(ByteBuffer buffer, int value) {
+    return buffer.order() == ByteOrder.BIG_ENDIAN ? value : Integer.reverseBytes(value);
+  }
+
+  private static long bigEndian(ByteBuffer buffer, long value) {
+    return buffer.order() == ByteOrder.BIG_ENDIAN ? value : Long.reverseBytes(value);
+  }
+
+  private abstract static class FixedSizeSerializer<T> implements KeySerializer<T> {
+    private final int size;
+
+    FixedSizeSerializer(int size) {
+      this.size = size;
+    }
+
+    @Override
+    public int serializedSize(T item) {
+      return size;
+    }
+
+    @Override
+    public int fixedSize() {
+      return size;
+    }
+
+    @Override
+    public boolean preservesOrder() {
+      return true;
+    }
+  }
+}
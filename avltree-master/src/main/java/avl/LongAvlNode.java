@@ -0,0 +1,121 @@
+//  LongAvlNode.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl;
+
+/**
+ * Node of a LongAvlTree. Same as AvlNode, but the item is stored as a primitive long.
+ */
+public class LongAvlNode {
+
+  private LongAvlNode left;
+  private LongAvlNode right;
+  private LongAvlNode parent;
+
+  private int height;
+
+  private long item;
+
+  /**
+   * Constructor
+   *
+   * @param item
+   */
+  public LongAvlNode(long item) {
+    this.left = null;
+    this.right = null;
+    this.parent = null;
+    height = 0;
+
+    this.item = item;
+  }
+
+  public LongAvlNode getLeft() {
+    return left;
+  }
+
+  public void setLeft(LongAvlNode left) {
+    this.left = left;
+  }
+
+  public LongAvlNode getParent() {
+    return parent;
+  }
+
+  public void setParent(LongAvlNode parent) {
+    this.parent = parent;
+  }
+
+  public LongAvlNode getRight() {
+    return right;
+  }
+
+  public void setRight(LongAvlNode right) {
+    this.right = right;
+  }
+
+  public long getItem() {
+    return item;
+  }
+
+  public void setItem(long item) {
+    this.item = item;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  public void setHeight(int height) {
+    this.height = height;
+  }
+
+  public void updateHeight() {
+    if (!hasLeft() && !hasRight()) {
+      height = 0;
+    } else if (!hasRight()) {
+      height = 1 + getLeft().getHeight();
+    } else if (!hasLeft()) {
+      height = 1 + getRight().getHeight();
+    } else {
+      height = 1 + Math.max(getLeft().getHeight(), getRight().getHeight());
+    }
+  }
+
+  public boolean hasParent() {
+    return parent != null;
+  }
+
+  public boolean hasLeft() {
+    return left != null;
+  }
+
+  public boolean hasRight() {
+    return right != null;
+  }
+
+  public boolean isLeaf() {
+    return (!hasLeft() && !hasRight());
+  }
+
+  public boolean hasOnlyALeftChild() {
+    return (hasLeft() && !hasRight());
+  }
+
+  public boolean hasOnlyARightChild() {
+    return (hasRight() && !hasLeft());
+  }
+}
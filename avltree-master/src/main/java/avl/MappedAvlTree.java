@@ -0,0 +1,248 @@
+//  MappedAvlTree.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * BufferAvlTree whose chunks are memory-mapped regions of a file, so the tree survives restarts and
+ * is reopened without rebuilding it: opening only reads the header and maps the chunks, and node
+ * pages are loaded by the operating system when they are first touched.
+ *
+ * <p>File layout (all values little-endian):
+ *
+ * <pre>
+ *   offset  size  field
+ *        0     4  magic (0x41564C4D, "AVLM")
+ *        4     4  format version (1)
+ *        8     4  node bytes (24)
+ *       12     4  nodes per chunk (65536)
+ *       16     4  top node index (-1 if the tree is empty)
+ *       20     4  size (number of keys)
+ *       24     4  used (high-water mark of node indices)
+ *       28     4  head of the free list (-1 if empty)
+ *       32     4  number of chunks
+ *       36     4  state (0 = clean, 1 = modified since the last sync)
+ *     4096        chunk 0, chunk 1, ... each one CHUNK_BYTES long with the node records described
+ *                 in BufferAvlTree
+ * </pre>
+ *
+ * The header is only written by sync() and close(). The first modification after a sync marks the
+ * file as modified on disk, so a file that was not synced before a crash is detected on open
+ * instead of being read as a corrupted tree.
+ */
+public class MappedAvlTree extends BufferAvlTree {
+
+  public static final int MAGIC = 0x41564C4D;
+  public static final int VERSION = 1;
+  public static final int HEADER_BYTES = 4096;
+
+  static final int H_MAGIC = 0;
+  static final int H_VERSION = 4;
+  static final int H_NODE_BYTES = 8;
+  static final int H_CHUNK_NODES = 12;
+  static final int H_TOP = 16;
+  static final int H_SIZE = 20;
+  static final int H_USED = 24;
+  static final int H_FREE = 28;
+  static final int H_CHUNK_COUNT = 32;
+  static final int H_STATE = 36;
+
+  static final int CLEAN = 0;
+  static final int MODIFIED = 1;
+
+  private final Path path;
+  private final FileChannel channel;
+  private final MappedByteBuffer header;
+  private final List<MappedByteBuffer> mappedChunks;
+  private boolean modified;
+
+  private MappedAvlTree(Path path, FileChannel channel) throws IOException {
+    super();
+    this.path = path;
+    this.channel = channel;
+    this.mappedChunks = new ArrayList<>();
+    this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+    this.header.order(ByteOrder.LITTLE_ENDIAN);
+    this.modified = false;
+  }
+
+  /**
+   * Opens the tree stored in a file, creating an empty one if the file does not exist or is empty
+   *
+   * @param path
+   * @return the tree
+   * @throws IOException if the file cannot be mapped or is not a valid, cleanly synced tree file
+   */
+  public static MappedAvlTree open(Path path) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      boolean newFile = channel.size() == 0;
+      MappedAvlTree tree = new MappedAvlTree(path, channel);
+      if (newFile) {
+        tree.writeHeader(CLEAN);
+        tree.header.force();
+      } else {
+        tree.readHeader();
+      }
+      return tree;
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  @Override
+  public void insert(long key) {
+    markModified();
+    super.insert(key);
+  }
+
+  @Override
+  public void delete(long key) {
+    markModified();
+    super.delete(key);
+  }
+
+  /**
+   * Writes the header and forces all the modified pages of the file to the storage device. After
+   * sync() returns, reopening the file gives back the tree as it is now.
+   */
+  public void sync() {
+    checkOpen();
+    for (MappedByteBuffer chunk : mappedChunks) {
+      chunk.force();
+    }
+    writeHeader(CLEAN);
+    header.force();
+    modified = false;
+  }
+
+  /**
+   * Syncs the tree, unmaps the file and closes it
+   */
+  @Override
+  public void close() {
+    if (!isClosed()) {
+      sync();
+      super.close();
+      BufferCleaner.clean(header);
+      try {
+        channel.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  @Override
+  protected ByteBuffer allocateChunk(int chunkIndex) {
+    try {
+      long position = HEADER_BYTES + (long) chunkIndex * CHUNK_BYTES;
+      MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_WRITE, position, CHUNK_BYTES);
+      mappedChunks.add(chunk);
+      return chunk;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  protected void releaseChunks(ByteBuffer[] chunks, int chunkCount) {
+    for (MappedByteBuffer chunk : mappedChunks) {
+      BufferCleaner.clean(chunk);
+    }
+    mappedChunks.clear();
+  }
+
+  private void markModified() {
+    checkOpen();
+    if (!modified) {
+      header.putInt(H_STATE, MODIFIED);
+      header.force();
+      modified = true;
+    }
+  }
+
+  private void writeHeader(int state) {
+    header.putInt(H_MAGIC, MAGIC);
+    header.putInt(H_VERSION, VERSION);
+    header.putInt(H_NODE_BYTES, NODE_BYTES);
+    header.putInt(H_CHUNK_NODES, CHUNK_NODES);
+    header.putInt(H_TOP, top);
+    header.putInt(H_SIZE, size);
+    header.putInt(H_USED, used);
+    header.putInt(H_FREE, free);
+    header.putInt(H_CHUNK_COUNT, chunkCount());
+    header.putInt(H_STATE, state);
+  }
+
+  private void readHeader() throws IOException {
+    if (header.getInt(H_MAGIC) != MAGIC) {
+      throw new IOException(path + " is not an AVL tree file");
+    }
+    if (header.getInt(H_VERSION) != VERSION) {
+      throw new IOException("Unsupported AVL tree file version " + header.getInt(H_VERSION));
+    }
+    if (header.getInt(H_NODE_BYTES) != NODE_BYTES || header.getInt(H_CHUNK_NODES) != CHUNK_NODES) {
+      throw new IOException("Incompatible node layout in " + path);
+    }
+    if (header.getInt(H_STATE) != CLEAN) {
+      throw new IOException(path + " was modified and not synced before being closed");
+    }
+
+    int chunkCount = header.getInt(H_CHUNK_COUNT);
+    int headerTop = header.getInt(H_TOP);
+    int headerSize = header.getInt(H_SIZE);
+    int headerUsed = header.getInt(H_USED);
+    int headerFree = header.getInt(H_FREE);
+    if (chunkCount < 0 || headerUsed < 0 || headerUsed > (long) chunkCount * CHUNK_NODES
+        || !isNodeIndex(headerTop, headerUsed) || !isNodeIndex(headerFree, headerUsed)
+        || headerSize < 0 || headerSize > headerUsed) {
+      throw new IOException("Invalid header in " + path);
+    }
+    if (channel.size() < HEADER_BYTES + (long) chunkCount * CHUNK_BYTES) {
+      throw new IOException(path + " is truncated");
+    }
+    ensureChunks(chunkCount);
+    top = headerTop;
+    size = headerSize;
+    used = headerUsed;
+    free = headerFree;
+  }
+
+  /**
+   * @return true if index is NIL or one of the first used node indices
+   */
+  private static boolean isNodeIndex(int index, int used) {
+    return index == NIL || index >= 0 && index < used;
+  }
+}
@@ -0,0 +1,43 @@
+//  OffHeapAvlTree.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl;
+
+import java.nio.ByteBuffer;
+
+/**
+ * BufferAvlTree whose chunks are direct buffers allocated outside the Java heap, so the nodes are
+ * invisible to the garbage collector. The memory is given back to the operating system by close().
+ */
+public class OffHeapAvlTree extends BufferAvlTree {
+
+  public OffHeapAvlTree() {
+    super();
+  }
+
+  @Override
+  protected ByteBuffer allocateChunk(int chunkIndex) {
+    return ByteBuffer.allocateDirect(CHUNK_BYTES);
+  }
+
+  @Override
+  protected void releaseChunks(ByteBuffer[] chunks, int chunkCount) {
+    for (int i = 0; i < chunkCount; i++) {
+      BufferCleaner.clean(chunks[i]);
+      chunks[i] = null;
+    }
+  }
+}
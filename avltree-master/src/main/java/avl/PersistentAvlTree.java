@@ -0,0 +1,295 @@
+//  PersistentAvlTree.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Persistent Avl tree. Nodes are immutable: insert and delete copy the nodes on the path from the
+ * root to the changed position, O(log n) of them, and share every other node with the previous
+ * version of the tree.
+ *
+ * <p>A PersistentAvlTree is a mutable handle on the current root. snapshot() returns in O(1) a new
+ * handle on the same root, which later updates of either handle do not affect; versions nobody
+ * refers to any more are reclaimed by the garbage collector. A handle is not thread-safe, but the
+ * nodes are, so a snapshot can be read by any number of threads.
+ */
+public class PersistentAvlTree<T> implements Iterable<T> {
+
+  static final class Node<T> {
+    final T item;
+    final Node<T> left;
+    final Node<T> right;
+    final int height;
+    final int size;
+
+    Node(T item, Node<T> left, Node<T> right) {
+      this.item = item;
+      this.left = left;
+      this.right = right;
+      this.height = 1 + Math.max(height(left), height(right));
+      this.size = 1 + size(left) + size(right);
+    }
+  }
+
+  private Node<T> root;
+  final Comparator<? super T> comparator;
+
+  /**
+   * Constructor
+   *
+   * @param comparator
+   */
+  public PersistentAvlTree(Comparator<? super T> comparator) {
+    this(comparator, null);
+  }
+
+  PersistentAvlTree(Comparator<? super T> comparator, Node<T> root) {
+    this.comparator = comparator;
+    this.root = root;
+  }
+
+  static int height(Node<?> node) {
+    return node == null ? -1 : node.height;
+  }
+
+  static int size(Node<?> node) {
+    return node == null ? 0 : node.size;
+  }
+
+  Node<T> getRoot() {
+    return root;
+  }
+
+  void setRoot(Node<T> root) {
+    this.root = root;
+  }
+
+  /**
+   * @return a handle on the current version of the tree, independent of this one
+   */
+  public PersistentAvlTree<T> snapshot() {
+    return new PersistentAvlTree<T>(comparator, root);
+  }
+
+  public int getHeight() {
+    if (root == null) throw new NullPointerException();
+    return root.height;
+  }
+
+  /**
+   * @return the number of items in the tree
+   */
+  public int size() {
+    return size(root);
+  }
+
+  public boolean avlIsEmpty() {
+    return root == null;
+  }
+
+  /**
+   * @return the item stored in the tree that is equal to the one passed as argument, or null
+   */
+  public T search(T item) {
+    Node<T> node = searchNode(root, item);
+    return node == null ? null : node.item;
+  }
+
+  public boolean contains(T item) {
+    return searchNode(root, item) != null;
+  }
+
+  Node<T> searchNode(Node<T> start, T item) {
+    Node<T> node = start;
+    while (node != null) {
+      int comparison = comparator.compare(item, node.item);
+      if (comparison < 0) {
+        node = node.left;
+      } else if (comparison > 0) {
+        node = node.right;
+      } else {
+        return node;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Inserts an item; an item equal to one already in the tree is ignored
+   *
+   * @param item
+   */
+  public void insert(T item) {
+    root = insertNode(root, item);
+  }
+
+  public void delete(T item) {
+    root = deleteNode(root, item);
+  }
+
+  /**
+   * @return the root of a new version with the item, or node itself if the item was already there
+   */
+  Node<T> insertNode(Node<T> node, T item) {
+    if (node == null) {
+      return new Node<T>(item, null, null);
+    }
+
+    int comparison = comparator.compare(item, node.item);
+    if (comparison < 0) {
+      Node<T> left = insertNode(node.left, item);
+      return left == node.left ? node : balance(node.item, left, node.right);
+    } else if (comparison > 0) {
+      Node<T> right = insertNode(node.right, item);
+      return right == node.right ? node : balance(node.item, node.left, right);
+    }
+    return node;
+  }
+
+  /**
+   * @return the root of a new version without the item, or node itself if the item was not there
+   */
+  Node<T> deleteNode(Node<T> node, T item) {
+    if (node == null) {
+      return null;
+    }
+
+    int comparison = comparator.compare(item, node.item);
+    if (comparison < 0) {
+      Node<T> left = deleteNode(node.left, item);
+      return left == node.left ? node : balance(node.item, left, node.right);
+    } else if (comparison > 0) {
+      Node<T> right = deleteNode(node.right, item);
+      return right == node.right ? node : balance(node.item, node.left, right);
+    }
+
+    if (node.left == null) {
+      return node.right;
+    } else if (node.right == null) {
+      return node.left;
+    }
+    // has two children: the successor takes the place of the item
+    Node<T> successor = node.right;
+    while (successor.left != null) {
+      successor = successor.left;
+    }
+    return balance(successor.item, node.left, deleteMin(node.right));
+  }
+
+  private Node<T> deleteMin(Node<T> node) {
+    if (node.left == null) {
+      return node.right;
+    }
+    return balance(node.item, deleteMin(node.left), node.right);
+  }
+
+  /**
+   * Builds a node from two subtrees whose heights differ by at most two, rotating if needed
+   */
+  static <T> Node<T> balance(T item, Node<T> left, Node<T> right) {
+    int balance = height(left) - height(right);
+    if (balance > 1) {
+      if (height(left.left) >= height(left.right)) {
+        return rotateRight(item, left, right);
+      }
+      Node<T> newLeft = rotateLeft(left.item, left.left, left.right);
+      return rotateRight(item, newLeft, right);
+    } else if (balance < -1) {
+      if (height(right.right) >= height(right.left)) {
+        return rotateLeft(item, left, right);
+      }
+      Node<T> newRight = rotateRight(right.item, right.left, right.right);
+      return rotateLeft(item, left, newRight);
+    }
+    return new Node<T>(item, left, right);
+  }
+
+  /**
+   * @return the subtree (item, left, right) with its left child rotated up
+   */
+  private static <T> Node<T> rotateRight(T item, Node<T> left, Node<T> right) {
+    return new Node<T>(left.item, left.left, new Node<T>(item, left.right, right));
+  }
+
+  /**
+   * @return the subtree (item, left, right) with its right child rotated up
+   */
+  private static <T> Node<T> rotateLeft(T item, Node<T> left, Node<T> right) {
+    return new Node<T>(right.item, new Node<T>(item, left, right.left), right.right);
+  }
+
+  /**
+   * Iterates over the items in ascending order of the version the tree had when iterator() was
+   * called, whatever the updates made in between.
+   */
+  @Override
+  public Iterator<T> iterator() {
+    Deque<Node<T>> pending = new ArrayDeque<>();
+    for (Node<T> node = root; node != null; node = node.left) {
+      pending.push(node);
+    }
+
+    return new Iterator<T>() {
+      @Override
+      public boolean hasNext() {
+        return !pending.isEmpty();
+      }
+
+      @Override
+      public T next() {
+        if (pending.isEmpty()) {
+          throw new NoSuchElementException();
+        }
+        Node<T> node = pending.pop();
+        for (Node<T> next = node.right; next != null; next = next.left) {
+          pending.push(next);
+        }
+        return node.item;
+      }
+    };
+  }
+
+  /**
+   * @return the items of the tree in pre-order (node, left subtree, right subtree), each one
+   * preceded by " | "
+   */
+  public String toString() {
+    StringBuilder result = new StringBuilder();
+    Deque<Node<T>> pending = new ArrayDeque<>();
+
+    if (root != null) {
+      pending.push(root);
+    }
+    while (!pending.isEmpty()) {
+      Node<T> node = pending.pop();
+      result.append(" | ").append(node.item);
+      if (node.right != null) {
+        pending.push(node.right);
+      }
+      if (node.left != null) {
+        pending.push(node.left);
+      }
+    }
+
+    return result.toString();
+  }
+}
@@ -0,0 +1,361 @@
+//  ShardedAvlTree.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Thread-safe set made of independent Avl trees, each holding one range of the items.
+ *
+ * <p>Shard i holds the items from its lower bound (inclusive) up to the lower bound of shard i + 1
+ * (exclusive); the first shard has no lower bound. Every shard has its own read/write lock, so
+ * updates of different ranges run in parallel. An operation finds its shard by a binary search
+ * over the bounds without locking, then checks the bounds again under the shard lock and retries if
+ * a rebalancing moved them in between.
+ *
+ * <p>When a shard grows more than SKEW_FACTOR times the average shard size, or, with so few
+ * shards that this cannot happen, beyond the midpoint between its fair share and every item, the
+ * bounds are recomputed so that every shard holds the same number of items, and the shards are
+ * rebuilt with AvlTree.bulkLoad. Rebalancing locks every shard in ascending order.
+ */
+public class ShardedAvlTree<T> implements Iterable<T> {
+
+  static final int SKEW_FACTOR = 4;
+  /** Shards smaller than this never trigger a rebalancing */
+  static final int MIN_REBALANCE_SIZE = 1024;
+
+  static final class Shard<T> {
+    final ReentrantReadWriteLock lock;
+    AvlTree<T> tree;
+    /** Smallest item the shard may hold, null for the first shard */
+    volatile T lower;
+    /** Number of items, readable without the lock */
+    volatile int size;
+
+    Shard(AvlTree<T> tree, T lower) {
+      this.lock = new ReentrantReadWriteLock();
+      this.tree = tree;
+      this.lower = lower;
+      this.size = 0;
+    }
+  }
+
+  private final Shard<T>[] shards;
+  final Comparator<? super T> comparator;
+
+  /**
+   * Constructor
+   *
+   * @param comparator
+   * @param splits the initial lower bounds of the shards after the first one, in ascending order;
+   *     there is one more shard than splits
+   * @throws IllegalArgumentException if the splits are not in strictly ascending order
+   */
+  @SuppressWarnings("unchecked")
+  public ShardedAvlTree(Comparator<? super T> comparator, List<? extends T> splits) {
+    for (int i = 1; i < splits.size(); i++) {
+      if (comparator.compare(splits.get(i - 1), splits.get(i)) >= 0) {
+        throw new IllegalArgumentException("Splits are not in strictly ascending order");
+      }
+    }
+
+    this.comparator = comparator;
+    this.shards = (Shard<T>[]) new Shard<?>[splits.size() + 1];
+    for (int i = 0; i < shards.length; i++) {
+      shards[i] = new Shard<T>(new AvlTree<T>(comparator), i == 0 ? null : splits.get(i - 1));
+    }
+  }
+
+  public int shardCount() {
+    return shards.length;
+  }
+
+  /**
+   * @return the number of items of each shard
+   */
+  public int[] shardSizes() {
+    int[] sizes = new int[shards.length];
+    for (int i = 0; i < shards.length; i++) {
+      sizes[i] = shards[i].size;
+    }
+    return sizes;
+  }
+
+  /**
+   * @return the number of items; not a snapshot if updates are in progress
+   */
+  public int size() {
+    int size = 0;
+    for (Shard<T> shard : shards) {
+      size += shard.size;
+    }
+    return size;
+  }
+
+  public boolean avlIsEmpty() {
+    return size() == 0;
+  }
+
+  private int route(T item) {
+    int from = 1;
+    int to = shards.length - 1;
+    while (from <= to) {
+      int middle = (from + to) >>> 1;
+      if (comparator.compare(item, shards[middle].lower) < 0) {
+        to = middle - 1;
+      } else {
+        from = middle + 1;
+      }
+    }
+    return to;
+  }
+
+  /**
+   * Checks that the item belongs to shard index; a lock of that shard must be held
+   */
+  private boolean holds(int index, T item) {
+    T lower = shards[index].lower;
+    if (lower != null && comparator.compare(item, lower) < 0) {
+      return false;
+    }
+    return index == shards.length - 1 || comparator.compare(item, shards[index + 1].lower) < 0;
+  }
+
+  /**
+   * Locks the shard of an item for reading
+   *
+   * @return the shard index
+   */
+  private int lockForReading(T item) {
+    while (true) {
+      int index = route(item);
+      shards[index].lock.readLock().lock();
+      if (holds(index, item)) {
+        return index;
+      }
+      shards[index].lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Locks the shard of an item for writing
+   *
+   * @return the shard index
+   */
+  private int lockForWriting(T item) {
+    while (true) {
+      int index = route(item);
+      shards[index].lock.writeLock().lock();
+      if (holds(index, item)) {
+        return index;
+      }
+      shards[index].lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * @return the item stored in the tree that is equal to the one passed as argument, or null
+   */
+  public T search(T item) {
+    int index = lockForReading(item);
+    try {
+      AvlNode<T> node = shards[index].tree.search(item);
+      return node == null ? null : node.getItem();
+    } finally {
+      shards[index].lock.readLock().unlock();
+    }
+  }
+
+  public boolean contains(T item) {
+    return search(item) != null;
+  }
+
+  public void insert(T item) {
+    int index = lockForWriting(item);
+    Shard<T> shard = shards[index];
+    int size;
+    try {
+      shard.tree.insert(item);
+      size = shard.tree.size();
+      shard.size = size;
+    } finally {
+      shard.lock.writeLock().unlock();
+    }
+
+    if (isSkewed(size, size(), shards.length)) {
+      rebalance(true);
+    }
+  }
+
+  public void delete(T item) {
+    int index = lockForWriting(item);
+    Shard<T> shard = shards[index];
+    try {
+      shard.tree.delete(item);
+      shard.size = shard.tree.size();
+    } finally {
+      shard.lock.writeLock().unlock();
+    }
+
+    int largest = 0;
+    for (Shard<T> other : shards) {
+      largest = Math.max(largest, other.size);
+    }
+    if (isSkewed(largest, size(), shards.length)) {
+      rebalance(true);
+    }
+  }
+
+  /**
+   * @param shardSize the number of items of a shard
+   * @param total the number of items of every shard
+   * @param shardCount
+   * @return whether the shard holds more than SKEW_FACTOR times the average shard size, capped at
+   *     the midpoint between the average and total so that the bound is reachable with few shards
+   */
+  static boolean isSkewed(int shardSize, int total, int shardCount) {
+    long average = Math.max(1, total / shardCount);
+    long threshold = Math.min(SKEW_FACTOR * average, (total + average) / 2);
+    return shardSize >= MIN_REBALANCE_SIZE && shardSize > threshold;
+  }
+
+  /**
+   * Moves the shard bounds so that every shard holds the same number of items, give or take one,
+   * and rebuilds the shards. Does nothing if there are fewer items than shards.
+   */
+  public void rebalanceShards() {
+    rebalance(false);
+  }
+
+  /**
+   * @param onlyIfSkewed whether to check again, with every shard locked, that a shard is still
+   *     too large, as another thread may have rebalanced first
+   */
+  @SuppressWarnings("unchecked")
+  private void rebalance(boolean onlyIfSkewed) {
+    for (Shard<T> shard : shards) {
+      shard.lock.writeLock().lock();
+    }
+    try {
+      int total = 0;
+      int largest = 0;
+      for (Shard<T> shard : shards) {
+        total += shard.tree.size();
+        largest = Math.max(largest, shard.tree.size());
+      }
+      if (total < shards.length) {
+        return;
+      }
+      if (onlyIfSkewed && !isSkewed(largest, total, shards.length)) {
+        return;
+      }
+
+      T[] items = (T[]) new Object[total];
+      int count = 0;
+      for (Shard<T> shard : shards) {
+        for (T item : shard.tree) {
+          items[count++] = item;
+        }
+      }
+
+      for (int i = 0; i < shards.length; i++) {
+        int from = (int) ((long) total * i / shards.length);
+        int to = (int) ((long) total * (i + 1) / shards.length);
+        AvlTree<T> tree = new AvlTree<T>(comparator);
+        tree.bulkLoad(Arrays.spliterator(items, from, to));
+        shards[i].tree = tree;
+        shards[i].size = to - from;
+        shards[i].lower = i == 0 ? null : items[from];
+      }
+    } finally {
+      for (int i = shards.length - 1; i >= 0; i--) {
+        shards[i].lock.writeLock().unlock();
+      }
+    }
+  }
+
+  /**
+   * Iterates over the items in ascending order, shard after shard. The items of each shard are
+   * copied under its read lock when the iteration reaches it, so items inserted or deleted
+   * concurrently may or may not be seen; items are never returned twice or out of order.
+   */
+  @Override
+  public Iterator<T> iterator() {
+    return new ShardIterator();
+  }
+
+  private class ShardIterator implements Iterator<T> {
+    private int nextShard;
+    private Object[] items;
+    private int index;
+    private T lastReturned;
+
+    ShardIterator() {
+      nextShard = 0;
+      items = new Object[0];
+      index = 0;
+      lastReturned = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean advance() {
+      while (index == items.length) {
+        if (nextShard == shards.length) {
+          return false;
+        }
+        Shard<T> shard = shards[nextShard++];
+        shard.lock.readLock().lock();
+        try {
+          items = new Object[shard.tree.size()];
+          int count = 0;
+          for (T item : shard.tree) {
+            items[count++] = item;
+          }
+        } finally {
+          shard.lock.readLock().unlock();
+        }
+        // a rebalancing may have moved items already returned into the shards after them
+        index = 0;
+        while (index < items.length && lastReturned != null
+            && comparator.compare((T) items[index], lastReturned) <= 0) {
+          index++;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return advance();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+      if (!advance()) {
+        throw new NoSuchElementException();
+      }
+      lastReturned = (T) items[index++];
+      return lastReturned;
+    }
+  }
+}
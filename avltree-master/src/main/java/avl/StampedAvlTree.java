@@ -0,0 +1,305 @@
+//  StampedAvlTree.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Thread-safe facade over an AvlTree for read-mostly use.
+ *
+ * <p>Reads first run without any lock under a StampedLock optimistic stamp and are validated
+ * afterwards. A read that overlaps a write may follow links that are being rotated, so optimistic
+ * searches give up after MAX_OPTIMISTIC_STEPS steps; a read whose stamp fails validation is retried
+ * optimistically once more and then runs under the read lock.
+ *
+ * <p>Writes are queued and applied by flat combining: the thread that gets the write lock applies
+ * every queued write, up to MAX_BATCH, while the others wait for their writes to be done instead of
+ * taking the lock one after another.
+ */
+public class StampedAvlTree<T> {
+
+  /** More than the height of any Avl tree that fits in memory */
+  static final int MAX_OPTIMISTIC_STEPS = 64;
+  static final int OPTIMISTIC_ATTEMPTS = 2;
+  static final int MAX_BATCH = 256;
+  static final int SPIN_COUNT = 64;
+
+  /** Result of an optimistic search that took too many steps */
+  @SuppressWarnings("rawtypes")
+  private static final AvlNode SEARCH_ABANDONED = new AvlNode<>(null);
+
+  /** A queued write, done once a combining thread has applied it */
+  static final class Write<T> {
+    final T item;
+    final boolean insert;
+    RuntimeException failure;
+    volatile boolean done;
+
+    Write(T item, boolean insert) {
+      this.item = item;
+      this.insert = insert;
+    }
+  }
+
+  private final AvlTree<T> tree;
+  private final StampedLock lock;
+  private final ConcurrentLinkedQueue<Write<T>> writes;
+
+  /**
+   * Constructor
+   *
+   * @param comparator the order of the items, or null for their natural order
+   */
+  public StampedAvlTree(Comparator<? super T> comparator) {
+    this.tree = new AvlTree<T>(comparator);
+    this.lock = new StampedLock();
+    this.writes = new ConcurrentLinkedQueue<>();
+  }
+
+  /**
+   * @return the item stored in the tree that is equal to the one passed as argument, or null
+   */
+  public T search(T item) {
+    for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+      long stamp = lock.tryOptimisticRead();
+      if (stamp == 0) {
+        continue;
+      }
+      AvlNode<T> node;
+      try {
+        node = searchNode(item, MAX_OPTIMISTIC_STEPS);
+      } catch (RuntimeException exception) {
+        if (lock.validate(stamp)) {
+          throw exception;
+        }
+        continue;
+      }
+      if (node != SEARCH_ABANDONED) {
+        T result = node == null ? null : node.getItem();
+        if (lock.validate(stamp)) {
+          return result;
+        }
+      }
+    }
+
+    long stamp = lock.readLock();
+    try {
+      AvlNode<T> node = searchNode(item, Integer.MAX_VALUE);
+      return node == null ? null : node.getItem();
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  public boolean contains(T item) {
+    return search(item) != null;
+  }
+
+  /**
+   * Searches for the node of an item, giving up after maxSteps nodes
+   *
+   * @return the node, null if the item is not in the tree, or SEARCH_ABANDONED
+   */
+  @SuppressWarnings("unchecked")
+  private AvlNode<T> searchNode(T item, int maxSteps) {
+    AvlNode<T> node = tree.getTop();
+    for (int steps = 0; node != null; steps++) {
+      if (steps == maxSteps) {
+        return SEARCH_ABANDONED;
+      }
+      int comparison = tree.compare(item, node.getItem());
+      if (comparison < 0) {
+        node = node.getLeft();
+      } else if (comparison > 0) {
+        node = node.getRight();
+      } else {
+        return node;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the height of the tree
+   * @throws NullPointerException if the tree is empty
+   */
+  public int getHeight() {
+    long stamp = lock.tryOptimisticRead();
+    AvlNode<T> top = tree.getTop();
+    int height = top == null ? -1 : top.getHeight();
+    if (!lock.validate(stamp)) {
+      stamp = lock.readLock();
+      try {
+        top = tree.getTop();
+        height = top == null ? -1 : top.getHeight();
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+    if (height < 0) throw new NullPointerException();
+    return height;
+  }
+
+  /**
+   * @return the number of items in the tree
+   */
+  public int size() {
+    long stamp = lock.tryOptimisticRead();
+    int size = tree.size();
+    if (!lock.validate(stamp)) {
+      stamp = lock.readLock();
+      try {
+        size = tree.size();
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+    return size;
+  }
+
+  public boolean avlIsEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * Performs an action for each item in ascending order, on a consistent snapshot of the items
+   * taken before the first call of the action.
+   *
+   * @param action
+   */
+  public void forEach(Consumer<? super T> action) {
+    List<T> items = null;
+    for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS && items == null; attempt++) {
+      long stamp = lock.tryOptimisticRead();
+      if (stamp != 0) {
+        items = optimisticItems(stamp);
+      }
+    }
+    if (items == null) {
+      long stamp = lock.readLock();
+      try {
+        items = new ArrayList<>(tree.size());
+        for (T item : tree) {
+          items.add(item);
+        }
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+    items.forEach(action);
+  }
+
+  /**
+   * Copies the items in order without locking, visiting at most twice as many nodes as the tree
+   * had items when the copy started
+   *
+   * @return the items, or null if the stamp failed validation
+   */
+  private List<T> optimisticItems(long stamp) {
+    List<T> items = new ArrayList<>();
+    try {
+      int maxSteps = 2 * tree.size() + MAX_OPTIMISTIC_STEPS;
+      int steps = 0;
+      AvlNode<T> node = tree.getTop();
+      while (node != null && node.getLeft() != null && steps++ < maxSteps) {
+        node = node.getLeft();
+      }
+      while (node != null && steps++ < maxSteps) {
+        items.add(node.getItem());
+        if (node.getRight() != null) {
+          node = node.getRight();
+          while (node.getLeft() != null && steps++ < maxSteps) {
+            node = node.getLeft();
+          }
+        } else {
+          AvlNode<T> child = node;
+          node = node.getParent();
+          while (node != null && node.getRight() == child && steps++ < maxSteps) {
+            child = node;
+            node = node.getParent();
+          }
+        }
+      }
+      if (steps >= maxSteps) {
+        return null;
+      }
+    } catch (RuntimeException exception) {
+      if (lock.validate(stamp)) {
+        throw exception;
+      }
+      return null;
+    }
+    return lock.validate(stamp) ? items : null;
+  }
+
+  public void insert(T item) {
+    write(new Write<T>(item, true));
+  }
+
+  public void delete(T item) {
+    write(new Write<T>(item, false));
+  }
+
+  /**
+   * Queues a write and waits until some thread, possibly this one, has applied it
+   */
+  private void write(Write<T> write) {
+    writes.add(write);
+    int spins = 0;
+    while (!write.done) {
+      long stamp = spins < SPIN_COUNT ? lock.tryWriteLock() : lock.writeLock();
+      if (stamp == 0) {
+        spins++;
+        Thread.onSpinWait();
+        continue;
+      }
+      try {
+        combine();
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+    if (write.failure != null) {
+      throw write.failure;
+    }
+  }
+
+  /**
+   * Applies queued writes in arrival order. The write lock must be held. An exception thrown by a
+   * write is handed to the thread that queued it.
+   */
+  private void combine() {
+    Write<T> write;
+    for (int i = 0; i < MAX_BATCH && (write = writes.poll()) != null; i++) {
+      try {
+        if (write.insert) {
+          tree.insert(write.item);
+        } else {
+          tree.delete(write.item);
+        }
+      } catch (RuntimeException exception) {
+        write.failure = exception;
+      }
+      write.done = true;
+    }
+  }
+}
@@ -0,0 +1,97 @@
+//  SyncPolicy.java
+//
+//  This program is free software: you can redistribute it and/or modify
+//  it under the terms of the GNU Lesser General Public License as published by
+//  the Free Software Foundation, either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU Lesser General Public License for more details.
+//
+//  You should have received a copy of the GNU Lesser General Public License
+//  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+//
+
+package avl;
+
+import java.time.Duration;
+
+/**
+ * When DurableAvlTree forces its log to the storage device. Concurrent writers share each force
+ * (group commit) under every policy; the policies differ in how long a write may stay in memory
+ * after it returns.
+ */
+public final class SyncPolicy {
+
+  enum Kind {
+    EVERY_OPERATION, INTERVAL, BYTES
+  }
+
+  private final Kind kind;
+  private final long intervalNanos;
+  private final long maxPendingBytes;
+
+  private SyncPolicy(Kind kind, long intervalNanos, long maxPendingBytes) {
+    this.kind = kind;
+    this.intervalNanos = intervalNanos;
+    this.maxPendingBytes = maxPendingBytes;
+  }
+
+  /**
+   * @return a policy under which insert and delete return once their record is on the device, so
+   * no acknowledged write is lost
+   */
+  public static SyncPolicy everyOperation() {
+    return new SyncPolicy(Kind.EVERY_OPERATION, 0, 0);
+  }
+
+  /**
+   * @param interval the longest time a write stays only in memory
+   * @return a policy under which the log is forced in the background once per interval, losing at
+   * most the writes of the last interval in a crash
+   */
+  public static SyncPolicy everyInterval(Duration interval) {
+    if (interval.isNegative() || interval.isZero()) {
+      throw new IllegalArgumentException("The interval must be positive");
+    }
+    return new SyncPolicy(Kind.INTERVAL, interval.toNanos(), 0);
+  }
+
+  /**
+   * @param maxPendingBytes the largest amount of log records kept only in memory
+   * @return a policy under which the write that takes the unforced records to maxPendingBytes
+   * forces them, losing at most that many bytes of records in a crash
+   */
+  public static SyncPolicy everyBytes(long maxPendingBytes) {
+    if (maxPendingBytes <= 0) {
+      throw new IllegalArgumentException("The number of bytes must be positive");
+    }
+    return new SyncPolicy(Kind.BYTES, 0, maxPendingBytes);
+  }
+
+  Kind getKind() {
+    return kind;
+  }
+
+  long getIntervalNanos() {
+    return intervalNanos;
+  }
+
+  long getMaxPendingBytes() {
+    return maxPendingBytes;
+  }
+
+  @Override
+  public String toString() {
+    switch (kind) {
+      case INTERVAL:
+        return "everyInterval(" + Duration.ofNanos(intervalNanos) + ")";
+      case BYTES:
+        return "everyBytes(" + maxPendingBytes + ")";
+      default:
+        return "everyOperation()";
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package avl;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArrayAvlTreeTest {
+
+    ArrayAvlTree<Integer> avlTree;
+    Comparator<Integer> comparator;
+
+    @BeforeEach
+    public void setUp() {
+        comparator = Comparator.naturalOrder();
+        avlTree = new ArrayAvlTree<>(comparator, 4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        avlTree = null;
+        comparator = null;
+    }
+
+    @Test
+    @DisplayName("ArrayAvlTree is empty before anything is inserted")
+    public void avlTreeIsEmpty() {
+        assertAll(
+                () -> assertTrue(avlTree.avlIsEmpty()),
+                () -> assertEquals(0, avlTree.size()),
+                () -> assertThrows(NullPointerException.class, () -> avlTree.getHeight())
+        );
+    }
+
+    @Test
+    @DisplayName("Search returns the stored item or null")
+    public void searchReturnsStoredItem() {
+        avlTree.insert(4);
+        avlTree.insert(8);
+
+        assertAll(
+                () -> assertEquals(8, avlTree.search(8)),
+                () -> assertNull(avlTree.search(5)),
+                () -> assertTrue(avlTree.contains(4))
+        );
+    }
+
+    @Test
+    @DisplayName("Random inserts and deletes build the same tree as AvlTree")
+    public void randomOperationsBuildSameTreeAsAvlTree() {
+        AvlTree<Integer> expected = new AvlTree<>(comparator);
+        Random random = new Random(3);
+
+        for (int i = 0; i < 5000; i++) {
+            int item = random.nextInt(500);
+            if (random.nextInt(3) > 0) {
+                avlTree.insert(item);
+                expected.insert(item);
+            } else {
+                avlTree.delete(item);
+                expected.delete(item);
+            }
+            assertEquals(expected.toString(), avlTree.toString());
+        }
+        assertEquals(expected.getHeight(), avlTree.getHeight());
+    }
+
+    @Test
+    @DisplayName("Slots of deleted nodes are reused instead of growing the arrays")
+    public void deletedSlotsAreReused() {
+        for (int item = 0; item < 100; item++) {
+            avlTree.insert(item);
+        }
+        int capacity = avlTree.capacity();
+
+        for (int item = 0; item < 100; item += 2) {
+            avlTree.delete(item);
+        }
+        for (int item = 100; item < 150; item++) {
+            avlTree.insert(item);
+        }
+
+        assertAll(
+                () -> assertEquals(100, avlTree.size()),
+                () -> assertEquals(capacity, avlTree.capacity())
+        );
+    }
+
+    @Test
+    @DisplayName("Bytes per entry is 20 plus the unused capacity and array headers")
+    public void bytesPerEntry() {
+        ArrayAvlTree<Integer> tree = new ArrayAvlTree<>(comparator, 1000);
+        for (int item = 0; item < 1000; item++) {
+            tree.insert(item);
+        }
+
+        assertEquals(20.0 + 5 * 16 / 1000.0, tree.bytesPerEntry(), 1e-9);
+    }
+}
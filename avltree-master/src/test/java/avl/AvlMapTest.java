@@ -0,0 +1,284 @@
+package avl;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AvlMapTest {
+
+    AvlMap<Integer, String> avlMap;
+
+    @BeforeEach
+    public void setUp() {
+        avlMap = new AvlMap<>();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        avlMap = null;
+    }
+
+    private static NavigableMap<Integer, String> fill(NavigableMap<Integer, String> map, int... keys) {
+        for (int key : keys) {
+            map.put(key, "v" + key);
+        }
+        return map;
+    }
+
+    private static void assertSameMap(NavigableMap<Integer, String> expected,
+            NavigableMap<Integer, String> actual) {
+        assertEquals(expected, actual);
+        assertEquals(expected.size(), actual.size());
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(actual.keySet()));
+        assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(actual.values()));
+        assertEquals(expected.firstEntry(), actual.firstEntry());
+        assertEquals(expected.lastEntry(), actual.lastEntry());
+    }
+
+    @Test
+    @DisplayName("AvlMap is empty before anything is put")
+    public void avlMapIsEmpty() {
+        assertAll(
+                () -> assertTrue(avlMap.isEmpty()),
+                () -> assertEquals(0, avlMap.size()),
+                () -> assertNull(avlMap.get(1)),
+                () -> assertNull(avlMap.firstEntry()),
+                () -> assertNull(avlMap.pollFirstEntry()),
+                () -> assertThrows(NoSuchElementException.class, () -> avlMap.firstKey()),
+                () -> assertNull(avlMap.comparator())
+        );
+    }
+
+    @Nested
+    @DisplayName("Single descent updates")
+    class Updates {
+
+        @Test
+        @DisplayName("put returns the previous value and replaces it in place")
+        public void put() {
+            assertNull(avlMap.put(5, "a"));
+            assertNull(avlMap.put(3, "b"));
+            assertEquals("a", avlMap.put(5, "c"));
+            assertEquals(2, avlMap.size());
+            assertEquals("c", avlMap.get(5));
+            assertEquals("b", avlMap.get(3));
+        }
+
+        @Test
+        @DisplayName("merge inserts absent keys, combines present ones and removes on null")
+        public void merge() {
+            avlMap.merge(1, "a", String::concat);
+            avlMap.merge(1, "b", String::concat);
+            assertEquals("ab", avlMap.get(1));
+            assertNull(avlMap.merge(1, "c", (oldValue, value) -> null));
+            assertFalse(avlMap.containsKey(1));
+        }
+
+        @Test
+        @DisplayName("computeIfAbsent only calls the function for absent keys")
+        public void computeIfAbsent() {
+            List<Integer> calls = new ArrayList<>();
+            assertEquals("v7", avlMap.computeIfAbsent(7, key -> {
+                calls.add(key);
+                return "v" + key;
+            }));
+            assertEquals("v7", avlMap.computeIfAbsent(7, key -> {
+                calls.add(key);
+                return "other";
+            }));
+            assertNull(avlMap.computeIfAbsent(8, key -> null));
+            assertEquals(List.of(7), calls);
+            assertEquals(1, avlMap.size());
+        }
+
+        @Test
+        @DisplayName("compute and computeIfPresent update or remove the entry")
+        public void compute() {
+            avlMap.compute(2, (key, value) -> value == null ? "x" : value + "x");
+            avlMap.compute(2, (key, value) -> value == null ? "x" : value + "x");
+            assertEquals("xx", avlMap.get(2));
+            assertEquals("xxy", avlMap.computeIfPresent(2, (key, value) -> value + "y"));
+            assertNull(avlMap.computeIfPresent(3, (key, value) -> "z"));
+            assertNull(avlMap.compute(2, (key, value) -> null));
+            assertTrue(avlMap.isEmpty());
+        }
+
+        @Test
+        @DisplayName("replace only changes present keys")
+        public void replace() {
+            fill(avlMap, 1, 2);
+            assertNull(avlMap.replace(3, "c"));
+            assertFalse(avlMap.containsKey(3));
+            assertEquals("v1", avlMap.replace(1, "a"));
+            assertFalse(avlMap.replace(2, "wrong", "b"));
+            assertTrue(avlMap.replace(2, "v2", "b"));
+            assertEquals(Map.of(1, "a", 2, "b"), avlMap);
+        }
+
+        @Test
+        @DisplayName("A function that modifies the map makes the update fail")
+        public void functionModifyingTheMap() {
+            fill(avlMap, 1);
+            assertThrows(ConcurrentModificationException.class,
+                    () -> avlMap.computeIfAbsent(2, key -> avlMap.put(3, "c")));
+        }
+
+        @Test
+        @DisplayName("Random updates give the same map as TreeMap")
+        public void randomUpdates() {
+            TreeMap<Integer, String> expected = new TreeMap<>();
+            Random random = new Random(19);
+            for (int i = 0; i < 20000; i++) {
+                int key = random.nextInt(500);
+                String value = Integer.toString(random.nextInt(10));
+                switch (random.nextInt(6)) {
+                    case 0 -> assertEquals(expected.put(key, value), avlMap.put(key, value));
+                    case 1 -> assertEquals(expected.remove(key), avlMap.remove(key));
+                    case 2 -> assertEquals(expected.merge(key, value, String::concat),
+                            avlMap.merge(key, value, String::concat));
+                    case 3 -> assertEquals(expected.computeIfAbsent(key, k -> value),
+                            avlMap.computeIfAbsent(key, k -> value));
+                    case 4 -> assertEquals(expected.compute(key, (k, v) -> v == null ? value : null),
+                            avlMap.compute(key, (k, v) -> v == null ? value : null));
+                    default -> assertEquals(expected.pollFirstEntry(), avlMap.pollFirstEntry());
+                }
+            }
+            assertSameMap(expected, avlMap);
+        }
+    }
+
+    @Nested
+    @DisplayName("Navigation")
+    class Navigation {
+
+        @Test
+        @DisplayName("Navigation methods agree with TreeMap")
+        public void navigation() {
+            NavigableMap<Integer, String> expected = fill(new TreeMap<>(), 10, 20, 30, 40);
+            fill(avlMap, 10, 20, 30, 40);
+            for (int key = 5; key <= 45; key += 5) {
+                assertEquals(expected.lowerEntry(key), avlMap.lowerEntry(key));
+                assertEquals(expected.floorKey(key), avlMap.floorKey(key));
+                assertEquals(expected.ceilingEntry(key), avlMap.ceilingEntry(key));
+                assertEquals(expected.higherKey(key), avlMap.higherKey(key));
+            }
+        }
+
+        @Test
+        @DisplayName("Entries returned by navigation methods are snapshots")
+        public void snapshotEntries() {
+            fill(avlMap, 1);
+            Map.Entry<Integer, String> entry = avlMap.firstEntry();
+            assertThrows(UnsupportedOperationException.class, () -> entry.setValue("x"));
+            avlMap.put(1, "y");
+            assertEquals("v1", entry.getValue());
+        }
+
+        @Test
+        @DisplayName("A comparator orders the keys")
+        public void comparatorOrder() {
+            AvlMap<Integer, String> reversed = new AvlMap<>(Comparator.reverseOrder());
+            fill(reversed, 1, 3, 2);
+            assertEquals(List.of(3, 2, 1), new ArrayList<>(reversed.keySet()));
+            assertEquals(2, reversed.higherKey(3));
+        }
+    }
+
+    @Nested
+    @DisplayName("Views and iterators")
+    class Views {
+
+        @Test
+        @DisplayName("Sub maps, descending maps and their key sets agree with TreeMap")
+        public void views() {
+            NavigableMap<Integer, String> expected = new TreeMap<>();
+            for (int key = 0; key < 100; key += 3) {
+                expected.put(key, "v" + key);
+                avlMap.put(key, "v" + key);
+            }
+            assertSameMap(expected.subMap(10, true, 50, false), avlMap.subMap(10, true, 50, false));
+            assertSameMap(expected.headMap(30, true), avlMap.headMap(30, true));
+            assertSameMap(expected.tailMap(31, false), avlMap.tailMap(31, false));
+            assertSameMap(expected.descendingMap(), avlMap.descendingMap());
+            assertSameMap(expected.descendingMap().subMap(60, true, 20, true),
+                    avlMap.descendingMap().subMap(60, true, 20, true));
+            assertSameMap(expected.descendingMap().headMap(30, false).tailMap(60, true),
+                    avlMap.descendingMap().headMap(30, false).tailMap(60, true));
+            assertEquals(new ArrayList<>(expected.descendingKeySet().headSet(50)),
+                    new ArrayList<>(avlMap.descendingKeySet().headSet(50)));
+            assertEquals(expected.subMap(10, 50).lastKey(), avlMap.subMap(10, 50).lastKey());
+        }
+
+        @Test
+        @DisplayName("Views write through to the map and reject keys out of range")
+        public void viewsWriteThrough() {
+            fill(avlMap, 1, 2, 3, 4, 5);
+            NavigableMap<Integer, String> view = avlMap.subMap(2, true, 4, true);
+            view.put(3, "c");
+            assertEquals("c", avlMap.get(3));
+            assertThrows(IllegalArgumentException.class, () -> view.put(5, "e"));
+            assertThrows(IllegalArgumentException.class, () -> view.subMap(1, 3));
+            view.clear();
+            assertEquals(List.of(1, 5), new ArrayList<>(avlMap.keySet()));
+            assertTrue(view.isEmpty());
+        }
+
+        @Test
+        @DisplayName("Removing through iterators keeps the iteration going in both directions")
+        public void iteratorRemove() {
+            NavigableMap<Integer, String> expected = new TreeMap<>();
+            for (int key = 0; key < 200; key++) {
+                expected.put(key, "v" + key);
+                avlMap.put(key, "v" + key);
+            }
+            List<Integer> seen = new ArrayList<>();
+            for (Iterator<Integer> iterator = avlMap.keySet().iterator(); iterator.hasNext(); ) {
+                int key = iterator.next();
+                seen.add(key);
+                if (key % 3 == 0) {
+                    iterator.remove();
+                    expected.remove(key);
+                }
+            }
+            assertEquals(200, seen.size());
+            for (Iterator<Integer> iterator = avlMap.descendingKeySet().iterator(); iterator.hasNext(); ) {
+                if (iterator.next() % 2 == 0) {
+                    iterator.remove();
+                }
+            }
+            expected.keySet().removeIf(key -> key % 2 == 0);
+            assertSameMap(expected, avlMap);
+        }
+
+        @Test
+        @DisplayName("Entries of the entry set write through")
+        public void entrySetWritesThrough() {
+            fill(avlMap, 1, 2);
+            for (Map.Entry<Integer, String> entry : avlMap.entrySet()) {
+                entry.setValue("x" + entry.getKey());
+            }
+            assertEquals(Map.of(1, "x1", 2, "x2"), avlMap);
+        }
+
+        @Test
+        @DisplayName("Iterators fail fast after a structural modification")
+        public void failFast() {
+            fill(avlMap, 1, 2, 3);
+            Iterator<Integer> iterator = avlMap.keySet().iterator();
+            iterator.next();
+            avlMap.put(4, "d");
+            assertThrows(ConcurrentModificationException.class, iterator::next);
+        }
+    }
+}
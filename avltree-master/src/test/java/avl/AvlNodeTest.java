@@ -47,4 +47,21 @@ public class AvlNodeTest {
 
     assertEquals(expectedHeight, actualHeight);
   }
+
+  @Test
+  @DisplayName("updateSize counts the nodes of the subtree")
+  public void shouldUpdateSize() {
+    AvlNode<Integer> left = new AvlNode<Integer>(4);
+    AvlNode<Integer> right = new AvlNode<Integer>(6);
+    right.setSize(3);
+    node.setLeft(left);
+    node.setRight(right);
+
+    node.updateSize();
+
+    assertAll(
+        () -> assertEquals(1, left.getSize()),
+        () -> assertEquals(5, node.getSize())
+    );
+  }
 }
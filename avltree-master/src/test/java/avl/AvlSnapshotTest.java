@@ -0,0 +1,256 @@
+package avl;
+
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AvlSnapshotTest {
+
+    static final KeySerializer<Integer> INTEGERS = new KeySerializer<Integer>() {
+        @Override
+        public int serializedSize(Integer item) {
+            return 4;
+        }
+
+        @Override
+        public int fixedSize() {
+            return 4;
+        }
+
+        @Override
+        public void write(Integer item, ByteBuffer buffer) {
+            buffer.putInt(item);
+        }
+
+        @Override
+        public Integer read(ByteBuffer buffer, int length) {
+            return buffer.getInt();
+        }
+    };
+
+    static final KeySerializer<String> STRINGS = new KeySerializer<String>() {
+        @Override
+        public int serializedSize(String item) {
+            return item.getBytes(StandardCharsets.UTF_8).length;
+        }
+
+        @Override
+        public void write(String item, ByteBuffer buffer) {
+            buffer.put(item.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String read(ByteBuffer buffer, int length) {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    AvlTree<Integer> avlTree;
+    Comparator<Integer> comparator;
+
+    @BeforeEach
+    public void setUp() {
+        comparator = Comparator.naturalOrder();
+        avlTree = new AvlTree<>(comparator);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        avlTree = null;
+        comparator = null;
+    }
+
+    private static <T> byte[] write(AvlSnapshot<T> snapshot, AvlTree<T> tree) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        long written = snapshot.write(tree, Channels.newChannel(bytes));
+        assertEquals(bytes.size(), written);
+        return bytes.toByteArray();
+    }
+
+    private static <T> AvlTree<T> read(AvlSnapshot<T> snapshot, byte[] bytes, Comparator<T> comparator)
+            throws IOException {
+        return snapshot.read(Channels.newChannel(new ByteArrayInputStream(bytes)), comparator);
+    }
+
+    private static <T> List<T> items(AvlTree<T> tree) {
+        List<T> items = new ArrayList<>();
+        tree.forEach(items::add);
+        return items;
+    }
+
+    @Test
+    @DisplayName("A tree of fixed-size keys is written with its header, keys and checksum")
+    public void fixedSizeKeys() throws IOException {
+        avlTree.bulkLoad(IntStream.range(0, 100_000).iterator());
+        try (AvlSnapshot<Integer> snapshot = new AvlSnapshot<>(INTEGERS, 1024)) {
+            byte[] bytes = write(snapshot, avlTree);
+            AvlTree<Integer> copy = read(snapshot, bytes, comparator);
+
+            assertAll(
+                    () -> assertEquals(AvlSnapshot.HEADER_BYTES + 4 * 100_000 + 4, bytes.length),
+                    () -> assertEquals(items(avlTree), items(copy)),
+                    () -> assertEquals(16, copy.getHeight()),
+                    () -> AvlTreeTest.assertValidAvlTree(copy.getTop())
+            );
+        }
+    }
+
+    @Test
+    @DisplayName("Keys of variable size, some larger than the buffer, are read back")
+    public void variableSizeKeys() throws IOException {
+        AvlTree<String> strings = new AvlTree<>(Comparator.<String>naturalOrder());
+        char[] large = new char[300];
+        Arrays.fill(large, 'z');
+        for (int i = 0; i < 1000; i++) {
+            strings.insert("key" + i + (i % 97 == 0 ? new String(large) : ""));
+        }
+        strings.insert("");
+
+        try (AvlSnapshot<String> snapshot = new AvlSnapshot<>(STRINGS, 64)) {
+            AvlTree<String> copy = read(snapshot, write(snapshot, strings), Comparator.naturalOrder());
+            assertEquals(items(strings), items(copy));
+        }
+    }
+
+    @Test
+    @DisplayName("An empty tree is read back as an empty tree")
+    public void emptyTree() throws IOException {
+        try (AvlSnapshot<Integer> snapshot = new AvlSnapshot<>(INTEGERS)) {
+            byte[] bytes = write(snapshot, avlTree);
+            assertAll(
+                    () -> assertEquals(AvlSnapshot.HEADER_BYTES + 4, bytes.length),
+                    () -> assertTrue(read(snapshot, bytes, comparator).avlIsEmpty())
+            );
+        }
+    }
+
+    @Test
+    @DisplayName("Snapshots go through FileChannels with the same reused buffer")
+    public void fileChannelRoundTrip() throws IOException {
+        Path file = Files.createTempFile("avl", ".snapshot");
+        try (AvlSnapshot<Integer> snapshot = new AvlSnapshot<>(INTEGERS, 4096)) {
+            for (int round = 1; round <= 3; round++) {
+                avlTree.bulkLoad(IntStream.range(0, 10_000 * round).map(item -> 2 * item).iterator());
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    snapshot.write(avlTree, channel);
+                }
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    assertEquals(items(avlTree), items(snapshot.read(channel, comparator)));
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    @DisplayName("Truncated, corrupted and foreign data is rejected")
+    public void invalidSnapshotsAreRejected() throws IOException {
+        avlTree.bulkLoad(IntStream.range(0, 1000).iterator());
+        try (AvlSnapshot<Integer> snapshot = new AvlSnapshot<>(INTEGERS, 256)) {
+            byte[] bytes = write(snapshot, avlTree);
+            byte[] corrupted = bytes.clone();
+            corrupted[AvlSnapshot.HEADER_BYTES + 2001] ^= 1;
+
+            assertAll(
+                    () -> assertThrows(IOException.class,
+                            () -> read(snapshot, Arrays.copyOf(bytes, bytes.length - 1), comparator)),
+                    () -> assertThrows(IOException.class,
+                            () -> read(snapshot, Arrays.copyOf(bytes, 10), comparator)),
+                    () -> assertThrows(IOException.class, () -> read(snapshot, corrupted, comparator)),
+                    () -> assertThrows(IOException.class,
+                            () -> read(snapshot, new byte[100], comparator)),
+                    () -> assertEquals(1000, read(snapshot, bytes, comparator).size())
+            );
+        }
+    }
+
+    @Test
+    @DisplayName("A huge key count or key length is rejected without allocating for it")
+    public void hugeCountsAndLengthsAreRejected() throws IOException {
+        byte[] hugeCount = ByteBuffer.allocate(AvlSnapshot.HEADER_BYTES + 4)
+                .putInt(AvlSnapshot.MAGIC).putInt(AvlSnapshot.VERSION).putInt(4)
+                .putLong(2_000_000_000L).array();
+        byte[] hugeLength = ByteBuffer.allocate(AvlSnapshot.HEADER_BYTES + 12)
+                .putInt(AvlSnapshot.MAGIC).putInt(AvlSnapshot.VERSION)
+                .putInt(AvlSnapshot.VARIABLE_WIDTH).putLong(1).putInt(Integer.MAX_VALUE - 8)
+                .array();
+        byte[] hugeWidth = ByteBuffer.allocate(AvlSnapshot.HEADER_BYTES + 8)
+                .putInt(AvlSnapshot.MAGIC).putInt(AvlSnapshot.VERSION)
+                .putInt(Integer.MAX_VALUE - 8).putLong(1).array();
+        try (AvlSnapshot<Integer> integers = new AvlSnapshot<>(INTEGERS, 256);
+                AvlSnapshot<String> strings = new AvlSnapshot<>(STRINGS, 256)) {
+            assertRejected(integers, hugeCount, comparator);
+            assertRejected(strings, hugeLength, Comparator.naturalOrder());
+            assertRejected(integers, hugeWidth, comparator);
+        }
+    }
+
+    @Test
+    @DisplayName("A header whose key width is not the one of the serializer is rejected")
+    public void mismatchedWidthsAreRejected() throws IOException {
+        byte[] zeroWidth = ByteBuffer.allocate(AvlSnapshot.HEADER_BYTES + 4)
+                .putInt(AvlSnapshot.MAGIC).putInt(AvlSnapshot.VERSION).putInt(0)
+                .putLong(Integer.MAX_VALUE).array();
+        AvlTree<Long> longs = new AvlTree<>();
+        longs.bulkLoad(List.of(1L, 2L, 3L).iterator());
+        byte[] longKeys;
+        try (AvlSnapshot<Long> snapshot = new AvlSnapshot<>(KeySerializers.LONG)) {
+            longKeys = write(snapshot, longs);
+        }
+        try (AvlSnapshot<Integer> snapshot = new AvlSnapshot<>(INTEGERS, 256)) {
+            assertRejected(snapshot, zeroWidth, comparator);
+            assertRejected(snapshot, longKeys, comparator);
+        }
+    }
+
+    /**
+     * Asserts that the bytes are rejected when read through a FileChannel and through a stream
+     */
+    private static <T> void assertRejected(AvlSnapshot<T> snapshot, byte[] bytes,
+            Comparator<T> comparator) throws IOException {
+        Path file = Files.createTempFile("avl", ".snapshot");
+        try {
+            Files.write(file, bytes);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                assertThrows(IOException.class, () -> snapshot.read(channel, comparator));
+            }
+            assertThrows(IOException.class, () -> read(snapshot, bytes, comparator));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    @DisplayName("A closed snapshot cannot be used")
+    public void closedSnapshotCannotBeUsed() {
+        AvlSnapshot<Integer> snapshot = new AvlSnapshot<>(INTEGERS);
+        snapshot.close();
+        snapshot.close();
+        assertAll(
+                () -> assertThrows(IllegalStateException.class,
+                        () -> write(snapshot, avlTree)),
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> new AvlSnapshot<>(INTEGERS, AvlSnapshot.HEADER_BYTES - 1))
+        );
+    }
+}
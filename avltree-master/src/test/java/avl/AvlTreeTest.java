@@ -4,7 +4,17 @@ import org.junit.jupiter.api.*;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -290,6 +300,43 @@ public class AvlTreeTest {
         }
     }
 
+    @Nested
+    @DisplayName("Inserting duplicated items")
+    public class insertingDuplicatedItems{
+        @Test
+        @DisplayName("Inserting an item already in the tree leaves the tree unchanged")
+        public void insertingDuplicatedItemLeavesTreeUnchanged() {
+            avlTree.insert(6);
+            avlTree.insert(4);
+            avlTree.insert(9);
+
+            avlTree.insert(4);
+            avlTree.insert(9);
+
+            assertAll(
+                    () -> assertEquals(" | 6 | 4 | 9", avlTree.toString()),
+                    () -> assertEquals(1, avlTree.getHeight())
+            );
+        }
+
+        @Test
+        @DisplayName("Inserting a duplicated item keeps the node and the item already stored")
+        public void insertingDuplicatedItemKeepsStoredNode() {
+            Integer storedItem = 1000;
+            Integer duplicatedItem = Integer.valueOf(1000);
+            avlTree.insert(storedItem);
+            avlTree.insert(2000);
+            AvlNode<Integer> storedNode = avlTree.search(1000);
+
+            avlTree.insert(duplicatedItem);
+
+            assertAll(
+                    () -> assertSame(storedNode, avlTree.search(1000)),
+                    () -> assertSame(storedItem, avlTree.search(1000).getItem())
+            );
+        }
+    }
+
     @Nested
     @DisplayName("Searching leaf nodes")
     public class searchingLeafNodes{
@@ -603,4 +650,814 @@ public class AvlTreeTest {
 
 
     }
+
+    @Nested
+    @DisplayName("Bulk loading")
+    class bulkLoading{
+        @Test
+        @DisplayName("Bulk loading sorted items builds a perfectly balanced tree")
+        public void bulkLoadingSortedItems() {
+            avlTree.bulkLoad(List.of(1, 2, 3, 4, 5, 6, 7).iterator());
+
+            assertAll(
+                    () -> assertEquals(" | 4 | 2 | 1 | 3 | 6 | 5 | 7", avlTree.toString()),
+                    () -> assertEquals(2, avlTree.getHeight()),
+                    () -> assertEquals(7, assertValidAvlTree(avlTree.getTop()))
+            );
+        }
+
+        @Test
+        @DisplayName("Bulk loading unsorted items with duplicates sorts them first")
+        public void bulkLoadingUnsortedItems() {
+            avlTree.bulkLoad(Arrays.asList(5, 3, 9, 3, 1, 9, 7).spliterator());
+
+            assertAll(
+                    () -> assertEquals(" | 5 | 3 | 1 | 9 | 7", avlTree.toString()),
+                    () -> assertEquals(5, assertValidAvlTree(avlTree.getTop()))
+            );
+        }
+
+        @Test
+        @DisplayName("Bulk loading into a non empty tree keeps the nodes already stored")
+        public void bulkLoadingIntoNonEmptyTree() {
+            for (int item : new int[]{10, 20, 30}) {
+                avlTree.insert(item);
+            }
+            AvlNode<Integer> storedNode = avlTree.search(20);
+
+            avlTree.bulkLoad(List.of(5, 15, 20, 25, 35).iterator());
+
+            assertAll(
+                    () -> assertSame(storedNode, avlTree.search(20)),
+                    () -> assertEquals(7, assertValidAvlTree(avlTree.getTop())),
+                    () -> assertNotNull(avlTree.search(35))
+            );
+        }
+
+        @Test
+        @DisplayName("A bulk loaded tree keeps working with insert and delete")
+        public void bulkLoadedTreeKeepsWorking() {
+            Random random = new Random(7);
+            TreeSet<Integer> expected = new TreeSet<>();
+            for (int i = 0; i < 1000; i++) {
+                expected.add(random.nextInt(5000));
+            }
+            avlTree.bulkLoad(expected.iterator());
+
+            for (int i = 0; i < 2000; i++) {
+                int item = random.nextInt(5000);
+                if (random.nextBoolean()) {
+                    avlTree.insert(item);
+                    expected.add(item);
+                } else {
+                    avlTree.delete(item);
+                    expected.remove(item);
+                }
+            }
+
+            assertEquals(expected.size(), assertValidAvlTree(avlTree.getTop()));
+            for (int item : expected) {
+                assertNotNull(avlTree.search(item));
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Batched updates")
+    class batchedUpdates{
+        @Test
+        @DisplayName("insertAll adds an unsorted batch with duplicates")
+        public void insertAllAddsUnsortedBatch() {
+            avlTree.insert(4);
+
+            avlTree.insertAll(List.of(9, 1, 4, 7, 3, 9, 8));
+
+            assertAll(
+                    () -> assertEquals(6, assertValidAvlTree(avlTree.getTop())),
+                    () -> assertEquals(List.of(1, 3, 4, 7, 8, 9), inOrderItems())
+            );
+        }
+
+        @Test
+        @DisplayName("deleteAll removes the items of the batch that are in the tree")
+        public void deleteAllRemovesBatch() {
+            avlTree.insertAll(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10));
+
+            avlTree.deleteAll(List.of(10, 2, 11, 5, 3, 5));
+
+            assertAll(
+                    () -> assertEquals(6, assertValidAvlTree(avlTree.getTop())),
+                    () -> assertEquals(List.of(1, 4, 6, 7, 8, 9), inOrderItems())
+            );
+        }
+
+        @Test
+        @DisplayName("Deleted nodes are detached from the tree")
+        public void deletedNodesAreDetached() {
+            avlTree.insertAll(List.of(1, 2, 3));
+            AvlNode<Integer> leaf = avlTree.search(3);
+
+            avlTree.delete(3);
+
+            assertNull(leaf.getParent());
+        }
+
+        @Test
+        @DisplayName("Random batches give the same items as a TreeSet")
+        public void randomBatches() {
+            Random random = new Random(11);
+            TreeSet<Integer> expected = new TreeSet<>();
+
+            for (int round = 0; round < 200; round++) {
+                List<Integer> batch = new ArrayList<>();
+                for (int i = 0; i < 50; i++) {
+                    batch.add(random.nextInt(3000));
+                }
+                if (random.nextInt(3) > 0) {
+                    avlTree.insertAll(batch);
+                    expected.addAll(batch);
+                } else {
+                    avlTree.deleteAll(batch);
+                    expected.removeAll(batch);
+                }
+                assertEquals(expected.size(), assertValidAvlTree(avlTree.getTop()));
+            }
+            assertEquals(List.copyOf(expected), inOrderItems());
+        }
+    }
+
+    @Nested
+    @DisplayName("Order statistics")
+    class orderStatistics{
+        final int[] elements = {20, 8, 22, 4, 12, 24, 10, 14};
+
+        @BeforeEach
+        public void setUp(){
+            for(int item: elements){
+                avlTree.insert(item);
+            }
+        }
+
+        @Test
+        @DisplayName("Size of an empty tree is 0")
+        public void sizeOfEmptyTree() {
+            AvlTree<Integer> emptyTree = new AvlTree<>(comparator);
+
+            assertAll(
+                    () -> assertEquals(0, emptyTree.size()),
+                    () -> assertEquals(0, emptyTree.rank(5)),
+                    () -> assertThrows(IndexOutOfBoundsException.class, () -> emptyTree.select(0))
+            );
+        }
+
+        @Test
+        @DisplayName("Size counts the items inserted and deleted")
+        public void sizeCountsItems() {
+            avlTree.insert(8);
+            avlTree.insert(30);
+            avlTree.delete(12);
+            avlTree.delete(13);
+
+            assertEquals(8, avlTree.size());
+        }
+
+        @Test
+        @DisplayName("Rank is the number of smaller items")
+        public void rankCountsSmallerItems() {
+            assertAll(
+                    () -> assertEquals(0, avlTree.rank(4)),
+                    () -> assertEquals(0, avlTree.rank(1)),
+                    () -> assertEquals(3, avlTree.rank(11)),
+                    () -> assertEquals(3, avlTree.rank(12)),
+                    () -> assertEquals(7, avlTree.rank(24)),
+                    () -> assertEquals(8, avlTree.rank(100))
+            );
+        }
+
+        @Test
+        @DisplayName("Select returns the items in ascending order")
+        public void selectReturnsItemsInOrder() {
+            int[] sorted = {4, 8, 10, 12, 14, 20, 22, 24};
+            for (int i = 0; i < sorted.length; i++) {
+                assertEquals(sorted[i], avlTree.select(i));
+            }
+            assertThrows(IndexOutOfBoundsException.class, () -> avlTree.select(8));
+            assertThrows(IndexOutOfBoundsException.class, () -> avlTree.select(-1));
+        }
+
+        @Test
+        @DisplayName("Sizes stay correct through random inserts and deletes")
+        public void sizesStayCorrect() {
+            Random random = new Random(13);
+            TreeSet<Integer> expected = new TreeSet<>();
+            for (int item : elements) {
+                expected.add(item);
+            }
+
+            for (int i = 0; i < 5000; i++) {
+                int item = random.nextInt(1000);
+                if (random.nextBoolean()) {
+                    avlTree.insert(item);
+                    expected.add(item);
+                } else {
+                    avlTree.delete(item);
+                    expected.remove(item);
+                }
+            }
+
+            assertEquals(expected.size(), assertValidAvlTree(avlTree.getTop()));
+            assertEquals(expected.size(), avlTree.size());
+            assertEquals(expected.headSet(500).size(), avlTree.rank(500));
+            assertEquals(expected.first(), avlTree.select(0));
+            assertEquals(expected.last(), avlTree.select(expected.size() - 1));
+        }
+    }
+
+    @Nested
+    @DisplayName("Ordered iteration and ranges")
+    class orderedIteration{
+        final int[] elements = {20, 8, 22, 4, 12, 24, 10, 14};
+
+        @BeforeEach
+        public void setUp(){
+            for(int item: elements){
+                avlTree.insert(item);
+            }
+        }
+
+        @Test
+        @DisplayName("Iterating the tree gives the items in ascending order")
+        public void iteratorGivesItemsInOrder() {
+            List<Integer> items = new ArrayList<>();
+            for (int item : avlTree) {
+                items.add(item);
+            }
+
+            assertEquals(List.of(4, 8, 10, 12, 14, 20, 22, 24), items);
+        }
+
+        @Test
+        @DisplayName("Ranges include their lower bound and exclude their upper bound")
+        public void rangesGiveItemsInBounds() {
+            assertAll(
+                    () -> assertEquals(List.of(10, 12, 14), toList(avlTree.subRange(10, 20))),
+                    () -> assertEquals(List.of(10, 12, 14, 20), toList(avlTree.subRange(9, 21))),
+                    () -> assertEquals(List.of(), toList(avlTree.subRange(20, 10))),
+                    () -> assertEquals(List.of(4, 8), toList(avlTree.headRange(10))),
+                    () -> assertEquals(List.of(), toList(avlTree.headRange(4))),
+                    () -> assertEquals(List.of(22, 24), toList(avlTree.tailRange(21))),
+                    () -> assertEquals(List.of(), toList(avlTree.tailRange(25)))
+            );
+        }
+
+        @Test
+        @DisplayName("Removing through the iterator of a range deletes only the items of the range")
+        public void removingThroughRangeIterator() {
+            Iterator<Integer> iterator = avlTree.subRange(8, 22).iterator();
+            while (iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+
+            assertAll(
+                    () -> assertEquals(List.of(4, 22, 24), toList(avlTree)),
+                    () -> assertEquals(3, assertValidAvlTree(avlTree.getTop()))
+            );
+        }
+
+        @Test
+        @DisplayName("Removing every other item through the iterator")
+        public void removingEveryOtherItem() {
+            AvlTree<Integer> tree = new AvlTree<>(comparator);
+            List<Integer> expected = new ArrayList<>();
+            for (int item = 0; item < 1000; item++) {
+                tree.insert((item * 37) % 1000);
+                if (item % 2 == 1) {
+                    expected.add(item);
+                }
+            }
+
+            Iterator<Integer> iterator = tree.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next() % 2 == 0) {
+                    iterator.remove();
+                }
+            }
+
+            assertEquals(expected, toList(tree));
+            assertEquals(500, assertValidAvlTree(tree.getTop()));
+        }
+
+        @Test
+        @DisplayName("Modifying the tree while iterating fails fast")
+        public void modifyingWhileIteratingFails() {
+            Iterator<Integer> iterator = avlTree.iterator();
+            iterator.next();
+            avlTree.insert(5);
+
+            assertThrows(ConcurrentModificationException.class, iterator::next);
+        }
+
+        @Test
+        @DisplayName("toString of a large tree lists every item")
+        public void toStringOfLargeTree() {
+            AvlTree<Integer> tree = new AvlTree<>(comparator);
+            tree.bulkLoad(IntStream.range(0, 100000).iterator());
+
+            String result = tree.toString();
+
+            assertEquals(100000, result.split(" \\| ").length - 1);
+            assertTrue(result.startsWith(" | 50000 | 25000"));
+        }
+
+        private List<Integer> toList(Iterable<Integer> items) {
+            List<Integer> result = new ArrayList<>();
+            items.forEach(result::add);
+            return result;
+        }
+    }
+
+    @Nested
+    @DisplayName("Union, intersection and difference of trees")
+    class setOperations{
+        AvlTree<Integer> other;
+        TreeSet<Integer> expectedThis;
+        TreeSet<Integer> expectedOther;
+
+        @BeforeEach
+        public void setUp(){
+            other = new AvlTree<>(comparator);
+            expectedThis = new TreeSet<>();
+            expectedOther = new TreeSet<>();
+            Random random = new Random(19);
+            for (int i = 0; i < 20000; i++) {
+                int item = random.nextInt(30000);
+                avlTree.insert(item);
+                expectedThis.add(item);
+            }
+            for (int i = 0; i < 5000; i++) {
+                int item = random.nextInt(30000) + 10000;
+                other.insert(item);
+                expectedOther.add(item);
+            }
+        }
+
+        @Test
+        @DisplayName("Union keeps the items of both trees and empties the other one")
+        public void unionOfTrees() {
+            avlTree.union(other);
+            expectedThis.addAll(expectedOther);
+
+            assertAll(
+                    () -> assertEquals(new ArrayList<>(expectedThis), inOrderItems()),
+                    () -> assertEquals(expectedThis.size(), assertValidAvlTree(avlTree.getTop())),
+                    () -> assertNull(avlTree.getTop().getParent()),
+                    () -> assertTrue(other.avlIsEmpty())
+            );
+        }
+
+        @Test
+        @DisplayName("Intersection keeps the items that are in both trees")
+        public void intersectionOfTrees() {
+            avlTree.intersection(other);
+            expectedThis.retainAll(expectedOther);
+
+            assertAll(
+                    () -> assertEquals(new ArrayList<>(expectedThis), inOrderItems()),
+                    () -> assertEquals(expectedThis.size(), assertValidAvlTree(avlTree.getTop())),
+                    () -> assertTrue(other.avlIsEmpty())
+            );
+        }
+
+        @Test
+        @DisplayName("Difference removes the items of the other tree")
+        public void differenceOfTrees() {
+            avlTree.difference(other);
+            expectedThis.removeAll(expectedOther);
+
+            assertAll(
+                    () -> assertEquals(new ArrayList<>(expectedThis), inOrderItems()),
+                    () -> assertEquals(expectedThis.size(), assertValidAvlTree(avlTree.getTop())),
+                    () -> assertTrue(other.avlIsEmpty())
+            );
+        }
+
+        @Test
+        @DisplayName("Set operations with empty trees and with the tree itself")
+        public void setOperationsWithEmptyTrees() {
+            AvlTree<Integer> empty = new AvlTree<>(comparator);
+            avlTree.union(empty);
+            avlTree.union(avlTree);
+            assertEquals(new ArrayList<>(expectedThis), inOrderItems());
+
+            empty.union(other);
+            assertEquals(expectedOther.size(), assertValidAvlTree(empty.getTop()));
+
+            avlTree.intersection(new AvlTree<>(comparator));
+            assertTrue(avlTree.avlIsEmpty());
+
+            empty.difference(empty);
+            assertTrue(empty.avlIsEmpty());
+        }
+
+        @Test
+        @DisplayName("Union of disjoint trees of very different heights stays balanced")
+        public void unionOfDisjointTrees() {
+            AvlTree<Integer> small = new AvlTree<>(comparator);
+            small.insert(-1);
+            small.insert(-2);
+
+            small.union(avlTree);
+            expectedThis.add(-1);
+            expectedThis.add(-2);
+
+            assertEquals(expectedThis.size(), assertValidAvlTree(small.getTop()));
+            assertEquals(expectedThis.first(), small.select(0));
+        }
+    }
+
+    @Nested
+    @DisplayName("Splitting and joining trees")
+    class splitAndJoin{
+        @BeforeEach
+        public void setUp(){
+            for (int item = 0; item < 1000; item++) {
+                avlTree.insert(2 * item);
+            }
+        }
+
+        @Test
+        @DisplayName("Splitting at an item keeps the smaller items and returns the others")
+        public void splittingAtAnItem() {
+            AvlTree<Integer> right = avlTree.split(700);
+
+            assertAll(
+                    () -> assertEquals(350, assertValidAvlTree(avlTree.getTop())),
+                    () -> assertEquals(650, assertValidAvlTree(right.getTop())),
+                    () -> assertEquals(698, avlTree.select(349)),
+                    () -> assertEquals(700, right.select(0)),
+                    () -> assertNull(avlTree.getTop().getParent()),
+                    () -> assertNull(right.getTop().getParent())
+            );
+        }
+
+        @Test
+        @DisplayName("Splitting at a missing item or beyond the ends")
+        public void splittingAtMissingItems() {
+            AvlTree<Integer> right = avlTree.split(701);
+            assertEquals(351, avlTree.size());
+            assertEquals(702, right.select(0));
+
+            AvlTree<Integer> all = avlTree.split(-1);
+            assertTrue(avlTree.avlIsEmpty());
+            assertEquals(351, assertValidAvlTree(all.getTop()));
+
+            AvlTree<Integer> none = right.split(5000);
+            assertTrue(none.avlIsEmpty());
+            assertEquals(649, assertValidAvlTree(right.getTop()));
+        }
+
+        @Test
+        @DisplayName("Joining trees of very different heights gives a valid tree")
+        public void joiningTrees() {
+            AvlTree<Integer> left = new AvlTree<>(comparator);
+            for (int item = -5; item < 0; item++) {
+                left.insert(item);
+            }
+
+            AvlTree<Integer> joined = AvlTree.join(left, 0, avlTree.split(1));
+
+            assertAll(
+                    () -> assertEquals(1005, assertValidAvlTree(joined.getTop())),
+                    () -> assertEquals(-5, joined.select(0)),
+                    () -> assertEquals(0, joined.select(5)),
+                    () -> assertEquals(2, joined.select(6)),
+                    () -> assertTrue(left.avlIsEmpty())
+            );
+        }
+
+        @Test
+        @DisplayName("Concatenating the two halves of a split gives back the tree")
+        public void concatenatingSplitTrees() {
+            Random random = new Random(23);
+            for (int i = 0; i < 100; i++) {
+                int item = random.nextInt(2000);
+                AvlTree<Integer> right = avlTree.split(item);
+                avlTree.concat(right);
+                assertTrue(right.avlIsEmpty());
+            }
+
+            List<Integer> expected = new ArrayList<>();
+            for (int item = 0; item < 1000; item++) {
+                expected.add(2 * item);
+            }
+            assertEquals(expected, inOrderItems());
+            assertEquals(1000, assertValidAvlTree(avlTree.getTop()));
+        }
+
+        @Test
+        @DisplayName("Joining or concatenating overlapping trees fails")
+        public void overlappingTreesAreRejected() {
+            AvlTree<Integer> other = new AvlTree<>(comparator);
+            other.insert(5);
+
+            assertAll(
+                    () -> assertThrows(IllegalArgumentException.class, () -> avlTree.concat(other)),
+                    () -> assertThrows(IllegalArgumentException.class, () -> avlTree.concat(avlTree)),
+                    () -> assertThrows(IllegalArgumentException.class,
+                            () -> AvlTree.join(avlTree, 3000, other)),
+                    () -> assertEquals(1000, avlTree.size()),
+                    () -> assertEquals(1, other.size())
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("Spliterator and streams")
+    class streams{
+        @BeforeEach
+        public void setUp(){
+            avlTree.bulkLoad(IntStream.range(0, 10000).map(item -> 3 * item).iterator());
+        }
+
+        @Test
+        @DisplayName("The spliterator reports the characteristics and size of the tree")
+        public void spliteratorCharacteristics() {
+            Spliterator<Integer> spliterator = avlTree.spliterator();
+
+            assertAll(
+                    () -> assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED)),
+                    () -> assertTrue(spliterator.hasCharacteristics(Spliterator.SORTED)),
+                    () -> assertTrue(spliterator.hasCharacteristics(Spliterator.DISTINCT)),
+                    () -> assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED)),
+                    () -> assertTrue(spliterator.hasCharacteristics(Spliterator.SUBSIZED)),
+                    () -> assertSame(comparator, spliterator.getComparator()),
+                    () -> assertEquals(10000, spliterator.getExactSizeIfKnown())
+            );
+        }
+
+        @Test
+        @DisplayName("Splitting gives two exactly sized halves in order")
+        public void splittingGivesOrderedHalves() {
+            Spliterator<Integer> suffix = avlTree.spliterator();
+            suffix.tryAdvance(item -> assertEquals(0, item));
+            Spliterator<Integer> prefix = suffix.trySplit();
+
+            List<Integer> items = new ArrayList<>();
+            assertEquals(4999, prefix.estimateSize());
+            assertEquals(5000, suffix.estimateSize());
+            prefix.forEachRemaining(items::add);
+            suffix.forEachRemaining(items::add);
+
+            assertEquals(9999, items.size());
+            assertEquals(3, items.get(0));
+            assertEquals(3 * 5000, items.get(4999));
+            assertEquals(3 * 9999, items.get(9998));
+        }
+
+        @Test
+        @DisplayName("Sequential and parallel streams see every item in order")
+        public void streamsSeeEveryItem() {
+            List<Integer> expected = IntStream.range(0, 10000).map(item -> 3 * item).boxed()
+                    .collect(Collectors.toList());
+
+            assertAll(
+                    () -> assertEquals(expected, avlTree.stream().collect(Collectors.toList())),
+                    () -> assertEquals(expected,
+                            avlTree.parallelStream().collect(Collectors.toList())),
+                    () -> assertEquals(3L * 9999 * 10000 / 2,
+                            avlTree.parallelStream().mapToLong(Integer::longValue).sum()),
+                    () -> assertEquals(0, new AvlTree<Integer>(comparator).stream().count())
+            );
+        }
+
+        @Test
+        @DisplayName("Modifying the tree while streaming fails fast")
+        public void modifyingWhileStreamingFails() {
+            Spliterator<Integer> spliterator = avlTree.spliterator();
+            avlTree.insert(1);
+
+            assertThrows(ConcurrentModificationException.class,
+                    () -> spliterator.tryAdvance(item -> { }));
+        }
+    }
+
+    @Nested
+    @DisplayName("Finger operations")
+    class fingerOperations{
+        @Test
+        @DisplayName("Inserting near-sorted items from the previous node keeps a valid tree")
+        public void insertFromPreviousNode() {
+            Random random = new Random(20);
+            TreeSet<Integer> expected = new TreeSet<>();
+            AvlNode<Integer> finger = null;
+            for (int i = 0; i < 5000; i++) {
+                int item = i + random.nextInt(20);
+                expected.add(item);
+                finger = avlTree.insertFrom(finger, item);
+                assertEquals(item, finger.getItem());
+            }
+
+            assertAll(
+                    () -> assertEquals(new ArrayList<>(expected), inOrderItems()),
+                    () -> assertEquals(expected.size(), assertValidAvlTree(avlTree.getTop()))
+            );
+        }
+
+        @Test
+        @DisplayName("Searching from any node finds the items of the whole tree")
+        public void searchFromAnyNode() {
+            avlTree.bulkLoad(IntStream.range(0, 100).map(item -> 2 * item).iterator());
+            AvlNode<Integer> finger = avlTree.search(50);
+
+            assertAll(
+                    () -> assertEquals(0, avlTree.searchFrom(finger, 0).getItem()),
+                    () -> assertEquals(198, avlTree.searchFrom(finger, 198).getItem()),
+                    () -> assertEquals(52, avlTree.searchFrom(finger, 52).getItem()),
+                    () -> assertNull(avlTree.searchFrom(finger, 51)),
+                    () -> assertEquals(50, avlTree.searchFrom(null, 50).getItem())
+            );
+        }
+
+        @Test
+        @DisplayName("Deleting from a finger returns a node still in the tree")
+        public void deleteFromFinger() {
+            avlTree.bulkLoad(IntStream.range(0, 1000).iterator());
+            AvlNode<Integer> finger = null;
+            for (int item = 0; item < 1000; item += 2) {
+                finger = avlTree.deleteFrom(finger, item);
+                assertSame(finger, avlTree.search(finger.getItem()));
+            }
+            assertSame(finger, avlTree.deleteFrom(finger, 0));
+
+            assertAll(
+                    () -> assertEquals(500, assertValidAvlTree(avlTree.getTop())),
+                    () -> assertEquals(IntStream.range(0, 500).map(item -> 2 * item + 1).boxed()
+                            .collect(Collectors.toList()), inOrderItems())
+            );
+        }
+
+        @Test
+        @DisplayName("A finger removed from the tree is ignored")
+        public void removedFingerIsIgnored() {
+            AvlNode<Integer> finger = avlTree.insertFrom(null, 5);
+            avlTree.insert(3);
+            AvlNode<Integer> removed = avlTree.insertFrom(finger, 8);
+            avlTree.delete(8);
+
+            assertAll(
+                    () -> assertEquals(3, avlTree.searchFrom(removed, 3).getItem()),
+                    () -> assertEquals(7, avlTree.insertFrom(removed, 7).getItem()),
+                    () -> assertEquals(5, avlTree.searchFrom(finger, 5).getItem()),
+                    () -> assertEquals(3, assertValidAvlTree(avlTree.getTop()))
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("Rotations moving an inner subtree")
+    class rotationsMovingInnerSubtree{
+        @Test
+        @DisplayName("A left-left rotation relinks the inner grandchild to its new parent")
+        public void leftLeftRotationRelinksInnerGrandchild() {
+            for (int item : new int[]{50, 30, 70, 20, 40, 10}) {
+                avlTree.insert(item);
+            }
+
+            AvlNode<Integer> moved = avlTree.search(40);
+            assertAll(
+                    () -> assertEquals(" | 30 | 20 | 10 | 50 | 40 | 70", avlTree.toString()),
+                    () -> assertSame(avlTree.search(50), moved.getParent()),
+                    () -> assertEquals(6, assertValidAvlTree(avlTree.getTop()))
+            );
+
+            avlTree.delete(10);
+            avlTree.delete(20);
+            assertEquals(4, assertValidAvlTree(avlTree.getTop()));
+        }
+
+        @Test
+        @DisplayName("A right-right rotation relinks the inner grandchild to its new parent")
+        public void rightRightRotationRelinksInnerGrandchild() {
+            for (int item : new int[]{50, 30, 70, 60, 80, 90}) {
+                avlTree.insert(item);
+            }
+
+            AvlNode<Integer> moved = avlTree.search(60);
+            assertAll(
+                    () -> assertEquals(" | 70 | 50 | 30 | 60 | 80 | 90", avlTree.toString()),
+                    () -> assertSame(avlTree.search(50), moved.getParent()),
+                    () -> assertEquals(6, assertValidAvlTree(avlTree.getTop()))
+            );
+
+            avlTree.delete(90);
+            avlTree.delete(80);
+            assertEquals(4, assertValidAvlTree(avlTree.getTop()));
+        }
+    }
+
+    @Nested
+    @DisplayName("Ordering of the items")
+    class ordering{
+        @Test
+        @DisplayName("A tree in natural order builds the same tree as one with a comparator")
+        public void naturalOrderBuildsSameTree() {
+            AvlTree<Integer> natural = new AvlTree<>();
+            AvlTree<Integer> nullComparator = new AvlTree<>(null);
+            Random random = new Random(25);
+            for (int i = 0; i < 2000; i++) {
+                int item = random.nextInt(500);
+                if (random.nextInt(4) > 0) {
+                    avlTree.insert(item);
+                    natural.insert(item);
+                    nullComparator.insert(item);
+                } else {
+                    avlTree.delete(item);
+                    natural.delete(item);
+                    nullComparator.delete(item);
+                }
+            }
+
+            assertAll(
+                    () -> assertEquals(avlTree.toString(), natural.toString()),
+                    () -> assertEquals(avlTree.toString(), nullComparator.toString()),
+                    () -> assertEquals(avlTree.size(), assertValidAvlTree(natural.getTop())),
+                    () -> assertNull(natural.spliterator().getComparator())
+            );
+        }
+
+        @Test
+        @DisplayName("Batched updates of a tree in natural order sort the items")
+        public void naturalOrderSortsBatches() {
+            AvlTree<Integer> natural = new AvlTree<>(Comparator.naturalOrder());
+            natural.insertAll(Arrays.asList(5, 1, 9, 1, 3));
+            natural.insertAll(Arrays.asList(4, 2));
+            natural.deleteAll(Arrays.asList(9, 1));
+
+            assertEquals(Arrays.asList(2, 3, 4, 5), natural.stream().collect(Collectors.toList()));
+        }
+
+        @Test
+        @DisplayName("A subclass overriding compare orders every lookup and update")
+        public void overriddenCompareOrdersTheTree() {
+            AvlTree<Integer> reversed = new AvlTree<Integer>(Comparator.reverseOrder()) {
+                @Override
+                protected int compare(Integer item1, Integer item2) {
+                    return Integer.compare(item2, item1);
+                }
+            };
+            for (int i = 0; i < 100; i++) {
+                reversed.insert(i);
+            }
+            reversed.delete(50);
+
+            assertAll(
+                    () -> assertEquals(99, reversed.select(0)),
+                    () -> assertEquals(0, reversed.select(98)),
+                    () -> assertEquals(7, reversed.search(7).getItem()),
+                    () -> assertNull(reversed.search(50)),
+                    () -> assertEquals(99, reversed.size())
+            );
+        }
+    }
+
+    private List<Integer> inOrderItems() {
+        List<Integer> items = new ArrayList<>();
+        AvlNode<Integer> node = avlTree.getTop();
+        while (node != null && node.hasLeft()) {
+            node = node.getLeft();
+        }
+        for (; node != null; node = avlTree.findSuccessor(node)) {
+            items.add(node.getItem());
+        }
+        return items;
+    }
+
+    /**
+     * Checks order, parent links, heights, sizes and balance of a subtree
+     *
+     * @return the number of nodes of the subtree
+     */
+    static <T extends Comparable<T>> int assertValidAvlTree(AvlNode<T> node) {
+        if (node == null) {
+            return 0;
+        }
+        int leftHeight = -1;
+        int rightHeight = -1;
+        if (node.hasLeft()) {
+            assertSame(node, node.getLeft().getParent());
+            assertTrue(node.getLeft().getItem().compareTo(node.getItem()) < 0);
+            leftHeight = node.getLeft().getHeight();
+        }
+        if (node.hasRight()) {
+            assertSame(node, node.getRight().getParent());
+            assertTrue(node.getRight().getItem().compareTo(node.getItem()) > 0);
+            rightHeight = node.getRight().getHeight();
+        }
+        assertEquals(1 + Math.max(leftHeight, rightHeight), node.getHeight());
+        int size = 1 + assertValidAvlTree(node.getLeft()) + assertValidAvlTree(node.getRight());
+        assertEquals(size, node.getSize());
+        assertTrue(Math.abs(rightHeight - leftHeight) <= 1);
+        return size;
+    }
 }
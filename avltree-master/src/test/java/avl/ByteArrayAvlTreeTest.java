@@ -0,0 +1,182 @@
+package avl;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ByteArrayAvlTreeTest {
+
+    ByteArrayAvlTree avlTree;
+
+    @BeforeEach
+    public void setUp() {
+        avlTree = new ByteArrayAvlTree();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        avlTree = null;
+    }
+
+    private static byte[] bytes(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<byte[]> keys(ByteArrayAvlTree tree) {
+        List<byte[]> keys = new ArrayList<>();
+        tree.forEach(keys::add);
+        return keys;
+    }
+
+    /**
+     * Checks heights, balance, parent links and that each node stores its key after a prefix
+     * that the key of its parent really has
+     *
+     * @return the number of nodes of the subtree
+     */
+    private int assertValidTree(ByteArrayAvlNode node, byte[] parentKey) {
+        if (node == null) {
+            return 0;
+        }
+        byte[] key = avlTree.getKey(node);
+        if (parentKey == null) {
+            assertEquals(0, node.getPrefixLength());
+        } else {
+            assertTrue(node.getPrefixLength() <= Arrays.mismatch(key, parentKey));
+        }
+        if (!avlTree.isPrefixCompressed()) {
+            assertEquals(0, node.getPrefixLength());
+        }
+        if (node.hasLeft()) {
+            assertSame(node, node.getLeft().getParent());
+        }
+        if (node.hasRight()) {
+            assertSame(node, node.getRight().getParent());
+        }
+        int size = 1 + assertValidTree(node.getLeft(), key) + assertValidTree(node.getRight(), key);
+        assertTrue(Math.abs(avlTree.getBalance(node)) <= 1);
+        assertEquals(1 + Math.max(avlTree.height(node.getLeft()), avlTree.height(node.getRight())),
+                node.getHeight());
+        return size;
+    }
+
+    @Test
+    @DisplayName("ByteArrayAvlTree is empty before anything is inserted")
+    public void avlTreeIsEmpty() {
+        assertAll(
+                () -> assertTrue(avlTree.avlIsEmpty()),
+                () -> assertEquals(0, avlTree.size()),
+                () -> assertFalse(avlTree.contains(new byte[0])),
+                () -> assertThrows(NullPointerException.class, () -> avlTree.getHeight())
+        );
+    }
+
+    @Test
+    @DisplayName("Keys are ordered as unsigned bytes, with prefixes first")
+    public void unsignedOrder() {
+        avlTree.insert(new byte[]{(byte) 0x80});
+        avlTree.insert(new byte[]{0x7F});
+        avlTree.insert(new byte[]{0x7F, 0});
+        avlTree.insert(new byte[0]);
+
+        List<byte[]> keys = keys(avlTree);
+        assertAll(
+                () -> assertEquals(4, keys.size()),
+                () -> assertArrayEquals(new byte[0], keys.get(0)),
+                () -> assertArrayEquals(new byte[]{0x7F}, keys.get(1)),
+                () -> assertArrayEquals(new byte[]{0x7F, 0}, keys.get(2)),
+                () -> assertArrayEquals(new byte[]{(byte) 0x80}, keys.get(3))
+        );
+    }
+
+    @Test
+    @DisplayName("Inserted keys are copied")
+    public void keysAreCopied() {
+        byte[] key = bytes("abc");
+        avlTree.insert(key);
+        key[0] = 'z';
+
+        assertAll(
+                () -> assertTrue(avlTree.contains(bytes("abc"))),
+                () -> assertFalse(avlTree.contains(key))
+        );
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    @DisplayName("Random inserts and deletes give the same keys as a TreeSet")
+    public void randomOperations(boolean prefixCompression) {
+        avlTree = new ByteArrayAvlTree(prefixCompression);
+        TreeSet<byte[]> expected = new TreeSet<>(Arrays::compareUnsigned);
+        Random random = new Random(24);
+        for (int i = 0; i < 20000; i++) {
+            byte[] key = bytes("/srv/www/" + random.nextInt(8) + "/" + random.nextInt(300));
+            if (random.nextInt(3) == 0) {
+                avlTree.delete(key);
+                expected.remove(key);
+            } else {
+                avlTree.insert(key);
+                expected.add(key);
+            }
+            assertEquals(expected.contains(key), avlTree.contains(key));
+        }
+
+        List<byte[]> keys = keys(avlTree);
+        assertEquals(expected.size(), keys.size());
+        int i = 0;
+        for (byte[] key : expected) {
+            assertArrayEquals(key, keys.get(i++));
+        }
+        assertEquals(expected.size(), avlTree.size());
+        assertEquals(expected.size(), assertValidTree(avlTree.getTop(), null));
+    }
+
+    @Test
+    @DisplayName("Prefix compression stores fewer bytes for keys with shared prefixes")
+    public void prefixCompressionSavesBytes() {
+        ByteArrayAvlTree compressed = new ByteArrayAvlTree(true);
+        for (int i = 0; i < 1000; i++) {
+            byte[] key = bytes("https://example.org/catalog/items/" + i);
+            avlTree.insert(key);
+            compressed.insert(key);
+        }
+
+        assertAll(
+                () -> assertTrue(compressed.storedKeyBytes() * 4 < avlTree.storedKeyBytes()),
+                () -> assertEquals(avlTree.toString(), compressed.toString()),
+                () -> assertTrue(
+                        compressed.contains(bytes("https://example.org/catalog/items/999"))),
+                () -> assertFalse(
+                        compressed.contains(bytes("https://example.org/catalog/items/1000")))
+        );
+    }
+
+    @Test
+    @DisplayName("Deleting every key leaves an empty tree")
+    public void deletingEveryKey() {
+        avlTree = new ByteArrayAvlTree(true);
+        for (int i = 0; i < 100; i++) {
+            avlTree.insert(bytes("key" + i));
+        }
+        for (int i = 99; i >= 0; i -= 2) {
+            avlTree.delete(bytes("key" + i));
+        }
+        assertEquals(50, assertValidTree(avlTree.getTop(), null));
+        for (int i = 0; i < 100; i++) {
+            avlTree.delete(bytes("key" + i));
+        }
+        assertAll(
+                () -> assertTrue(avlTree.avlIsEmpty()),
+                () -> assertEquals(0, avlTree.size())
+        );
+    }
+}
@@ -0,0 +1,238 @@
+package avl;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentAvlTreeTest {
+
+    static final int THREADS = 8;
+
+    ConcurrentAvlTree<Integer> avlTree;
+    Comparator<Integer> comparator;
+    ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        comparator = Comparator.naturalOrder();
+        avlTree = new ConcurrentAvlTree<>(comparator);
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+        avlTree = null;
+        comparator = null;
+    }
+
+    private List<Integer> items() {
+        List<Integer> items = new ArrayList<>();
+        avlTree.forEach(items::add);
+        return items;
+    }
+
+    private void runAll(List<Callable<Void>> tasks) throws Exception {
+        for (Future<Void> future : executor.invokeAll(tasks, 60, TimeUnit.SECONDS)) {
+            future.get();
+        }
+    }
+
+    /** An Avl tree with n items is never taller than 1.44 log2(n + 2) */
+    private void assertBalancedHeight(int n) {
+        double bound = 1.4405 * Math.log(n + 2) / Math.log(2) - 0.3277;
+        assertTrue(avlTree.getHeight() + 1 <= bound,
+                "height " + avlTree.getHeight() + " with " + n + " items");
+    }
+
+    @Test
+    @DisplayName("ConcurrentAvlTree is empty before anything is inserted")
+    public void avlTreeIsEmpty() {
+        assertAll(
+                () -> assertTrue(avlTree.avlIsEmpty()),
+                () -> assertNull(avlTree.search(1)),
+                () -> assertThrows(NullPointerException.class, () -> avlTree.getHeight())
+        );
+    }
+
+    @Test
+    @DisplayName("Insert and delete report whether the tree changed")
+    public void insertAndDeleteReportChanges() {
+        assertTrue(avlTree.insert(4));
+        assertFalse(avlTree.insert(4));
+        assertTrue(avlTree.insert(2));
+        assertTrue(avlTree.insert(6));
+
+        assertAll(
+                () -> assertEquals(6, avlTree.search(6)),
+                () -> assertTrue(avlTree.contains(2)),
+                () -> assertFalse(avlTree.contains(5)),
+                () -> assertEquals(1, avlTree.getHeight())
+        );
+
+        assertTrue(avlTree.delete(4));
+        assertFalse(avlTree.delete(4));
+        assertFalse(avlTree.delete(5));
+        assertTrue(avlTree.insert(4));
+        assertEquals(List.of(2, 4, 6), items());
+    }
+
+    @Test
+    @DisplayName("Deleting every item leaves the tree empty")
+    public void deletingEverythingEmptiesTheTree() {
+        for (int i = 0; i < 100; i++) {
+            avlTree.insert(i);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertTrue(avlTree.delete(i));
+        }
+
+        assertTrue(avlTree.avlIsEmpty());
+    }
+
+    @Test
+    @DisplayName("Random sequential operations keep the same items as a TreeSet and stay balanced")
+    public void randomSequentialOperations() {
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(5);
+
+        for (int i = 0; i < 20000; i++) {
+            int item = random.nextInt(1000);
+            if (random.nextInt(3) > 0) {
+                assertEquals(expected.add(item), avlTree.insert(item));
+            } else {
+                assertEquals(expected.remove(item), avlTree.delete(item));
+            }
+        }
+
+        assertEquals(new ArrayList<>(expected), items());
+        assertBalancedHeight(expected.size());
+    }
+
+    @Test
+    @DisplayName("Concurrent writers on disjoint items end with exactly their items")
+    public void concurrentWritersOnDisjointItems() throws Exception {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            tasks.add(() -> {
+                Random random = new Random(thread);
+                for (int i = 0; i < 20000; i++) {
+                    int item = random.nextInt(2000) * THREADS + thread;
+                    if (random.nextInt(3) > 0) {
+                        avlTree.insert(item);
+                    } else {
+                        avlTree.delete(item);
+                    }
+                }
+                return null;
+            });
+        }
+        runAll(tasks);
+
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            Random random = new Random(thread);
+            for (int i = 0; i < 20000; i++) {
+                int item = random.nextInt(2000) * THREADS + thread;
+                if (random.nextInt(3) > 0) {
+                    expected.add(item);
+                } else {
+                    expected.remove(item);
+                }
+            }
+        }
+
+        assertEquals(new ArrayList<>(expected), items());
+        assertBalancedHeight(expected.size());
+    }
+
+    @Test
+    @DisplayName("Concurrent inserts of the same items succeed exactly once each")
+    public void concurrentInsertsOfTheSameItems() throws Exception {
+        AtomicInteger inserted = new AtomicInteger();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            tasks.add(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    if (avlTree.insert(i)) {
+                        inserted.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        runAll(tasks);
+
+        assertEquals(5000, inserted.get());
+        assertEquals(5000, items().size());
+        assertBalancedHeight(5000);
+    }
+
+    @Test
+    @DisplayName("Searches running during rotations are linearizable")
+    public void searchesAreLinearizable() throws Exception {
+        // items 0, 2, 4, ... are toggled by one writer each, odd items are never inserted;
+        // started and completed count the updates of each toggled item
+        int toggled = THREADS / 2;
+        AtomicIntegerArray started = new AtomicIntegerArray(toggled);
+        AtomicIntegerArray completed = new AtomicIntegerArray(toggled);
+        for (int i = 0; i < 2000; i++) {
+            avlTree.insert(4 * i + 1000);
+        }
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int w = 0; w < toggled; w++) {
+            int writer = w;
+            tasks.add(() -> {
+                Random random = new Random(writer);
+                for (int i = 0; i < 20000; i++) {
+                    // churn around the toggled item so that it keeps being rotated
+                    avlTree.insert(4 * random.nextInt(2000) + 1002);
+                    avlTree.delete(4 * random.nextInt(2000) + 1002);
+
+                    started.set(writer, i + 1);
+                    if (i % 2 == 0) {
+                        avlTree.insert(2 * writer);
+                    } else {
+                        avlTree.delete(2 * writer);
+                    }
+                    completed.set(writer, i + 1);
+                }
+                return null;
+            });
+        }
+        for (int r = 0; r < THREADS - toggled; r++) {
+            int reader = r;
+            tasks.add(() -> {
+                Random random = new Random(100 + reader);
+                for (int i = 0; i < 200000; i++) {
+                    int writer = random.nextInt(toggled);
+                    int before = completed.get(writer);
+                    boolean found = avlTree.contains(2 * writer);
+                    int after = started.get(writer);
+
+                    // after k updates the item is in the tree if k is odd; the search must see
+                    // the state after some k between before and after
+                    boolean possible = after > before || found == (before % 2 == 1);
+                    assertTrue(possible, "item " + 2 * writer + " found " + found
+                            + " after " + before + " updates");
+                    assertFalse(avlTree.contains(2 * random.nextInt(2000) + 1001));
+                }
+                return null;
+            });
+        }
+        runAll(tasks);
+
+        assertBalancedHeight(items().size());
+    }
+}
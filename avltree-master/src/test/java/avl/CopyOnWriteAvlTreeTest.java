@@ -0,0 +1,164 @@
+package avl;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CopyOnWriteAvlTreeTest {
+
+    static final int READERS = 4;
+
+    CopyOnWriteAvlTree<Integer> avlTree;
+    Comparator<Integer> comparator;
+
+    @BeforeEach
+    public void setUp() {
+        comparator = Comparator.naturalOrder();
+        avlTree = new CopyOnWriteAvlTree<>(comparator);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        avlTree = null;
+        comparator = null;
+    }
+
+    private static List<Integer> items(Iterable<Integer> tree) {
+        List<Integer> items = new ArrayList<>();
+        tree.forEach(items::add);
+        return items;
+    }
+
+    private void runWithReaders(Callable<Void> writer, Callable<Void> reader) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(READERS + 1);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            tasks.add(writer);
+            for (int i = 0; i < READERS; i++) {
+                tasks.add(reader);
+            }
+            for (Future<Void> future : executor.invokeAll(tasks, 60, TimeUnit.SECONDS)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("CopyOnWriteAvlTree is empty before anything is inserted")
+    public void avlTreeIsEmpty() {
+        assertAll(
+                () -> assertTrue(avlTree.avlIsEmpty()),
+                () -> assertEquals(0, avlTree.size()),
+                () -> assertNull(avlTree.search(1)),
+                () -> assertThrows(NullPointerException.class, () -> avlTree.getHeight())
+        );
+    }
+
+    @Test
+    @DisplayName("Writes build the same tree as AvlTree")
+    public void writesBuildSameTreeAsAvlTree() {
+        AvlTree<Integer> expected = new AvlTree<>(comparator);
+        for (int i = 0; i < 100; i++) {
+            avlTree.insert(i);
+            expected.insert(i);
+        }
+        avlTree.deleteAll(List.of(10, 20, 30));
+        expected.deleteAll(List.of(10, 20, 30));
+
+        assertAll(
+                () -> assertEquals(items(expected), items(avlTree)),
+                () -> assertEquals(expected.getHeight(), avlTree.getHeight()),
+                () -> assertEquals(97, avlTree.size()),
+                () -> assertEquals(50, avlTree.search(50)),
+                () -> assertFalse(avlTree.contains(20))
+        );
+    }
+
+    @Test
+    @DisplayName("Snapshots are not affected by later writes")
+    public void snapshotsAreNotAffectedByWrites() {
+        avlTree.insertAll(List.of(3, 1, 2));
+        PersistentAvlTree<Integer> snapshot = avlTree.snapshot();
+
+        avlTree.delete(1);
+        avlTree.insert(4);
+
+        assertEquals(List.of(1, 2, 3), items(snapshot));
+        assertEquals(List.of(2, 3, 4), items(avlTree));
+    }
+
+    @Test
+    @DisplayName("Readers see every item of a batch or none of them")
+    public void readersSeeWholeBatches() throws Exception {
+        int batches = 2000;
+        runWithReaders(() -> {
+            for (int i = 0; i < batches; i++) {
+                avlTree.insertAll(List.of(3 * i, 3 * i + 1, 3 * i + 2));
+                if (i % 2 == 1) {
+                    avlTree.deleteAll(List.of(3 * i, 3 * i + 1, 3 * i + 2));
+                }
+            }
+            return null;
+        }, () -> {
+            Random random = new Random();
+            for (int i = 0; i < 100000; i++) {
+                int batch = random.nextInt(batches);
+                PersistentAvlTree<Integer> snapshot = avlTree.snapshot();
+                boolean first = snapshot.contains(3 * batch);
+                assertEquals(first, snapshot.contains(3 * batch + 1));
+                assertEquals(first, snapshot.contains(3 * batch + 2));
+                assertEquals(0, snapshot.size() % 3);
+            }
+            return null;
+        });
+
+        assertEquals(3 * batches / 2, avlTree.size());
+    }
+
+    @Test
+    @DisplayName("A batch that fails on one of its items leaves no trace of the others")
+    public void failedBatchesAreDiscarded() {
+        avlTree.insert(1);
+        assertThrows(NullPointerException.class,
+                () -> avlTree.insertAll(Arrays.asList(4, 5, null, 6)));
+        avlTree.insert(2);
+        assertEquals(List.of(1, 2), items(avlTree));
+
+        assertThrows(NullPointerException.class,
+                () -> avlTree.deleteAll(Arrays.asList(1, null, 2)));
+        avlTree.insert(3);
+        assertEquals(List.of(1, 2, 3), items(avlTree));
+    }
+
+    @Test
+    @DisplayName("Readers always find the items the writer never deletes")
+    public void readersFindStableItems() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            avlTree.insert(2 * i);
+        }
+        runWithReaders(() -> {
+            Random random = new Random(17);
+            for (int i = 0; i < 50000; i++) {
+                avlTree.insert(2 * random.nextInt(1000) + 1);
+                avlTree.delete(2 * random.nextInt(1000) + 1);
+            }
+            return null;
+        }, () -> {
+            Random random = new Random();
+            for (int i = 0; i < 100000; i++) {
+                int item = 2 * random.nextInt(1000);
+                assertEquals(item, avlTree.search(item));
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,333 @@
+package avl;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DurableAvlTreeTest {
+
+    /** Four bytes per item; negative items cannot be serialized */
+    static final KeySerializer<Integer> INTEGERS = new KeySerializer<Integer>() {
+        @Override
+        public int serializedSize(Integer item) {
+            return 4;
+        }
+
+        @Override
+        public void write(Integer item, ByteBuffer buffer) {
+            if (item < 0) {
+                throw new IllegalArgumentException("Negative item");
+            }
+            buffer.putInt(item);
+        }
+
+        @Override
+        public Integer read(ByteBuffer buffer, int length) {
+            return buffer.getInt();
+        }
+    };
+
+    Path directory;
+    List<Path> copies;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("avl");
+        copies = new ArrayList<>();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        deleteDirectory(directory);
+        for (Path copy : copies) {
+            deleteDirectory(copy);
+        }
+        directory = null;
+        copies = null;
+    }
+
+    private static void deleteDirectory(Path path) throws IOException {
+        try (Stream<Path> files = Files.list(path)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(path);
+    }
+
+    private DurableAvlTree<Integer> open(SyncPolicy policy) throws IOException {
+        return DurableAvlTree.open(directory, Comparator.<Integer>naturalOrder(), INTEGERS, policy);
+    }
+
+    /** Recovers what is on disk now, as a process restarted after a crash would */
+    private List<Integer> recoverCopy() throws IOException {
+        Path copy = Files.createTempDirectory("avl-copy");
+        copies.add(copy);
+        for (String name : new String[]{DurableAvlTree.LOG_FILE, DurableAvlTree.CHECKPOINT_FILE}) {
+            if (Files.exists(directory.resolve(name))) {
+                Files.copy(directory.resolve(name), copy.resolve(name));
+            }
+        }
+        List<Integer> items = new ArrayList<>();
+        try (DurableAvlTree<Integer> recovered = DurableAvlTree.open(copy,
+                Comparator.<Integer>naturalOrder(), INTEGERS, SyncPolicy.everyOperation())) {
+            recovered.forEach(items::add);
+        }
+        return items;
+    }
+
+    @Test
+    @DisplayName("Opening an empty directory creates an empty tree and a log with its header")
+    public void openingEmptyDirectory() throws IOException {
+        try (DurableAvlTree<Integer> avlTree = open(SyncPolicy.everyOperation())) {
+            assertAll(
+                    () -> assertTrue(avlTree.avlIsEmpty()),
+                    () -> assertEquals(DurableAvlTree.LOG_HEADER_BYTES,
+                            Files.size(directory.resolve(DurableAvlTree.LOG_FILE))),
+                    () -> assertFalse(Files.exists(directory.resolve(DurableAvlTree.CHECKPOINT_FILE)))
+            );
+        }
+    }
+
+    @Test
+    @DisplayName("Reopening replays the log")
+    public void reopeningReplaysLog() throws IOException {
+        String expectedTree;
+        try (DurableAvlTree<Integer> avlTree = open(SyncPolicy.everyBytes(1 << 20))) {
+            for (int item = 0; item < 100; item++) {
+                avlTree.insert(item * 7 % 101);
+            }
+            avlTree.delete(14);
+            avlTree.delete(50);
+            expectedTree = avlTree.toString();
+        }
+
+        try (DurableAvlTree<Integer> avlTree = open(SyncPolicy.everyOperation())) {
+            assertAll(
+                    () -> assertEquals(expectedTree, avlTree.toString()),
+                    () -> assertEquals(98, avlTree.size()),
+                    () -> assertFalse(avlTree.contains(14)),
+                    () -> assertTrue(avlTree.contains(15))
+            );
+        }
+    }
+
+    @Test
+    @DisplayName("Recovery loads the checkpoint and replays the records written after it")
+    public void recoveryLoadsCheckpointAndReplays() throws IOException {
+        try (DurableAvlTree<Integer> avlTree = open(SyncPolicy.everyOperation())) {
+            for (int item = 0; item < 1000; item++) {
+                avlTree.insert(item);
+            }
+            avlTree.checkpoint();
+            assertEquals(DurableAvlTree.LOG_HEADER_BYTES,
+                    Files.size(directory.resolve(DurableAvlTree.LOG_FILE)));
+            avlTree.delete(0);
+            avlTree.insert(1000);
+        }
+
+        try (DurableAvlTree<Integer> avlTree = open(SyncPolicy.everyOperation())) {
+            List<Integer> items = new ArrayList<>();
+            avlTree.forEach(items::add);
+            assertAll(
+                    () -> assertEquals(1000, items.size()),
+                    () -> assertEquals(1, items.get(0)),
+                    () -> assertEquals(1000, items.get(999)),
+                    () -> assertEquals(9, avlTree.getHeight())
+            );
+        }
+    }
+
+    @Test
+    @DisplayName("Every acknowledged write survives a crash under everyOperation")
+    public void acknowledgedWritesSurviveCrash() throws Exception {
+        try (DurableAvlTree<Integer> avlTree = open(SyncPolicy.everyOperation())) {
+            Thread[] writers = new Thread[8];
+            for (int t = 0; t < writers.length; t++) {
+                int first = t * 500;
+                writers[t] = new Thread(() -> {
+                    for (int item = first; item < first + 500; item++) {
+                        avlTree.insert(item);
+                    }
+                });
+                writers[t].start();
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+
+            assertEquals(4000, recoverCopy().size());
+        }
+    }
+
+    @Test
+    @DisplayName("everyBytes forces the log once enough records are pending")
+    public void everyBytesForcesWhenFull() throws IOException {
+        int recordBytes = DurableAvlTree.RECORD_OVERHEAD + 4;
+        try (DurableAvlTree<Integer> avlTree = open(SyncPolicy.everyBytes(3 * recordBytes))) {
+            avlTree.insert(1);
+            avlTree.insert(2);
+            assertEquals(List.of(), recoverCopy());
+            avlTree.insert(3);
+            assertEquals(List.of(1, 2, 3), recoverCopy());
+            avlTree.insert(4);
+            avlTree.sync();
+            assertEquals(List.of(1, 2, 3, 4), recoverCopy());
+        }
+    }
+
+    @Test
+    @DisplayName("everyInterval forces the log in the background")
+    public void everyIntervalForcesInBackground() throws Exception {
+        try (DurableAvlTree<Integer> avlTree = open(SyncPolicy.everyInterval(Duration.ofMillis(10)))) {
+            avlTree.insert(1);
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (recoverCopy().isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(List.of(1), recoverCopy());
+        }
+    }
+
+    @Test
+    @DisplayName("A record cut short by a crash is dropped on recovery")
+    public void tornRecordIsDropped() throws IOException {
+        try (DurableAvlTree<Integer> avlTree = open(SyncPolicy.everyOperation())) {
+            avlTree.insert(1);
+            avlTree.insert(2);
+        }
+        Path log = directory.resolve(DurableAvlTree.LOG_FILE);
+        long validBytes = Files.size(log) - 3;
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(validBytes);
+        }
+
+        try (DurableAvlTree<Integer> avlTree = open(SyncPolicy.everyOperation())) {
+            assertAll(
+                    () -> assertTrue(avlTree.contains(1)),
+                    () -> assertFalse(avlTree.contains(2)),
+                    () -> assertEquals(DurableAvlTree.LOG_HEADER_BYTES
+                            + DurableAvlTree.RECORD_OVERHEAD + 4, Files.size(log))
+            );
+            avlTree.insert(3);
+        }
+        try (DurableAvlTree<Integer> avlTree = open(SyncPolicy.everyOperation())) {
+            assertEquals(2, avlTree.size());
+        }
+    }
+
+    @Test
+    @DisplayName("The log is replayed window by window, whatever the size of the windows")
+    public void logIsReplayedInWindows() throws IOException {
+        try (DurableAvlTree<Integer> avlTree = open(SyncPolicy.everyBytes(1 << 16))) {
+            for (int i = 0; i < 1000; i++) {
+                avlTree.insert(i);
+                if (i % 3 == 0) {
+                    avlTree.delete(i / 2);
+                }
+            }
+        }
+        Path log = directory.resolve(DurableAvlTree.LOG_FILE);
+        long validBytes = Files.size(log);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 4, 1, 0}), validBytes);
+        }
+
+        AvlTree<Integer> expected = new AvlTree<>(Comparator.<Integer>naturalOrder());
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            assertEquals(validBytes, DurableAvlTree.replay(channel, INTEGERS, expected,
+                    DurableAvlTree.REPLAY_WINDOW_BYTES));
+        }
+        for (long windowBytes : new long[]{8, 13, 20, 1000}) {
+            AvlTree<Integer> tree = new AvlTree<>(Comparator.<Integer>naturalOrder());
+            try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+                assertEquals(validBytes,
+                        DurableAvlTree.replay(channel, INTEGERS, tree, windowBytes));
+            }
+            assertEquals(expected.toString(), tree.toString());
+        }
+        assertEquals(1000 - 334, expected.size());
+    }
+
+    @Test
+    @DisplayName("A corrupted record ends the replay")
+    public void corruptedRecordEndsReplay() throws IOException {
+        try (DurableAvlTree<Integer> avlTree = open(SyncPolicy.everyOperation())) {
+            avlTree.insert(1);
+            avlTree.insert(2);
+            avlTree.insert(3);
+        }
+        Path log = directory.resolve(DurableAvlTree.LOG_FILE);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            long secondItem = DurableAvlTree.LOG_HEADER_BYTES + DurableAvlTree.RECORD_OVERHEAD + 4 + 5;
+            channel.write(ByteBuffer.wrap(new byte[]{7}), secondItem);
+        }
+
+        try (DurableAvlTree<Integer> avlTree = open(SyncPolicy.everyOperation())) {
+            assertEquals(" | 1", avlTree.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("An item the serializer rejects changes neither the tree nor the log")
+    public void rejectedItemIsNotLogged() throws IOException {
+        try (DurableAvlTree<Integer> avlTree = open(SyncPolicy.everyOperation())) {
+            avlTree.insert(1);
+            assertThrows(IllegalArgumentException.class, () -> avlTree.insert(-1));
+            avlTree.insert(2);
+            assertAll(
+                    () -> assertEquals(2, avlTree.size()),
+                    () -> assertEquals(List.of(1, 2), recoverCopy())
+            );
+        }
+    }
+
+    @Test
+    @DisplayName("Files that are not logs or checkpoints are rejected")
+    public void invalidFilesAreRejected() throws IOException {
+        Files.write(directory.resolve(DurableAvlTree.LOG_FILE), new byte[16]);
+        assertThrows(IOException.class, () -> open(SyncPolicy.everyOperation()));
+
+        Files.delete(directory.resolve(DurableAvlTree.LOG_FILE));
+        Files.write(directory.resolve(DurableAvlTree.CHECKPOINT_FILE), new byte[16]);
+        assertThrows(IOException.class, () -> open(SyncPolicy.everyOperation()));
+    }
+
+    @Test
+    @DisplayName("A closed tree cannot be used")
+    public void closedTreeCannotBeUsed() throws IOException {
+        DurableAvlTree<Integer> avlTree = open(SyncPolicy.everyOperation());
+        avlTree.close();
+        avlTree.close();
+        assertAll(
+                () -> assertTrue(avlTree.isClosed()),
+                () -> assertThrows(IllegalStateException.class, () -> avlTree.insert(1)),
+                () -> assertThrows(IllegalStateException.class, () -> avlTree.contains(1)),
+                () -> assertThrows(IllegalStateException.class, avlTree::checkpoint)
+        );
+    }
+
+    @Test
+    @DisplayName("Sync policies reject limits that are not positive")
+    public void syncPoliciesRejectInvalidLimits() {
+        assertAll(
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> SyncPolicy.everyInterval(Duration.ZERO)),
+                () -> assertThrows(IllegalArgumentException.class, () -> SyncPolicy.everyBytes(0)),
+                () -> assertEquals("everyBytes(10)", SyncPolicy.everyBytes(10).toString())
+        );
+    }
+}
@@ -0,0 +1,172 @@
+package avl;
+
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeySerializersTest {
+
+    private static <T> ByteBuffer serialize(KeySerializer<T> serializer, T item, ByteOrder order) {
+        ByteBuffer buffer = ByteBuffer.allocate(serializer.serializedSize(item)).order(order);
+        serializer.write(item, buffer);
+        assertFalse(buffer.hasRemaining());
+        return buffer.flip();
+    }
+
+    /**
+     * Checks that every item is read back, and that serialized items compare bytewise as the
+     * comparator compares them. The serializer must only claim to preserve order for the natural
+     * order.
+     */
+    private static <T> void assertOrderPreserved(KeySerializer<T> serializer, List<T> items,
+            Comparator<? super T> comparator) {
+        assertEquals(comparator == Comparator.naturalOrder(), serializer.preservesOrder());
+        List<ByteBuffer> serialized = new ArrayList<>();
+        for (T item : items) {
+            ByteBuffer buffer = serialize(serializer, item, ByteOrder.BIG_ENDIAN);
+            assertEquals(buffer, serialize(serializer, item, ByteOrder.LITTLE_ENDIAN)
+                    .order(ByteOrder.BIG_ENDIAN));
+            assertEquals(item, serializer.read(buffer.duplicate(), buffer.remaining()));
+            serialized.add(buffer);
+        }
+        for (int i = 0; i < items.size(); i++) {
+            for (int j = 0; j < items.size(); j++) {
+                assertEquals(Integer.signum(comparator.compare(items.get(i), items.get(j))),
+                        Integer.signum(KeySerializers.compare(serialized.get(i), serialized.get(j))),
+                        items.get(i) + " and " + items.get(j));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Integers keep their order")
+    public void integers() {
+        Random random = new Random(23);
+        List<Integer> items = new ArrayList<>(List.of(Integer.MIN_VALUE, -256, -1, 0, 1, 255, 256,
+                Integer.MAX_VALUE));
+        random.ints(50).forEach(items::add);
+        assertOrderPreserved(KeySerializers.INTEGER, items, Comparator.naturalOrder());
+        assertEquals(4, KeySerializers.INTEGER.fixedSize());
+    }
+
+    @Test
+    @DisplayName("Longs keep their order")
+    public void longs() {
+        Random random = new Random(23);
+        List<Long> items = new ArrayList<>(List.of(Long.MIN_VALUE, -1L, 0L, 1L, Long.MAX_VALUE));
+        random.longs(50).forEach(items::add);
+        assertOrderPreserved(KeySerializers.LONG, items, Comparator.naturalOrder());
+    }
+
+    @Test
+    @DisplayName("Doubles keep the order of Double.compare")
+    public void doubles() {
+        Random random = new Random(23);
+        List<Double> items = new ArrayList<>(List.of(Double.NEGATIVE_INFINITY, -Double.MAX_VALUE,
+                -1.5, -Double.MIN_VALUE, -0.0, 0.0, Double.MIN_VALUE, 1.5, Double.MAX_VALUE,
+                Double.POSITIVE_INFINITY, Double.NaN));
+        random.doubles(50).map(value -> (value - 0.5) * 1e10).forEach(items::add);
+        assertOrderPreserved(KeySerializers.DOUBLE, items, Comparator.naturalOrder());
+    }
+
+    @Test
+    @DisplayName("UUIDs keep the order of UUID.compareTo")
+    public void uuids() {
+        Random random = new Random(23);
+        List<UUID> items = new ArrayList<>(List.of(new UUID(0, 0), new UUID(-1, -1),
+                new UUID(Long.MIN_VALUE, 5), new UUID(Long.MAX_VALUE, Long.MIN_VALUE)));
+        for (int i = 0; i < 50; i++) {
+            items.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+        assertOrderPreserved(KeySerializers.UUID, items, Comparator.naturalOrder());
+    }
+
+    @Test
+    @DisplayName("Strings are written as UTF-8 in code point order")
+    public void strings() {
+        List<String> items = List.of("", "a", "ab", "abc", "b", "\u00e9", "\u0800", "\u20ac",
+                "\ud83d\ude00", "\uffff", "z\ud800\udc00", "path/to/file", "path/to");
+        for (String item : items) {
+            assertArrayEquals(item.getBytes(StandardCharsets.UTF_8),
+                    serialize(KeySerializers.UTF_8, item, ByteOrder.BIG_ENDIAN).array());
+        }
+        assertAll(
+                () -> assertOrderPreserved(KeySerializers.UTF_8, items, KeySerializers.CODE_POINT_ORDER),
+                () -> assertTrue("\uffff".compareTo("\ud83d\ude00") > 0),
+                () -> assertTrue(KeySerializers.CODE_POINT_ORDER.compare("\uffff", "\ud83d\ude00") < 0),
+                () -> assertEquals(-1, KeySerializers.UTF_8.fixedSize())
+        );
+    }
+
+    @Test
+    @DisplayName("Strings with unpaired surrogates are rejected")
+    public void unpairedSurrogates() {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        for (String item : List.of("\ud800", "a\udc00b", "\ud83d", "\ude00\ud83d")) {
+            assertAll(
+                    () -> assertThrows(IllegalArgumentException.class,
+                            () -> KeySerializers.UTF_8.serializedSize(item)),
+                    () -> assertThrows(IllegalArgumentException.class,
+                            () -> KeySerializers.UTF_8.write(item, buffer.clear()))
+            );
+        }
+    }
+
+    @Test
+    @DisplayName("Strings are read from direct buffers")
+    public void stringsFromDirectBuffers() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+        KeySerializers.UTF_8.write("clave \u00f1", buffer);
+        buffer.flip();
+        assertEquals("clave \u00f1", KeySerializers.UTF_8.read(buffer, buffer.remaining()));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    @DisplayName("Bytewise comparison is unsigned and puts prefixes first")
+    public void bytewiseComparison() {
+        ByteBuffer low = ByteBuffer.wrap(new byte[]{1, 2});
+        ByteBuffer high = ByteBuffer.wrap(new byte[]{1, (byte) 0x80});
+        ByteBuffer longer = ByteBuffer.wrap(new byte[]{1, 2, 0});
+        assertAll(
+                () -> assertTrue(KeySerializers.compare(low, high) < 0),
+                () -> assertTrue(KeySerializers.compare(high, low) > 0),
+                () -> assertTrue(KeySerializers.compare(low, longer) < 0),
+                () -> assertEquals(0, KeySerializers.compare(low, low.duplicate())),
+                () -> assertEquals(0, low.position())
+        );
+    }
+
+    @Test
+    @DisplayName("Built-in codecs work in snapshots")
+    public void codecsInSnapshots() throws IOException {
+        AvlTree<Double> avlTree = new AvlTree<>(Comparator.<Double>naturalOrder());
+        new Random(23).doubles(1000).forEach(avlTree::insert);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (AvlSnapshot<Double> snapshot = new AvlSnapshot<>(KeySerializers.DOUBLE)) {
+            snapshot.write(avlTree, Channels.newChannel(bytes));
+            AvlTree<Double> copy = snapshot.read(
+                    Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())),
+                    Comparator.<Double>naturalOrder());
+
+            List<Double> expected = new ArrayList<>();
+            avlTree.forEach(expected::add);
+            List<Double> items = new ArrayList<>();
+            copy.forEach(items::add);
+            assertEquals(expected, items);
+        }
+    }
+}
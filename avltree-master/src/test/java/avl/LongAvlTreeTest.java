@@ -0,0 +1,114 @@
+package avl;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongAvlTreeTest {
+
+    LongAvlTree avlTree;
+
+    @BeforeEach
+    public void setUp() {
+        avlTree = new LongAvlTree();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        avlTree = null;
+    }
+
+    @Test
+    @DisplayName("LongAvlTree is empty before anything is inserted")
+    public void avlTreeIsEmpty() {
+        assertTrue(avlTree.avlIsEmpty());
+        assertThrows(NullPointerException.class, () -> avlTree.getHeight());
+    }
+
+    @Test
+    @DisplayName("Inserting two left elements should rebalance the tree as AvlTree does")
+    public void insertingTwoLeftNodesAndRebalance() {
+        avlTree.insert(7);
+        avlTree.insert(2);
+        avlTree.insert(3);
+
+        assertAll(
+                () -> assertEquals(3, avlTree.getTop().getItem()),
+                () -> assertEquals(2, avlTree.getTop().getLeft().getItem()),
+                () -> assertEquals(7, avlTree.getTop().getRight().getItem()),
+                () -> assertEquals(" | 3 | 2 | 7", avlTree.toString())
+        );
+    }
+
+    @Test
+    @DisplayName("Deleting the top node of an 8 elements tree gives the same tree as AvlTree")
+    public void deletingTopNodeOfAnEightElementsTree() {
+        for (long item : new long[]{20, 8, 22, 4, 12, 24, 10, 14}) {
+            avlTree.insert(item);
+        }
+
+        avlTree.delete(20);
+
+        assertAll(
+                () -> assertEquals(" | 12 | 8 | 4 | 10 | 22 | 14 | 24", avlTree.toString()),
+                () -> assertEquals(2, avlTree.getHeight())
+        );
+    }
+
+    @Test
+    @DisplayName("Search finds negative and extreme values and ignores missing ones")
+    public void searchExtremeValues() {
+        avlTree.insert(Long.MIN_VALUE);
+        avlTree.insert(-1);
+        avlTree.insert(Long.MAX_VALUE);
+
+        assertAll(
+                () -> assertEquals(Long.MIN_VALUE, avlTree.search(Long.MIN_VALUE).getItem()),
+                () -> assertTrue(avlTree.contains(-1)),
+                () -> assertTrue(avlTree.contains(Long.MAX_VALUE)),
+                () -> assertNull(avlTree.search(0))
+        );
+    }
+
+    @Test
+    @DisplayName("Random inserts and deletes keep the tree balanced and equal to a TreeSet")
+    public void randomInsertsAndDeletes() {
+        Random random = new Random(1);
+        TreeSet<Long> expected = new TreeSet<>();
+
+        for (int i = 0; i < 20000; i++) {
+            long item = random.nextInt(2000) - 1000;
+            if (random.nextBoolean()) {
+                avlTree.insert(item);
+                expected.add(item);
+            } else {
+                avlTree.delete(item);
+                expected.remove(item);
+            }
+        }
+
+        for (long item = -1000; item < 1000; item++) {
+            assertEquals(expected.contains(item), avlTree.contains(item));
+        }
+        assertEquals(expected.size(), checkSubtree(avlTree.getTop()));
+    }
+
+    private int checkSubtree(LongAvlNode node) {
+        if (node == null) {
+            return 0;
+        }
+        if (node.hasLeft()) {
+            assertSame(node, node.getLeft().getParent());
+            assertTrue(node.getLeft().getItem() < node.getItem());
+        }
+        if (node.hasRight()) {
+            assertSame(node, node.getRight().getParent());
+            assertTrue(node.getRight().getItem() > node.getItem());
+        }
+        assertTrue(Math.abs(avlTree.getBalance(node)) <= 1);
+        return 1 + checkSubtree(node.getLeft()) + checkSubtree(node.getRight());
+    }
+}
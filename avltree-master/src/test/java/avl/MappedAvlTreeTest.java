@@ -0,0 +1,145 @@
+package avl;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedAvlTreeTest {
+
+    Path file;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = Files.createTempFile("avl", ".tree");
+        Files.delete(file);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        file = null;
+    }
+
+    @Test
+    @DisplayName("Opening a missing file creates an empty tree")
+    public void openingMissingFileCreatesEmptyTree() throws IOException {
+        try (MappedAvlTree avlTree = MappedAvlTree.open(file)) {
+            assertAll(
+                    () -> assertTrue(avlTree.avlIsEmpty()),
+                    () -> assertEquals(MappedAvlTree.HEADER_BYTES, Files.size(file))
+            );
+        }
+    }
+
+    @Test
+    @DisplayName("Reopening a closed file gives back the same tree")
+    public void reopeningGivesBackSameTree() throws IOException {
+        String expectedTree;
+        try (MappedAvlTree avlTree = MappedAvlTree.open(file)) {
+            for (long key = 0; key < 100; key++) {
+                avlTree.insert(key * 7 % 101);
+            }
+            avlTree.delete(14);
+            avlTree.delete(50);
+            expectedTree = avlTree.toString();
+        }
+
+        try (MappedAvlTree avlTree = MappedAvlTree.open(file)) {
+            assertAll(
+                    () -> assertEquals(expectedTree, avlTree.toString()),
+                    () -> assertEquals(98, avlTree.size()),
+                    () -> assertFalse(avlTree.contains(14)),
+                    () -> assertTrue(avlTree.contains(15))
+            );
+            avlTree.insert(14);
+            assertTrue(avlTree.contains(14));
+        }
+    }
+
+    @Test
+    @DisplayName("A tree spread over several chunks is reopened and keeps growing")
+    public void reopeningSeveralChunks() throws IOException {
+        int count = BufferAvlTree.CHUNK_NODES + 1;
+        try (MappedAvlTree avlTree = MappedAvlTree.open(file)) {
+            for (long key = 0; key < count; key++) {
+                avlTree.insert(key);
+            }
+        }
+
+        try (MappedAvlTree avlTree = MappedAvlTree.open(file)) {
+            avlTree.insert(count);
+            avlTree.sync();
+
+            assertAll(
+                    () -> assertEquals(count + 1, avlTree.size()),
+                    () -> assertTrue(avlTree.contains(0)),
+                    () -> assertTrue(avlTree.contains(count)),
+                    () -> assertEquals(MappedAvlTree.HEADER_BYTES + 2L * BufferAvlTree.CHUNK_BYTES,
+                            Files.size(file))
+            );
+        }
+    }
+
+    @Test
+    @DisplayName("A file modified after the last sync is rejected")
+    public void unsyncedFileIsRejected() throws IOException {
+        MappedAvlTree avlTree = MappedAvlTree.open(file);
+        avlTree.insert(1);
+        avlTree.sync();
+        avlTree.insert(2);
+
+        assertThrows(IOException.class, () -> MappedAvlTree.open(file));
+        avlTree.close();
+        MappedAvlTree.open(file).close();
+    }
+
+    @Test
+    @DisplayName("A file that is not a tree file is rejected")
+    public void foreignFileIsRejected() throws IOException {
+        Files.write(file, new byte[MappedAvlTree.HEADER_BYTES]);
+
+        assertThrows(IOException.class, () -> MappedAvlTree.open(file));
+    }
+
+    @Test
+    @DisplayName("A header with counts or node indices out of range is rejected")
+    public void invalidHeaderFieldsAreRejected() throws IOException {
+        try (MappedAvlTree avlTree = MappedAvlTree.open(file)) {
+            for (int i = 0; i < 100; i++) {
+                avlTree.insert(i);
+            }
+            avlTree.delete(50);
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        int used = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN)
+                .getInt(MappedAvlTree.H_USED);
+        int[][] corruptions = {
+                {MappedAvlTree.H_CHUNK_COUNT, -1},
+                {MappedAvlTree.H_USED, -1},
+                {MappedAvlTree.H_USED, BufferAvlTree.CHUNK_NODES + 1},
+                {MappedAvlTree.H_TOP, used},
+                {MappedAvlTree.H_TOP, -2},
+                {MappedAvlTree.H_FREE, used},
+                {MappedAvlTree.H_SIZE, -1},
+                {MappedAvlTree.H_SIZE, used + 1}
+        };
+
+        for (int[] corruption : corruptions) {
+            byte[] corrupted = bytes.clone();
+            ByteBuffer.wrap(corrupted).order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(corruption[0], corruption[1]);
+            Files.write(file, corrupted);
+            assertThrows(IOException.class, () -> MappedAvlTree.open(file));
+        }
+        Files.write(file, bytes);
+        try (MappedAvlTree avlTree = MappedAvlTree.open(file)) {
+            assertEquals(99, avlTree.size());
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package avl;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapAvlTreeTest {
+
+    OffHeapAvlTree avlTree;
+
+    @BeforeEach
+    public void setUp() {
+        avlTree = new OffHeapAvlTree();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        avlTree.close();
+        avlTree = null;
+    }
+
+    @Test
+    @DisplayName("OffHeapAvlTree is empty before anything is inserted")
+    public void avlTreeIsEmpty() {
+        assertAll(
+                () -> assertTrue(avlTree.avlIsEmpty()),
+                () -> assertEquals(0, avlTree.size()),
+                () -> assertThrows(NullPointerException.class, () -> avlTree.getHeight())
+        );
+    }
+
+    @Test
+    @DisplayName("Random inserts and deletes build the same tree as AvlTree")
+    public void randomOperationsBuildSameTreeAsAvlTree() {
+        AvlTree<Long> expected = new AvlTree<>(Comparator.<Long>naturalOrder());
+        Random random = new Random(5);
+
+        for (int i = 0; i < 5000; i++) {
+            long key = random.nextInt(500) - 250L;
+            if (random.nextInt(3) > 0) {
+                avlTree.insert(key);
+                expected.insert(key);
+            } else {
+                avlTree.delete(key);
+                expected.delete(key);
+            }
+            assertEquals(expected.toString(), avlTree.toString());
+        }
+        for (long key = -250; key < 250; key++) {
+            assertEquals(expected.search(key) != null, avlTree.contains(key));
+        }
+    }
+
+    @Test
+    @DisplayName("Nodes spread over several chunks are found")
+    public void nodesInSeveralChunks() {
+        int count = 2 * BufferAvlTree.CHUNK_NODES + 10;
+        for (long key = 0; key < count; key++) {
+            avlTree.insert(key * 3);
+        }
+
+        assertAll(
+                () -> assertEquals(count, avlTree.size()),
+                () -> assertTrue(avlTree.contains(3L * (count - 1))),
+                () -> assertFalse(avlTree.contains(3L * count)),
+                () -> assertEquals(17, avlTree.getHeight()),
+                () -> assertEquals(3.0 * BufferAvlTree.CHUNK_BYTES / count, avlTree.bytesPerEntry(), 1e-9)
+        );
+    }
+
+    @Test
+    @DisplayName("A closed tree cannot be used")
+    public void closedTreeCannotBeUsed() {
+        avlTree.insert(1);
+        avlTree.close();
+
+        assertAll(
+                () -> assertTrue(avlTree.isClosed()),
+                () -> assertThrows(IllegalStateException.class, () -> avlTree.insert(2)),
+                () -> assertThrows(IllegalStateException.class, () -> avlTree.contains(1)),
+                () -> assertThrows(IllegalStateException.class, () -> avlTree.delete(1))
+        );
+    }
+}
@@ -0,0 +1,156 @@
+package avl;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistentAvlTreeTest {
+
+    PersistentAvlTree<Integer> avlTree;
+    Comparator<Integer> comparator;
+
+    @BeforeEach
+    public void setUp() {
+        comparator = Comparator.naturalOrder();
+        avlTree = new PersistentAvlTree<>(comparator);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        avlTree = null;
+        comparator = null;
+    }
+
+    private static List<Integer> items(Iterable<Integer> tree) {
+        List<Integer> items = new ArrayList<>();
+        tree.forEach(items::add);
+        return items;
+    }
+
+    /** Checks order, heights, sizes and balance, returning the height of the subtree */
+    private int assertValidAvlTree(PersistentAvlTree.Node<Integer> node, Integer from, Integer to) {
+        if (node == null) {
+            return -1;
+        }
+        assertTrue(from == null || node.item > from);
+        assertTrue(to == null || node.item < to);
+        int leftHeight = assertValidAvlTree(node.left, from, node.item);
+        int rightHeight = assertValidAvlTree(node.right, node.item, to);
+        assertTrue(Math.abs(leftHeight - rightHeight) <= 1);
+        assertEquals(1 + Math.max(leftHeight, rightHeight), node.height);
+        assertEquals(1 + PersistentAvlTree.size(node.left) + PersistentAvlTree.size(node.right),
+                node.size);
+        return node.height;
+    }
+
+    @Test
+    @DisplayName("PersistentAvlTree is empty before anything is inserted")
+    public void avlTreeIsEmpty() {
+        assertAll(
+                () -> assertTrue(avlTree.avlIsEmpty()),
+                () -> assertEquals(0, avlTree.size()),
+                () -> assertEquals("", avlTree.toString()),
+                () -> assertThrows(NullPointerException.class, () -> avlTree.getHeight())
+        );
+    }
+
+    @Test
+    @DisplayName("Inserts build the same tree as AvlTree")
+    public void insertsBuildSameTreeAsAvlTree() {
+        AvlTree<Integer> expected = new AvlTree<>(comparator);
+        Random random = new Random(11);
+        for (int i = 0; i < 2000; i++) {
+            int item = random.nextInt(1000);
+            avlTree.insert(item);
+            expected.insert(item);
+        }
+
+        assertAll(
+                () -> assertEquals(expected.toString(), avlTree.toString()),
+                () -> assertEquals(expected.getHeight(), avlTree.getHeight()),
+                () -> assertEquals(expected.size(), avlTree.size())
+        );
+    }
+
+    @Test
+    @DisplayName("Random inserts and deletes keep the same items as a TreeSet and stay balanced")
+    public void randomOperationsMatchTreeSet() {
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(13);
+        for (int i = 0; i < 20000; i++) {
+            int item = random.nextInt(1000);
+            if (random.nextInt(3) > 0) {
+                avlTree.insert(item);
+                expected.add(item);
+            } else {
+                avlTree.delete(item);
+                expected.remove(item);
+            }
+        }
+
+        assertEquals(new ArrayList<>(expected), items(avlTree));
+        assertValidAvlTree(avlTree.getRoot(), null, null);
+        assertEquals(expected.first(), avlTree.search(expected.first()));
+    }
+
+    @Test
+    @DisplayName("A snapshot keeps its version while both handles are updated")
+    public void snapshotsAreIndependent() {
+        for (int i = 0; i < 10; i++) {
+            avlTree.insert(i);
+        }
+        PersistentAvlTree<Integer> snapshot = avlTree.snapshot();
+        Iterator<Integer> iterator = avlTree.iterator();
+
+        avlTree.delete(3);
+        avlTree.insert(42);
+        snapshot.insert(-1);
+
+        assertAll(
+                () -> assertEquals(List.of(0, 1, 2, 4, 5, 6, 7, 8, 9, 42), items(avlTree)),
+                () -> assertEquals(List.of(-1, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9), items(snapshot)),
+                () -> assertTrue(snapshot.contains(3)),
+                () -> assertFalse(avlTree.contains(3))
+        );
+        List<Integer> iterated = new ArrayList<>();
+        iterator.forEachRemaining(iterated::add);
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), iterated);
+    }
+
+    @Test
+    @DisplayName("Updates share every node off the path to the changed item")
+    public void updatesCopyOnlyThePath() {
+        for (int i = 0; i < 1023; i++) {
+            avlTree.insert(i);
+        }
+        PersistentAvlTree.Node<Integer> before = avlTree.getRoot();
+
+        avlTree.insert(1023);
+        avlTree.delete(5000);
+
+        PersistentAvlTree.Node<Integer> after = avlTree.getRoot();
+        assertNotSame(before, after);
+        assertSame(before.left, after.left);
+        assertEquals(1023, before.size);
+    }
+
+    @Test
+    @DisplayName("Inserting a duplicated item does not create a new version")
+    public void insertingDuplicatedItemKeepsRoot() {
+        avlTree.insert(1);
+        avlTree.insert(2);
+        PersistentAvlTree.Node<Integer> root = avlTree.getRoot();
+
+        avlTree.insert(2);
+        avlTree.delete(3);
+
+        assertSame(root, avlTree.getRoot());
+    }
+}
@@ -0,0 +1,216 @@
+package avl;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardedAvlTreeTest {
+
+    static final int THREADS = 8;
+
+    ShardedAvlTree<Integer> avlTree;
+    Comparator<Integer> comparator;
+
+    @BeforeEach
+    public void setUp() {
+        comparator = Comparator.naturalOrder();
+        avlTree = new ShardedAvlTree<>(comparator, List.of(1000, 2000, 3000));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        avlTree = null;
+        comparator = null;
+    }
+
+    private List<Integer> items() {
+        List<Integer> items = new ArrayList<>();
+        avlTree.forEach(items::add);
+        return items;
+    }
+
+    @Test
+    @DisplayName("ShardedAvlTree is empty before anything is inserted")
+    public void avlTreeIsEmpty() {
+        assertAll(
+                () -> assertTrue(avlTree.avlIsEmpty()),
+                () -> assertEquals(4, avlTree.shardCount()),
+                () -> assertNull(avlTree.search(1)),
+                () -> assertFalse(avlTree.iterator().hasNext())
+        );
+    }
+
+    @Test
+    @DisplayName("Splits that are not strictly ascending are rejected")
+    public void unorderedSplitsAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ShardedAvlTree<Integer>(comparator, List.of(5, 5)));
+    }
+
+    @Test
+    @DisplayName("Items are routed by range and iterated in order across shards")
+    public void itemsAreRoutedByRange() {
+        for (int item : new int[] {3500, -4, 1000, 999, 2500, 0, 3000}) {
+            avlTree.insert(item);
+        }
+        avlTree.insert(999);
+        avlTree.delete(0);
+
+        assertAll(
+                () -> assertArrayEquals(new int[] {2, 1, 1, 2}, avlTree.shardSizes()),
+                () -> assertEquals(List.of(-4, 999, 1000, 2500, 3000, 3500), items()),
+                () -> assertEquals(6, avlTree.size()),
+                () -> assertEquals(2500, avlTree.search(2500)),
+                () -> assertFalse(avlTree.contains(0))
+        );
+    }
+
+    @Test
+    @DisplayName("Rebalancing the shards spreads the items evenly and keeps them all")
+    public void rebalancingSpreadsItemsEvenly() {
+        for (int i = 0; i < 100; i++) {
+            avlTree.insert(5000 + i);
+        }
+        assertArrayEquals(new int[] {0, 0, 0, 100}, avlTree.shardSizes());
+
+        avlTree.rebalanceShards();
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            expected.add(5000 + i);
+        }
+        assertAll(
+                () -> assertArrayEquals(new int[] {25, 25, 25, 25}, avlTree.shardSizes()),
+                () -> assertEquals(expected, items()),
+                () -> assertTrue(avlTree.contains(5000)),
+                () -> assertTrue(avlTree.contains(5099))
+        );
+
+        avlTree.insert(0);
+        avlTree.insert(5030);
+        assertArrayEquals(new int[] {26, 25, 25, 25}, avlTree.shardSizes());
+    }
+
+    @Test
+    @DisplayName("Skewed shards are rebalanced automatically")
+    public void skewedShardsAreRebalanced() {
+        int n = 20 * ShardedAvlTree.MIN_REBALANCE_SIZE;
+        for (int i = 0; i < n; i++) {
+            avlTree.insert(10000 + i);
+        }
+
+        int largest = largestShardSize();
+        assertAll(
+                () -> assertTrue(largest < n / 2, "Largest shard: " + largest),
+                () -> assertFalse(ShardedAvlTree.isSkewed(largest, n, 4)),
+                () -> assertEquals(n, avlTree.size()),
+                () -> assertEquals(n, items().size())
+        );
+    }
+
+    @Test
+    @DisplayName("Shards left skewed by deletes are rebalanced automatically")
+    public void shardsSkewedByDeletesAreRebalanced() {
+        int n = 20 * ShardedAvlTree.MIN_REBALANCE_SIZE;
+        for (int i = 0; i < n; i++) {
+            avlTree.insert(i);
+        }
+        avlTree.rebalanceShards();
+        assertEquals(n / 4, largestShardSize());
+
+        for (int i = 0; i < 3 * n / 4; i++) {
+            avlTree.delete(i);
+        }
+
+        int largest = largestShardSize();
+        assertAll(
+                () -> assertTrue(largest < n / 4, "Largest shard: " + largest),
+                () -> assertFalse(ShardedAvlTree.isSkewed(largest, n / 4, 4)),
+                () -> assertEquals(n / 4, avlTree.size()),
+                () -> assertEquals(3 * n / 4, items().get(0))
+        );
+    }
+
+    @Test
+    @DisplayName("The skew threshold is reachable with two or four shards")
+    public void skewThresholdIsReachable() {
+        int n = 4 * ShardedAvlTree.MIN_REBALANCE_SIZE;
+
+        assertAll(
+                () -> assertTrue(ShardedAvlTree.isSkewed(n, n, 2)),
+                () -> assertTrue(ShardedAvlTree.isSkewed(n, n, 4)),
+                () -> assertFalse(ShardedAvlTree.isSkewed(n / 2, n, 2)),
+                () -> assertFalse(ShardedAvlTree.isSkewed(n / 4, n, 4)),
+                () -> assertFalse(ShardedAvlTree.isSkewed(100, 100, 4))
+        );
+    }
+
+    private int largestShardSize() {
+        int largest = 0;
+        for (int size : avlTree.shardSizes()) {
+            largest = Math.max(largest, size);
+        }
+        return largest;
+    }
+
+    @Test
+    @DisplayName("Concurrent writers end with exactly their items while iterators stay ordered")
+    public void concurrentWritersAndIterators() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int t = 0; t < THREADS - 1; t++) {
+                int thread = t;
+                tasks.add(() -> {
+                    Random random = new Random(thread);
+                    for (int i = 0; i < 20000; i++) {
+                        int item = random.nextInt(4000) * THREADS + thread;
+                        if (random.nextInt(3) > 0) {
+                            avlTree.insert(item);
+                        } else {
+                            avlTree.delete(item);
+                        }
+                    }
+                    return null;
+                });
+            }
+            tasks.add(() -> {
+                for (int i = 0; i < 50; i++) {
+                    List<Integer> snapshot = items();
+                    for (int j = 1; j < snapshot.size(); j++) {
+                        assertTrue(snapshot.get(j - 1) < snapshot.get(j));
+                    }
+                    avlTree.rebalanceShards();
+                }
+                return null;
+            });
+            for (Future<Void> future : executor.invokeAll(tasks, 60, TimeUnit.SECONDS)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int thread = 0; thread < THREADS - 1; thread++) {
+            Random random = new Random(thread);
+            for (int i = 0; i < 20000; i++) {
+                int item = random.nextInt(4000) * THREADS + thread;
+                if (random.nextInt(3) > 0) {
+                    expected.add(item);
+                } else {
+                    expected.remove(item);
+                }
+            }
+        }
+        assertEquals(new ArrayList<>(expected), items());
+        assertEquals(expected.size(), avlTree.size());
+    }
+}
@@ -0,0 +1,175 @@
+package avl;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StampedAvlTreeTest {
+
+    static final int THREADS = 8;
+
+    StampedAvlTree<Integer> avlTree;
+    Comparator<Integer> comparator;
+    ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        comparator = Comparator.naturalOrder();
+        avlTree = new StampedAvlTree<>(comparator);
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+        avlTree = null;
+        comparator = null;
+    }
+
+    private List<Integer> items() {
+        List<Integer> items = new ArrayList<>();
+        avlTree.forEach(items::add);
+        return items;
+    }
+
+    private void runAll(List<Callable<Void>> tasks) throws Exception {
+        for (Future<Void> future : executor.invokeAll(tasks, 60, TimeUnit.SECONDS)) {
+            future.get();
+        }
+    }
+
+    @Test
+    @DisplayName("StampedAvlTree is empty before anything is inserted")
+    public void avlTreeIsEmpty() {
+        assertAll(
+                () -> assertTrue(avlTree.avlIsEmpty()),
+                () -> assertEquals(0, avlTree.size()),
+                () -> assertNull(avlTree.search(1)),
+                () -> assertThrows(NullPointerException.class, () -> avlTree.getHeight())
+        );
+    }
+
+    @Test
+    @DisplayName("Reads see the same tree as AvlTree")
+    public void readsMatchAvlTree() {
+        AvlTree<Integer> expected = new AvlTree<>(comparator);
+        Random random = new Random(7);
+        for (int i = 0; i < 3000; i++) {
+            int item = random.nextInt(500);
+            if (random.nextInt(3) > 0) {
+                avlTree.insert(item);
+                expected.insert(item);
+            } else {
+                avlTree.delete(item);
+                expected.delete(item);
+            }
+        }
+
+        List<Integer> expectedItems = new ArrayList<>();
+        expected.forEach(expectedItems::add);
+        assertAll(
+                () -> assertEquals(expectedItems, items()),
+                () -> assertEquals(expected.size(), avlTree.size()),
+                () -> assertEquals(expected.getHeight(), avlTree.getHeight()),
+                () -> assertEquals(expectedItems.get(0), avlTree.search(expectedItems.get(0))),
+                () -> assertFalse(avlTree.contains(500))
+        );
+    }
+
+    @Test
+    @DisplayName("A failing write throws in the thread that issued it")
+    public void failingWriteThrowsToItsCaller() {
+        StampedAvlTree<Object> mixed = new StampedAvlTree<>(null);
+        mixed.insert(1);
+
+        assertThrows(ClassCastException.class, () -> mixed.insert("one"));
+        assertEquals(1, mixed.size());
+    }
+
+    @Test
+    @DisplayName("Combined concurrent writes end with exactly the written items")
+    public void concurrentWritersOnDisjointItems() throws Exception {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            tasks.add(() -> {
+                Random random = new Random(thread);
+                for (int i = 0; i < 20000; i++) {
+                    int item = random.nextInt(2000) * THREADS + thread;
+                    if (random.nextInt(3) > 0) {
+                        avlTree.insert(item);
+                    } else {
+                        avlTree.delete(item);
+                    }
+                }
+                return null;
+            });
+        }
+        runAll(tasks);
+
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            Random random = new Random(thread);
+            for (int i = 0; i < 20000; i++) {
+                int item = random.nextInt(2000) * THREADS + thread;
+                if (random.nextInt(3) > 0) {
+                    expected.add(item);
+                } else {
+                    expected.remove(item);
+                }
+            }
+        }
+
+        assertEquals(new ArrayList<>(expected), items());
+        assertEquals(expected.size(), avlTree.size());
+    }
+
+    @Test
+    @DisplayName("Reads running during writes see every stable item and a sorted snapshot")
+    public void readsDuringWrites() throws Exception {
+        // even items are inserted up front and never deleted; writers churn odd items
+        for (int i = 0; i < 2000; i++) {
+            avlTree.insert(2 * i);
+        }
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int w = 0; w < THREADS / 2; w++) {
+            int writer = w;
+            tasks.add(() -> {
+                Random random = new Random(writer);
+                for (int i = 0; i < 20000; i++) {
+                    avlTree.insert(2 * random.nextInt(2000) + 1);
+                    avlTree.delete(2 * random.nextInt(2000) + 1);
+                }
+                return null;
+            });
+        }
+        for (int r = 0; r < THREADS / 2; r++) {
+            int reader = r;
+            tasks.add(() -> {
+                Random random = new Random(100 + reader);
+                for (int i = 0; i < 50000; i++) {
+                    int item = 2 * random.nextInt(2000);
+                    assertEquals(item, avlTree.search(item));
+                    assertTrue(avlTree.getHeight() < 20);
+                    if (i % 1000 == 0) {
+                        List<Integer> snapshot = items();
+                        for (int j = 1; j < snapshot.size(); j++) {
+                            assertTrue(snapshot.get(j - 1) < snapshot.get(j));
+                        }
+                        assertTrue(snapshot.size() >= 2000);
+                    }
+                }
+                return null;
+            });
+        }
+        runAll(tasks);
+    }
+}